@@ -0,0 +1,231 @@
+package com.example;
+
+import org.apache.pulsar.client.api.ConsumerBuilder;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.TypedMessageBuilder;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Record;
+import org.apache.pulsar.functions.api.StateStore;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *  In-memory stand-in of the Pulsar function runtime context, so functions can be
+ *  benchmarked without a broker:
+ *  - output messages are built but never sent (see NoopTypedMessageBuilder)
+ *  - user config, state and counters are kept in plain maps
+ *  - metrics keep the last recorded value
+ */
+public class BenchmarkContext implements Context {
+
+    private final Map<String, Object> userConfig = new HashMap<>();
+    private final Map<String, ByteBuffer> state = new HashMap<>();
+    private final Map<String, Long> counters = new HashMap<>();
+    private final Map<String, Double> metrics = new HashMap<>();
+
+    private long outputMessageCnt = 0;
+
+    public BenchmarkContext withUserConfig(String key, Object value) {
+        userConfig.put(key, value);
+        return this;
+    }
+
+    public long getOutputMessageCnt() {
+        return outputMessageCnt;
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Record<?> getCurrentRecord() {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getInputTopics() {
+        return Collections.singletonList("persistent://public/default/raw_sensor_data");
+    }
+
+    @Override
+    public String getOutputTopic() {
+        return "persistent://public/default/warning_sensor_data";
+    }
+
+    @Override
+    public String getOutputSchemaType() {
+        return null;
+    }
+
+    @Override
+    public String getTenant() {
+        return "public";
+    }
+
+    @Override
+    public String getNamespace() {
+        return "default";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getFunctionId() {
+        return "benchmark";
+    }
+
+    @Override
+    public int getInstanceId() {
+        return 0;
+    }
+
+    @Override
+    public int getNumInstances() {
+        return 1;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "1.0-SNAPSHOT";
+    }
+
+    @Override
+    public Logger getLogger() {
+        return NOPLogger.NOP_LOGGER;
+    }
+
+    @Override
+    public <S extends StateStore> S getStateStore(String name) {
+        return null;
+    }
+
+    @Override
+    public <S extends StateStore> S getStateStore(String tenant, String ns, String name) {
+        return null;
+    }
+
+    @Override
+    public void incrCounter(String key, long amount) {
+        counters.merge(key, amount, Long::sum);
+    }
+
+    @Override
+    public CompletableFuture<Void> incrCounterAsync(String key, long amount) {
+        incrCounter(key, amount);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public long getCounter(String key) {
+        return counters.getOrDefault(key, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Long> getCounterAsync(String key) {
+        return CompletableFuture.completedFuture(getCounter(key));
+    }
+
+    @Override
+    public void putState(String key, ByteBuffer value) {
+        // Copy the value, like the real state store that serializes it right away
+        ByteBuffer copy = ByteBuffer.allocate(value.remaining());
+        copy.put(value.duplicate()).flip();
+        state.put(key, copy);
+    }
+
+    @Override
+    public CompletableFuture<Void> putStateAsync(String key, ByteBuffer value) {
+        putState(key, value);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void deleteState(String key) {
+        state.remove(key);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStateAsync(String key) {
+        deleteState(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public ByteBuffer getState(String key) {
+        ByteBuffer value = state.get(key);
+        return (value != null) ? value.duplicate() : null;
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> getStateAsync(String key) {
+        return CompletableFuture.completedFuture(getState(key));
+    }
+
+    @Override
+    public Map<String, Object> getUserConfigMap() {
+        return userConfig;
+    }
+
+    @Override
+    public Optional<Object> getUserConfigValue(String key) {
+        return Optional.ofNullable(userConfig.get(key));
+    }
+
+    @Override
+    public Object getUserConfigValueOrDefault(String key, Object defaultValue) {
+        return userConfig.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public String getSecret(String secretName) {
+        return null;
+    }
+
+    @Override
+    public void recordMetric(String metricName, double value) {
+        metrics.put(metricName, value);
+    }
+
+    @Override
+    @Deprecated
+    public <O> CompletableFuture<Void> publish(String topicName, O object, String schemaOrSerdeClassName) {
+        outputMessageCnt++;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    @Deprecated
+    public <O> CompletableFuture<Void> publish(String topicName, O object) {
+        outputMessageCnt++;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <O> TypedMessageBuilder<O> newOutputMessage(String topicName, Schema<O> schema) {
+        outputMessageCnt++;
+        return new NoopTypedMessageBuilder<>();
+    }
+
+    @Override
+    public <O> TypedMessageBuilder<O> newOutputMessage(String clusterName, String topicName, Schema<O> schema) {
+        outputMessageCnt++;
+        return new NoopTypedMessageBuilder<>();
+    }
+
+    @Override
+    public <O> ConsumerBuilder<O> newConsumerBuilder(Schema<O> schema) {
+        throw new UnsupportedOperationException("Consumers are not supported in benchmarks");
+    }
+}
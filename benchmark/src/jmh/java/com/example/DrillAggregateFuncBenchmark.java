@@ -0,0 +1,55 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message cost of DrillAggregateFunc.process, cycling through the readings of "drillNum" drills
+ *  with one temperature and one speed sensor each. The aggregates are persisted in memory and
+ *  published every second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DrillAggregateFuncBenchmark {
+
+    private static final String INPUT_FORMAT = "{\"DrillID\": \"DRL-%03d\", \"SensorID\": \"SNS-%s-01\", " +
+            "\"SensorType\": \"%s\", \"ReadingTime\": \"%s\", \"ReadingValue\": %f}";
+
+    @Param({"10", "10000"})
+    public int drillNum;
+
+    private DrillAggregateFunc function;
+    private BenchmarkContext context;
+    private String[] inputs;
+    private int inputIdx = 0;
+
+    @Setup
+    public void setup() {
+        function = new DrillAggregateFunc();
+        context = new BenchmarkContext()
+                .withUserConfig(DrillAggregateFunc.WINDOW_SEC_KEY, 1)
+                .withUserConfig(DrillAggregateFunc.STATE_STORE_KEY, DrillAggregateFunc.STATE_STORE_MEMORY);
+
+        String now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        inputs = new String[2 * drillNum];
+        for (int i = 0; i < drillNum; i++) {
+            inputs[2 * i] = String.format(INPUT_FORMAT, i, "temp", "temp", now, 350.5f);
+            inputs[2 * i + 1] = String.format(INPUT_FORMAT, i, "speed", "speed", now, 1850.5f);
+        }
+    }
+
+    @Benchmark
+    public Void process() throws Exception {
+        String input = inputs[inputIdx];
+        inputIdx = (inputIdx + 1) % inputs.length;
+        return function.process(input, context);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message cost of DrillWarningTopFunc.process for warnings of "drillNum" drills, with a skewed
+ *  number of warnings per drill (log-uniform drill numbers), counted with the default number of counters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DrillWarningTopFuncBenchmark {
+
+    private static final String WARNING_SENSOR_DATA_SCHEMA = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"IotSensor\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingDate\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingTime\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    private static final int INPUT_NUM = 100000;
+
+    @Param({"100", "100000"})
+    public int drillNum;
+
+    private DrillWarningTopFunc function;
+    private BenchmarkContext context;
+    private GenericRecord[] inputs;
+    private int inputIdx = 0;
+
+    @Setup
+    public void setup() {
+        function = new DrillWarningTopFunc();
+        context = new BenchmarkContext()
+                .withUserConfig(DrillWarningTopFunc.SNAPSHOT_INTERVAL_SEC_KEY, 1);
+
+        SchemaInfo schemaInfo = SchemaInfo.builder()
+                .schema(WARNING_SENSOR_DATA_SCHEMA.getBytes(StandardCharsets.UTF_8))
+                .type(SchemaType.AVRO)
+                .properties(new HashMap<>())
+                .name("NBAvro")
+                .build();
+        GenericAvroSchema warningSchema = new GenericAvroSchema(schemaInfo);
+
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        String readingTime = now.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        Random random = new Random(1);
+        inputs = new GenericRecord[INPUT_NUM];
+        for (int i = 0; i < INPUT_NUM; i++) {
+            int drillIdx = (int) Math.pow(drillNum, random.nextDouble());
+            GenericRecord record = warningSchema.newRecordBuilder()
+                    .set("DrillID", String.format("DRL-%03d", drillIdx))
+                    .set("SensorID", "SNS-temp-01")
+                    .set("ReadingDate", readingTime.substring(0, 10))
+                    .set("ReadingTime", readingTime)
+                    .set("SensorType", "temp")
+                    .set("ReadingValue", 450.5f)
+                    .build();
+
+            // Encode and decode once so the record looks exactly like one received from a topic
+            inputs[i] = warningSchema.decode(warningSchema.encode(record));
+        }
+    }
+
+    @Benchmark
+    public Void process() throws Exception {
+        GenericRecord input = inputs[inputIdx];
+        inputIdx = (inputIdx + 1) % inputs.length;
+        return function.process(input, context);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.TypedMessageBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Message builder that keeps the value and completes every send immediately
+ *  without going to a broker.
+ */
+public class NoopTypedMessageBuilder<T> implements TypedMessageBuilder<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final CompletableFuture<MessageId> SENT = CompletableFuture.completedFuture(MessageId.earliest);
+
+    private T value;
+
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public MessageId send() {
+        return MessageId.earliest;
+    }
+
+    @Override
+    public CompletableFuture<MessageId> sendAsync() {
+        return SENT;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> key(String key) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> keyBytes(byte[] key) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> orderingKey(byte[] orderingKey) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> value(T value) {
+        this.value = value;
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> property(String name, String value) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> properties(Map<String, String> properties) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> eventTime(long timestamp) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> sequenceId(long sequenceId) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> replicationClusters(List<String> clusters) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> disableReplication() {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> deliverAt(long timestamp) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> deliverAfter(long delay, TimeUnit unit) {
+        return this;
+    }
+
+    @Override
+    public TypedMessageBuilder<T> loadConf(Map<String, Object> config) {
+        return this;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example;
+
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message encoding cost of SensorDataProducer, from one workload CSV line to
+ *  - "csvToJsonBytes": the JSON payload bytes (default byte[] schema)
+ *  - "csvToJsonToAvro": the Pulsar Avro record (Avro schema), via the JSON payload
+ *  - "csvLineToJsonBytes" / "csvLineToAvro": the same, straight from the in-place CSV fields
+ *    (SensorJsonPayloadEncoder / SensorAvroPayloadEncoder)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SensorDataProducerBenchmark {
+
+    // misc/raw_sensor_data.avsc
+    static final String RAW_SENSOR_DATA_SCHEMA = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"IotSensor\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingTime\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    private static final String CSV_LINE = "DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33";
+
+    private Schema<?> pulsarSchema;
+    private String schemaDefinition;
+
+    private final WorkloadCsvLine csvLine = new WorkloadCsvLine();
+    private final SensorJsonPayloadEncoder jsonPayloadEncoder = new SensorJsonPayloadEncoder();
+    private SensorAvroPayloadEncoder avroPayloadEncoder;
+
+    @Setup
+    public void setup() {
+        pulsarSchema = SensorDataProducerUtil.getPulsarSchema("avro", RAW_SENSOR_DATA_SCHEMA);
+        schemaDefinition = pulsarSchema.getSchemaInfo().getSchemaDefinition();
+
+        byte[] csvLineBytes = CSV_LINE.getBytes(StandardCharsets.UTF_8);
+        csvLine.set(ByteBuffer.wrap(csvLineBytes), 0, csvLineBytes.length, 1);
+        avroPayloadEncoder = new SensorAvroPayloadEncoder((GenericAvroSchema) pulsarSchema);
+    }
+
+    @Benchmark
+    public byte[] csvToJsonBytes() {
+        String msgPayloadJson = SensorDataProducerUtil.getJsonPayload(CSV_LINE);
+        return msgPayloadJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public GenericRecord csvToJsonToAvro() {
+        String msgPayloadJson = SensorDataProducerUtil.getJsonPayload(CSV_LINE);
+
+        org.apache.avro.generic.GenericRecord avroRecord =
+                SensorDataProducerUtil.GetGenericRecord_ApacheAvro(schemaDefinition, msgPayloadJson);
+
+        return SensorDataProducerUtil.GetGenericRecord_PulsarAvro((GenericAvroSchema) pulsarSchema, avroRecord);
+    }
+
+    @Benchmark
+    public byte[] csvLineToJsonBytes() {
+        return jsonPayloadEncoder.encode(csvLine);
+    }
+
+    @Benchmark
+    public GenericRecord csvLineToAvro() {
+        return avroPayloadEncoder.encode(csvLine);
+    }
+}
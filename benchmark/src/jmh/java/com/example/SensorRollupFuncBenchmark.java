@@ -0,0 +1,61 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message cost of SensorRollupFunc.process for "drillNum" drills with one temperature and one speed
+ *  sensor each, reporting every second, i.e. every sensor publishes one (1-minute) bucket per 60 readings.
+ *
+ *  The reading times of a function must not go back, so every invocation replays the whole stream of
+ *  INPUT_NUM readings through a new function (see @OperationsPerInvocation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SensorRollupFuncBenchmark {
+
+    private static final String INPUT_FORMAT = "{\"DrillID\": \"DRL-%03d\", \"SensorID\": \"SNS-%s-01\", " +
+            "\"SensorType\": \"%s\", \"ReadingTime\": \"%s\", \"ReadingValue\": %f}";
+
+    private static final int INPUT_NUM = 240000;
+
+    @Param({"100", "1000"})
+    public int drillNum;
+
+    private BenchmarkContext context;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        context = new BenchmarkContext()
+                .withUserConfig(SensorRollupFunc.MAX_SENSORS_KEY, 2 * drillNum);
+
+        LocalDateTime start = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+
+        inputs = new String[INPUT_NUM];
+        for (int idx = 0; idx < INPUT_NUM; idx += 2) {
+            int drillIdx = (idx / 2) % drillNum;
+            String readingTime = start.plusSeconds(idx / (2 * drillNum))
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            inputs[idx] = String.format(INPUT_FORMAT, drillIdx, "temp", "temp", readingTime, 350.5f);
+            inputs[idx + 1] = String.format(INPUT_FORMAT, drillIdx, "speed", "speed", readingTime, 1850.5f);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_NUM)
+    public SensorRollupFunc process() throws Exception {
+        SensorRollupFunc function = new SensorRollupFunc();
+        for (String input : inputs) {
+            function.process(input, context);
+        }
+        function.close();
+        return function;
+    }
+}
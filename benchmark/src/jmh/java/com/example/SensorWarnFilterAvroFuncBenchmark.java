@@ -0,0 +1,75 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message cost of SensorWarnFilterAvroFunc.process, with the same kinds of input as
+ *  SensorWarnFilterFuncBenchmark but delivered as decoded "raw_sensor_data" Avro records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SensorWarnFilterAvroFuncBenchmark {
+
+    @Param({"warning", "normal", "stale"})
+    public String inputKind;
+
+    private SensorWarnFilterAvroFunc function;
+    private BenchmarkContext context;
+    private GenericRecord input;
+
+    @Setup
+    public void setup() throws Exception {
+        function = new SensorWarnFilterAvroFunc();
+        // The same reading is processed over and over, which must not be suppressed as a duplicate
+        context = new BenchmarkContext()
+                .withUserConfig(AbstractSensorWarnFunc.DEDUP_MAX_MEMORY_KEY, 0);
+
+        SchemaInfo schemaInfo = SchemaInfo.builder()
+                .schema(SensorDataProducerBenchmark.RAW_SENSOR_DATA_SCHEMA.getBytes(StandardCharsets.UTF_8))
+                .type(SchemaType.AVRO)
+                .properties(new HashMap<>())
+                .name("NBAvro")
+                .build();
+        GenericAvroSchema rawSchema = new GenericAvroSchema(schemaInfo);
+
+        // Readings must be of the watermark's day to pass the function's date filter, so a reading of
+        //   "today" moves the watermark first
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime readingTime = "stale".equals(inputKind) ? now.minusDays(1) : now;
+        float readingValue = "normal".equals(inputKind) ? 350.5f : 450.5f;
+        function.process(newInput(rawSchema, now, 350.5f), context);
+
+        input = newInput(rawSchema, readingTime, readingValue);
+    }
+
+    private static GenericRecord newInput(GenericAvroSchema rawSchema, LocalDateTime readingTime, float readingValue) {
+        GenericRecord record = rawSchema.newRecordBuilder()
+                .set("DrillID", "DRL-001")
+                .set("SensorID", "SNS-temp-01")
+                .set("SensorType", "temp")
+                .set("ReadingTime", readingTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .set("ReadingValue", readingValue)
+                .build();
+
+        // Encode and decode once so the record looks exactly like one received from a topic
+        return rawSchema.decode(rawSchema.encode(record));
+    }
+
+    @Benchmark
+    public Void process() throws Exception {
+        return function.process(input, context);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-message cost of SensorWarnFilterFunc.process for the different kinds of input:
+ *  - "warning": a reading of today beyond the threshold, published to the output topic
+ *  - "normal": a reading of today within the threshold, dropped
+ *  - "stale": a reading before today (after a reading of today moved the watermark), dropped as late
+ *
+ *  With "-p warnMode=anomaly" the readings are checked by the per-sensor anomaly detector instead of the
+ *  warning rules (the repeated reading is never an anomaly, so nothing is published).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SensorWarnFilterFuncBenchmark {
+
+    private static final String INPUT_FORMAT = "{\"DrillID\": \"DRL-001\", \"SensorID\": \"SNS-temp-01\", " +
+            "\"SensorType\": \"temp\", \"ReadingTime\": \"%s\", \"ReadingValue\": %f}";
+
+    @Param({"warning", "normal", "stale"})
+    public String inputKind;
+
+    @Param({AbstractSensorWarnFunc.WARN_MODE_RULES})
+    public String warnMode;
+
+    private SensorWarnFilterFunc function;
+    private BenchmarkContext context;
+    private String input;
+
+    @Setup
+    public void setup() throws Exception {
+        function = new SensorWarnFilterFunc();
+        // The same reading is processed over and over, which must not be suppressed as a duplicate
+        context = new BenchmarkContext()
+                .withUserConfig(AbstractSensorWarnFunc.DEDUP_MAX_MEMORY_KEY, 0)
+                .withUserConfig(AbstractSensorWarnFunc.WARN_MODE_KEY, warnMode);
+
+        // Readings must be of the watermark's day to pass the function's date filter, so a reading of
+        //   "today" moves the watermark first
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        String today = now.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        String yesterday = now.minusDays(1).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        function.process(String.format(INPUT_FORMAT, today, 350.5f), context);
+
+        switch (inputKind) {
+            case "warning":
+                input = String.format(INPUT_FORMAT, today, 450.5f);
+                break;
+            case "normal":
+                input = String.format(INPUT_FORMAT, today, 350.5f);
+                break;
+            default:
+                input = String.format(INPUT_FORMAT, yesterday, 450.5f);
+        }
+    }
+
+    @Benchmark
+    public Void process() throws Exception {
+        return function.process(input, context);
+    }
+}
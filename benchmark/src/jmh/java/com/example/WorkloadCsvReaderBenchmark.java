@@ -0,0 +1,117 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Time to read a workload CSV file of "lineNum" lines and convert every line into the JSON message payload
+ *  - "scanner": Scanner + SensorDataProducerUtil.getJsonPayload (the original SensorDataProducer loop)
+ *  - "mappedReader": WorkloadCsvReader + SensorJsonPayloadEncoder
+ *  - "binaryReader": WorkloadBinReader + SensorJsonPayloadEncoder, on the same readings in a binary workload file
+ *
+ *  and to replay only the last 1% of the reading time range ("*TimeRange": full scan of the CSV file vs. the
+ *  block index seek of the binary file).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkloadCsvReaderBenchmark {
+
+    @Param({"1000000"})
+    public int lineNum;
+
+    private Path workloadFile;
+    private Path binWorkloadFile;
+
+    // 1000 readings per second of reading time
+    private static final long START_TIME = 1617640483L;
+    private long rangeStartTime;
+
+    @Setup
+    public void setup() throws IOException {
+        workloadFile = Files.createTempFile("workload_gen", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(workloadFile, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lineNum; i++) {
+                String sensorType = (i % 2 == 0) ? "temp" : "speed";
+                writer.write(String.format("DRL-%03d,SNS-%s-%02d,%s,2021-04-05,2021-04-05T16:34:%02d,%.2f%n",
+                        i % 1000, sensorType, i % 10, sensorType, i % 60, 200 + (i % 30000) / 100.0f));
+            }
+        }
+
+        binWorkloadFile = Files.createTempFile("workload_gen", ".bin");
+        try (BinaryRecordSink sink = new BinaryRecordSink(binWorkloadFile.toFile(), 1000,
+                new String[] {"temp", "speed"}, 10)) {
+            for (int i = 0; i < lineNum; i++) {
+                sink.accept(START_TIME + i / 1000, i % 1000, i % 2, i % 10, 200 + (i % 30000) / 100.0f);
+            }
+        }
+        rangeStartTime = START_TIME + (lineNum / 1000) * 99 / 100;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(workloadFile);
+        Files.deleteIfExists(binWorkloadFile);
+    }
+
+    @Benchmark
+    public long scanner() throws IOException {
+        long totalBytes = 0;
+        try (FileInputStream fileInputStream = new FileInputStream(workloadFile.toFile());
+             Scanner scanner = new Scanner(fileInputStream)) {
+            while (scanner.hasNext()) {
+                String msgPayloadJson = SensorDataProducerUtil.getJsonPayload(scanner.nextLine());
+                totalBytes += msgPayloadJson.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return totalBytes;
+    }
+
+    @Benchmark
+    public long mappedReader() throws IOException {
+        long totalBytes = 0;
+        WorkloadCsvLine csvLine = new WorkloadCsvLine();
+        SensorJsonPayloadEncoder jsonPayloadEncoder = new SensorJsonPayloadEncoder();
+        try (WorkloadCsvReader csvReader = new WorkloadCsvReader(workloadFile)) {
+            while (csvReader.readLine(csvLine)) {
+                totalBytes += jsonPayloadEncoder.encode(csvLine).length;
+            }
+        }
+        return totalBytes;
+    }
+
+    @Benchmark
+    public long binaryReader() throws IOException {
+        return encodeAll(new WorkloadBinReader(binWorkloadFile));
+    }
+
+    @Benchmark
+    public long mappedReaderTimeRange() throws IOException {
+        return encodeAll(new WorkloadCsvReader(workloadFile, rangeStartTime, Long.MAX_VALUE));
+    }
+
+    @Benchmark
+    public long binaryReaderTimeRange() throws IOException {
+        return encodeAll(new WorkloadBinReader(binWorkloadFile, rangeStartTime, Long.MAX_VALUE));
+    }
+
+    private long encodeAll(WorkloadReader workloadReader) throws IOException {
+        long totalBytes = 0;
+        WorkloadCsvLine csvLine = new WorkloadCsvLine();
+        SensorJsonPayloadEncoder jsonPayloadEncoder = new SensorJsonPayloadEncoder();
+        try (WorkloadReader reader = workloadReader) {
+            while (reader.readLine(csvLine)) {
+                totalBytes += jsonPayloadEncoder.encode(csvLine).length;
+            }
+        }
+        return totalBytes;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example;
+
+import org.apache.commons.lang3.time.DateFormatUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Per-record cost of generating one workload CSV row:
+ *  - "stringFormat": the original String.format/DateFormatUtils based formatting
+ *  - "recordEncoder": SensorRecordEncoder writing into a reusable buffer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WorkloadGenBenchmark {
+
+    private static final String[] SENSOR_TYPES = {"temp", "speed"};
+    private static final int DRILL_NUM = 100;
+    private static final int SENSOR_NUM_PER_TYPE = 10;
+    // Number of records generated per cycle (i.e. with the same cycle time)
+    private static final int RECORDS_PER_CYCLE = 50;
+
+    private SensorRecordEncoder encoder;
+    private ByteBuffer buffer;
+
+    private long cycleTime;
+    private int recordIdx;
+
+    @Setup
+    public void setup() {
+        encoder = new SensorRecordEncoder(DRILL_NUM, SENSOR_TYPES, SENSOR_NUM_PER_TYPE);
+        buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        cycleTime = 1617640483L;
+        recordIdx = 0;
+    }
+
+    // Advance to the next cycle every RECORDS_PER_CYCLE records
+    private long nextCycleTime() {
+        if (++recordIdx == RECORDS_PER_CYCLE) {
+            recordIdx = 0;
+            cycleTime++;
+        }
+        return cycleTime;
+    }
+
+    @Benchmark
+    public byte[] stringFormat() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long cycle_time = nextCycleTime();
+
+        String drillName = String.format("DRL-%03d", (random.nextInt(DRILL_NUM) + 1));
+        String sensorType = SENSOR_TYPES[random.nextInt(SENSOR_TYPES.length)];
+        String sensorName = String.format("SNS-%s-%02d", sensorType, (random.nextInt(SENSOR_NUM_PER_TYPE) + 1));
+        float readingValue = 200 + (300 * random.nextFloat());
+
+        String record = String.format("%s,%s,%s,%s,%s,%.2f\n",
+                drillName, sensorName, sensorType,
+                DateFormatUtils.formatUTC(cycle_time*1000L, "yyyy-MM-dd"),
+                DateFormatUtils.formatUTC(cycle_time*1000L, "yyyy-MM-dd'T'HH:mm:ss"),
+                readingValue);
+
+        return record.getBytes();
+    }
+
+    @Benchmark
+    public int recordEncoder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long cycle_time = nextCycleTime();
+
+        if (buffer.remaining() < encoder.getMaxRecordLen()) {
+            buffer.clear();
+        }
+
+        encoder.encode(buffer, cycle_time,
+                random.nextInt(DRILL_NUM),
+                random.nextInt(SENSOR_TYPES.length),
+                random.nextInt(SENSOR_NUM_PER_TYPE),
+                200 + (300 * random.nextFloat()));
+
+        return buffer.position();
+    }
+}
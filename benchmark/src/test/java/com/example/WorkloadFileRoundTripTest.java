@@ -0,0 +1,167 @@
+package com.example;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Generates a multi-shard workload into both a workload CSV file (FileRecordSink) and a binary workload
+ *  file (BinaryRecordSink), merges the part files of each, and checks that reading the files back through
+ *  WorkloadReader gives the same lines, with and without a reading time range.
+ */
+public class WorkloadFileRoundTripTest {
+
+    private static final int SHARD_NUM = 3;
+    private static final int DRILL_NUM = 20;
+    private static final String[] SENSOR_TYPES = { "temp", "speed" };
+    private static final int SENSOR_NUM_PER_TYPE = 4;
+    private static final int WORKLOAD_FREQ_SEC = 5;
+    // 2021-04-05T00:00:00 to 2021-04-06T00:00:00 (UTC): 17281 cycles, several binary blocks per shard
+    private static final long START_TIME = 1617580800L;
+    private static final long END_TIME = START_TIME + 86400;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path csvFile;
+    private static Path binFile;
+    private static long generatedRecordCnt;
+
+    // Passes every record on to both sinks, so both files get the same (random) records
+    private static class TeeRecordSink implements RecordSink {
+        private final RecordSink first;
+        private final RecordSink second;
+
+        TeeRecordSink(RecordSink first, RecordSink second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue)
+                throws IOException {
+            first.accept(cycleTime, drillIdx, typeIdx, sensorIdx, readingValue);
+            second.accept(cycleTime, drillIdx, typeIdx, sensorIdx, readingValue);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                first.close();
+            }
+            finally {
+                second.close();
+            }
+        }
+    }
+
+    @BeforeAll
+    public static void generateWorkload() throws Exception {
+        csvFile = tempDir.resolve("workload.csv");
+        binFile = tempDir.resolve("workload.bin");
+
+        List<WorkloadShard> shards = WorkloadGen.createWorkloadShards(SHARD_NUM,
+                DRILL_NUM, SENSOR_TYPES, SENSOR_NUM_PER_TYPE, WORKLOAD_FREQ_SEC, START_TIME, END_TIME,
+                (shardIdx, shardNum) -> new TeeRecordSink(
+                        new FileRecordSink(WorkloadGen.getShardOutputFile(csvFile.toString(), shardIdx, shardNum),
+                                DRILL_NUM, SENSOR_TYPES, SENSOR_NUM_PER_TYPE),
+                        new BinaryRecordSink(WorkloadGen.getShardOutputFile(binFile.toString(), shardIdx, shardNum),
+                                DRILL_NUM, SENSOR_TYPES, SENSOR_NUM_PER_TYPE)));
+        assertEquals(SHARD_NUM, shards.size());
+
+        for (WorkloadShard shard : shards) {
+            long shardRecordCnt = shard.call();
+            // More than one block per shard, so the merged index has several blocks of every part
+            assertTrue(shardRecordCnt > BinaryRecordSink.BLOCK_RECORD_NUM);
+            generatedRecordCnt += shardRecordCnt;
+        }
+
+        WorkloadGen.mergeShardOutputs(shards, csvFile.toString());
+        WorkloadGen.mergeBinaryShardOutputs(shards, binFile.toString());
+        for (int shardIdx = 0; shardIdx < SHARD_NUM; shardIdx++) {
+            File partFile = WorkloadGen.getShardOutputFile(binFile.toString(), shardIdx, SHARD_NUM);
+            assertFalse(partFile.exists(), "Part file not removed: " + partFile);
+        }
+    }
+
+    // Every line read (as text), with its line number
+    private static List<String> readLines(Path filePath, long startTime, long endTime) throws IOException {
+        List<String> lines = new ArrayList<>();
+        WorkloadCsvLine line = new WorkloadCsvLine();
+        byte[] lineBytes = new byte[256];
+
+        try (WorkloadReader reader = WorkloadReader.open(filePath, startTime, endTime)) {
+            while (reader.readLine(line)) {
+                int len = line.copyLine(lineBytes, 0);
+                lines.add(line.getLineNum() + ": " + new String(lineBytes, 0, len, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    private static void assertSameLines(long startTime, long endTime, long expectedLineCnt) throws IOException {
+        List<String> csvLines = readLines(csvFile, startTime, endTime);
+        List<String> binLines = readLines(binFile, startTime, endTime);
+
+        if (expectedLineCnt >= 0) {
+            assertEquals(expectedLineCnt, csvLines.size());
+        }
+        assertEquals(csvLines.size(), binLines.size());
+        for (int i = 0; i < csvLines.size(); i++) {
+            assertEquals(csvLines.get(i), binLines.get(i), "Line " + i + " differs");
+        }
+    }
+
+    @Test
+    public void restoresEveryLine() throws IOException {
+        assertSameLines(Long.MIN_VALUE, Long.MAX_VALUE, generatedRecordCnt);
+    }
+
+    @Test
+    public void restoresLinesOfTimeRange() throws IOException {
+        long shardLen = (END_TIME - START_TIME) / SHARD_NUM;
+
+        // Within the first shard, across the shard boundaries, within the last shard
+        assertSameLines(START_TIME + 3600, START_TIME + 7200, -1);
+        assertSameLines(START_TIME + shardLen - 3600, START_TIME + 2 * shardLen + 3600, -1);
+        assertSameLines(END_TIME - 600, END_TIME, -1);
+        // A single cycle, a time between two cycles and a range outside the workload
+        assertSameLines(START_TIME + 50 * WORKLOAD_FREQ_SEC, START_TIME + 50 * WORKLOAD_FREQ_SEC, -1);
+        assertSameLines(START_TIME + 2, START_TIME + 3, 0);
+        assertSameLines(END_TIME + 1, Long.MAX_VALUE, 0);
+    }
+
+    @Test
+    public void seeksToTimeRange() throws IOException {
+        long startTime = START_TIME + 43200;
+        long endTime = START_TIME + 43200 + 3600;
+
+        List<String> allLines = readLines(binFile, Long.MIN_VALUE, Long.MAX_VALUE);
+        List<String> expectedLines = new ArrayList<>();
+        for (String line : allLines) {
+            // "<line number>: DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33"
+            String readingTime = line.split(",")[4];
+            long time = LocalDateTime.parse(readingTime).toEpochSecond(ZoneOffset.UTC);
+            if ( (time >= startTime) && (time <= endTime) ) {
+                expectedLines.add(line);
+            }
+        }
+
+        assertTrue(expectedLines.size() > 0);
+        assertEquals(expectedLines, readLines(binFile, startTime, endTime));
+        assertEquals(expectedLines, readLines(csvFile, startTime, endTime));
+    }
+}
@@ -0,0 +1,10 @@
+#! /bin/bash
+
+pulsar-admin functions create \
+  --name DrillAggregate \
+  --jar <path/to/SensorWarningFilter-1.0-SNAPSHOT-all.jar> \
+  --classname com.example.DrillAggregateFunc \
+  --auto-ack true \
+  --inputs persistent://public/default/raw_sensor_data \
+  --output persistent://public/default/drill_aggregate_data \
+  --log-topic persistent://public/default/drill_aggregate_log
\ No newline at end of file
@@ -0,0 +1,10 @@
+#! /bin/bash
+
+pulsar-admin functions create \
+  --name SensorRollup \
+  --jar <path/to/SensorWarningFilter-1.0-SNAPSHOT-all.jar> \
+  --classname com.example.SensorRollupFunc \
+  --auto-ack true \
+  --inputs persistent://public/default/raw_sensor_data \
+  --output persistent://public/default/sensor_rollup_data \
+  --log-topic persistent://public/default/sensor_rollup_log
\ No newline at end of file
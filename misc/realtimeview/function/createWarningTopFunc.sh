@@ -0,0 +1,10 @@
+#! /bin/bash
+
+pulsar-admin functions create \
+  --name DrillWarningTop \
+  --jar <path/to/SensorWarningFilter-1.0-SNAPSHOT-all.jar> \
+  --classname com.example.DrillWarningTopFunc \
+  --auto-ack true \
+  --inputs persistent://public/default/warning_sensor_data \
+  --output persistent://public/default/drill_warning_top \
+  --log-topic persistent://public/default/drill_warning_top_log
\ No newline at end of file
@@ -0,0 +1,510 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericRecordBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ *  Common part of the sensor warning filter functions, independent of the input message format:
+ *  - the (hot reloadable) warning rules, see WarnRuleSet, or alternatively ("warn_mode" = "anomaly") the
+ *    per-sensor anomaly detection, see SensorAnomalyDetector
+ *  - the output (warning sensor data) Avro schema, record building and micro-batched publishing
+ *  - the sampled per-message CPU time metric
+ *  - the event-time "current day" of the warnings and the routing of late warnings
+ *  - the suppression of duplicate warnings, see DuplicateReadingFilter
+ *
+ *  Which day is the current one is decided by the reading times, not by the wall clock: the watermark is
+ *  the latest reading time seen so far minus the allowed lateness, and the current day is the (UTC) day of
+ *  the watermark. A warning of an earlier day is late; it is published to the late topic (if configured)
+ *  instead of the output topic. So readings that arrive slightly after midnight still count for the day
+ *  they were taken on, no matter how far the function's clock is off. Only a reading time more than the
+ *  maximum future skew ahead of the function's clock does not move the watermark, so a single reading
+ *  with a wrong (e.g. far-future) time cannot turn all following warnings into late ones.
+ */
+public abstract class AbstractSensorWarnFunc<I> implements Function<I, Void> {
+    private static final String avroSchemDef = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"IotSensor\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingDate\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingTime\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    // The output schema never changes, so it is parsed only once and shared by all function instances
+    private static final SchemaInfo OUTPUT_SCHEMA_INFO = SchemaInfo.builder()
+            .schema(avroSchemDef.getBytes(StandardCharsets.UTF_8))
+            .type(SchemaType.AVRO)
+            .properties(new HashMap<>())
+            .name("NBAvro")
+            .build();
+    protected static final GenericAvroSchema OUTPUT_PULSAR_SCHEMA = new GenericAvroSchema(OUTPUT_SCHEMA_INFO);
+
+    // Output schema fields, resolved once by name so the record builder can set them by position
+    private static final Field DRILL_ID_FIELD = getOutputField("DrillID");
+    private static final Field SENSOR_ID_FIELD = getOutputField("SensorID");
+    private static final Field READING_DATE_FIELD = getOutputField("ReadingDate");
+    private static final Field READING_TIME_FIELD = getOutputField("ReadingTime");
+    private static final Field SENSOR_TYPE_FIELD = getOutputField("SensorType");
+    private static final Field READING_VALUE_FIELD = getOutputField("ReadingValue");
+
+    // User config key: record the per-message CPU time metric for every N-th message (0 to disable)
+    public static final String CPU_TIME_SAMPLE_INTERVAL_KEY = "cpu_time_sample_interval";
+    public static final int DEFAULT_CPU_TIME_SAMPLE_INTERVAL = 100;
+    public static final String CPU_TIME_METRIC_NAME = "process_cpu_time_ns";
+
+    // User config key: how warnings are detected, by the warning rules or as anomalies of each sensor
+    public static final String WARN_MODE_KEY = "warn_mode";
+    public static final String WARN_MODE_RULES = "rules";
+    public static final String WARN_MODE_ANOMALY = "anomaly";
+
+    // User config keys: anomaly detection, see SensorAnomalyDetector (at most "max_tracked_sensors" sensors)
+    public static final String ANOMALY_Z_SCORE_KEY = "anomaly_z_score";
+    public static final float DEFAULT_ANOMALY_Z_SCORE = 4f;
+    public static final String ANOMALY_ALPHA_KEY = "anomaly_alpha";
+    public static final float DEFAULT_ANOMALY_ALPHA = 0.05f;
+    public static final String ANOMALY_MIN_READINGS_KEY = "anomaly_min_readings";
+    public static final int DEFAULT_ANOMALY_MIN_READINGS = 30;
+    public static final String ANOMALY_MIN_STDDEV_KEY = "anomaly_min_stddev";
+    public static final float DEFAULT_ANOMALY_MIN_STDDEV = 1f;
+
+    // User config key: warning rule specification, see WarnRuleSet (default: WarnRuleSet.DEFAULT_RULES)
+    public static final String WARN_RULES_KEY = "warn_rules";
+    // User config key: function state key of a warning rule specification that overrides "warn_rules".
+    //   The rules can then be changed at runtime with "pulsar-admin functions putstate".
+    public static final String WARN_RULES_STATE_KEY = "warn_rules_state_key";
+    // User config key: how often (in seconds) the warning rules are reloaded
+    public static final String WARN_RULES_RELOAD_INTERVAL_KEY = "warn_rules_reload_interval_sec";
+    public static final int DEFAULT_WARN_RULES_RELOAD_INTERVAL = 30;
+    // User config key: maximum number of sensors whose previous reading is kept for rate-of-change rules
+    public static final String MAX_TRACKED_SENSORS_KEY = "max_tracked_sensors";
+    public static final int DEFAULT_MAX_TRACKED_SENSORS = 100000;
+
+    // User config keys: output micro-batching, see WarningPublisher
+    public static final String OUTPUT_BATCH_MAX_RECORDS_KEY = "output_batch_max_records";
+    public static final int DEFAULT_OUTPUT_BATCH_MAX_RECORDS = 100;
+    public static final String OUTPUT_BATCH_MAX_DELAY_KEY = "output_batch_max_delay_ms";
+    public static final int DEFAULT_OUTPUT_BATCH_MAX_DELAY = 50;
+    public static final String OUTPUT_MAX_IN_FLIGHT_KEY = "output_max_in_flight";
+    public static final int DEFAULT_OUTPUT_MAX_IN_FLIGHT = 1000;
+
+    // User config key: how long (in seconds) after the latest reading time seen so far a reading of the
+    //   previous day is still published as a warning of that day
+    public static final String ALLOWED_LATENESS_KEY = "allowed_lateness_sec";
+    public static final int DEFAULT_ALLOWED_LATENESS = 300;
+    // User config key: topic the late warnings are published to (default: late warnings are dropped)
+    public static final String LATE_TOPIC_KEY = "late_topic";
+    public static final String LATE_WARNINGS_METRIC_NAME = "late_warnings";
+    public static final String LATE_PUBLISH_METRIC_NAME_PREFIX = "late_publish";
+    // User config key: how far (in seconds) a reading time may be ahead of the function's clock and still
+    //   move the watermark
+    public static final String MAX_FUTURE_SKEW_KEY = "max_future_skew_sec";
+    public static final int DEFAULT_MAX_FUTURE_SKEW = 3600;
+    public static final String FUTURE_READINGS_METRIC_NAME = "future_readings";
+
+    // User config keys: duplicate warning suppression, see DuplicateReadingFilter. 0 MB disables it.
+    public static final String DEDUP_MAX_MEMORY_KEY = "dedup_max_memory_mb";
+    public static final int DEFAULT_DEDUP_MAX_MEMORY = 16;
+    public static final String DEDUP_FALSE_POSITIVE_PROBABILITY_KEY = "dedup_fpp";
+    public static final double DEFAULT_DEDUP_FALSE_POSITIVE_PROBABILITY = 0.0001;
+    public static final String DUPLICATE_WARNINGS_METRIC_NAME = "duplicate_warnings";
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    // Per function instance reusable output record builder, created on the first warning message.
+    // Pulsar calls "process" from one single thread per function instance, so it is not shared across threads.
+    private GenericRecordBuilder recordBuilder;
+    private FunctionTimer timer;
+    private WarningPublisher warningPublisher;
+    private WarningPublisher lateWarningPublisher;
+
+    private int cpuTimeSampleInterval = -1;
+    private long processedMsgCnt = 0;
+
+    private String warnMode;
+    private SensorAnomalyDetector anomalyDetector;
+
+    private WarnRuleSet warnRuleSet;
+    private long warnRulesReloadIntervalMs;
+    private long nextWarnRulesReloadTimeMs = 0;
+
+    // Previous reading (value and Unix time) per sensor slot, only needed by rate-of-change rules
+    private SensorKeyIndex sensorIndex;
+    private float[] prevReadingValues;
+    private long[] prevReadingTimes;
+
+    // Event time: the latest reading time seen so far and the (cached) current day of the watermark
+    private long allowedLatenessSec = -1;
+    private String lateTopic;
+    private long maxFutureSkewMs;
+    private long maxReadingTimeUnix = Long.MIN_VALUE;
+    // Text of the latest reading time, so the other readings' times are compared without being parsed
+    private final char[] maxReadingTimeText = new char[SensorReading.READING_TIME_TEXT_LEN];
+    private int maxReadingTimeTextLen = 0;
+    private long currentDayStartUnix = Long.MIN_VALUE;
+    private long nextDayStartUnix = Long.MIN_VALUE;
+
+    private boolean dedupConfigured = false;
+    private DuplicateReadingFilter duplicateFilter;
+    // Reading day whose duplicate filter was reported as over capacity
+    private long overCapacityReportedDay = Long.MIN_VALUE;
+
+    private static Field getOutputField(String fieldName) {
+        for (Field field : OUTPUT_PULSAR_SCHEMA.getFields()) {
+            if (field.getName().equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new RuntimeException("Field \"" + fieldName + "\" is not defined in the output Avro schema!");
+    }
+
+    @Override
+    public Void process(I input, Context context) throws Exception {
+        if (cpuTimeSampleInterval < 0) {
+            cpuTimeSampleInterval = Integer.parseInt(context.getUserConfigValueOrDefault(
+                    CPU_TIME_SAMPLE_INTERVAL_KEY, DEFAULT_CPU_TIME_SAMPLE_INTERVAL).toString());
+            if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+                cpuTimeSampleInterval = 0;
+            }
+        }
+
+        // Sample the CPU time spent on this message
+        if ( (cpuTimeSampleInterval > 0) && (processedMsgCnt++ % cpuTimeSampleInterval == 0) ) {
+            long cpuTimeStart = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            processMessage(input, context);
+            context.recordMetric(CPU_TIME_METRIC_NAME, THREAD_MX_BEAN.getCurrentThreadCpuTime() - cpuTimeStart);
+        }
+        else {
+            processMessage(input, context);
+        }
+
+        return null;
+    }
+
+    // Process one incoming sensor data message
+    protected abstract void processMessage(I input, Context context) throws Exception;
+
+    // Read the warning mode on the first message
+    private void loadWarnMode(Context context) {
+        warnMode = context.getUserConfigValueOrDefault(WARN_MODE_KEY, WARN_MODE_RULES).toString().trim().toLowerCase();
+
+        if (WARN_MODE_ANOMALY.equals(warnMode)) {
+            anomalyDetector = new SensorAnomalyDetector(
+                    Float.parseFloat(context.getUserConfigValueOrDefault(
+                            ANOMALY_ALPHA_KEY, DEFAULT_ANOMALY_ALPHA).toString()),
+                    Float.parseFloat(context.getUserConfigValueOrDefault(
+                            ANOMALY_Z_SCORE_KEY, DEFAULT_ANOMALY_Z_SCORE).toString()),
+                    Integer.parseInt(context.getUserConfigValueOrDefault(
+                            ANOMALY_MIN_READINGS_KEY, DEFAULT_ANOMALY_MIN_READINGS).toString()),
+                    Float.parseFloat(context.getUserConfigValueOrDefault(
+                            ANOMALY_MIN_STDDEV_KEY, DEFAULT_ANOMALY_MIN_STDDEV).toString()),
+                    Integer.parseInt(context.getUserConfigValueOrDefault(
+                            MAX_TRACKED_SENSORS_KEY, DEFAULT_MAX_TRACKED_SENSORS).toString()));
+        }
+        else if (!WARN_MODE_RULES.equals(warnMode)) {
+            throw new IllegalArgumentException("Invalid \"" + WARN_MODE_KEY + "\" value: " + warnMode +
+                    " (expecting \"" + WARN_MODE_RULES + "\" or \"" + WARN_MODE_ANOMALY + "\")");
+        }
+    }
+
+    // Load the warning rules on the first message and reload them when the reload interval is over
+    private void reloadWarnRulesIfDue(Context context) {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs < nextWarnRulesReloadTimeMs) {
+            return;
+        }
+
+        if (warnRuleSet == null) {
+            warnRulesReloadIntervalMs = 1000L * Integer.parseInt(context.getUserConfigValueOrDefault(
+                    WARN_RULES_RELOAD_INTERVAL_KEY, DEFAULT_WARN_RULES_RELOAD_INTERVAL).toString());
+        }
+        nextWarnRulesReloadTimeMs = currentTimeMs + warnRulesReloadIntervalMs;
+
+        String spec = context.getUserConfigValueOrDefault(WARN_RULES_KEY, WarnRuleSet.DEFAULT_RULES).toString();
+
+        Object stateKey = context.getUserConfigValueOrDefault(WARN_RULES_STATE_KEY, null);
+        if (stateKey != null) {
+            try {
+                ByteBuffer stateValue = context.getState(stateKey.toString());
+                if ( (stateValue != null) && stateValue.hasRemaining() ) {
+                    spec = StandardCharsets.UTF_8.decode(stateValue.duplicate()).toString();
+                }
+            }
+            catch (Exception e) {
+                context.getLogger().warn("Failed to read the warning rules from function state \"{}\": {}",
+                        stateKey, e.getMessage());
+            }
+        }
+
+        if ( (warnRuleSet != null) && warnRuleSet.getSpec().equals(spec) ) {
+            return;
+        }
+
+        try {
+            warnRuleSet = WarnRuleSet.parse(spec);
+            context.getLogger().info("Loaded warning rules: {}", spec);
+        }
+        catch (IllegalArgumentException iae) {
+            // Invalid rules are fatal on start-up, but must not break a running function
+            if (warnRuleSet == null) {
+                throw iae;
+            }
+            context.getLogger().error("Invalid warning rules, keep using the current ones: {}", iae.getMessage());
+        }
+
+        if (warnRuleSet.hasRateLimit() && (sensorIndex == null)) {
+            int maxTrackedSensors = Integer.parseInt(context.getUserConfigValueOrDefault(
+                    MAX_TRACKED_SENSORS_KEY, DEFAULT_MAX_TRACKED_SENSORS).toString());
+            sensorIndex = new SensorKeyIndex(maxTrackedSensors);
+            prevReadingValues = new float[maxTrackedSensors];
+            prevReadingTimes = new long[maxTrackedSensors];
+        }
+    }
+
+    // Whether the reading is a warning per the rule of its sensor type (and drill)
+    private boolean isWarningReading(SensorReading reading) {
+        WarnRule rule = warnRuleSet.getRule(warnRuleSet.getSensorTypeIdx(reading), reading);
+        if (rule == null) {
+            return false;
+        }
+
+        float readValue = reading.getReadingValue();
+        boolean warning = rule.isOutOfRange(readValue);
+
+        if (rule.hasRateLimit()) {
+            long readingTimeUnix = getValidReadingTime(reading);
+
+            int prevSensorNum = sensorIndex.size();
+            int slot = sensorIndex.getOrAddSlot(reading.getSensorKey());
+            // Not tracked when the sensor index is full
+            if (slot >= 0) {
+                boolean newSensor = (sensorIndex.size() > prevSensorNum);
+                if (!newSensor) {
+                    warning |= rule.isRateExceeded(
+                            prevReadingValues[slot], prevReadingTimes[slot], readValue, readingTimeUnix);
+                }
+
+                if ( newSensor || (readingTimeUnix >= prevReadingTimes[slot]) ) {
+                    prevReadingValues[slot] = readValue;
+                    prevReadingTimes[slot] = readingTimeUnix;
+                }
+            }
+        }
+
+        return warning;
+    }
+
+    private static long getValidReadingTime(SensorReading reading) {
+        long readingTimeUnix = reading.getReadingTimeUnix();
+        if (readingTimeUnix == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Invalid \"ReadingTime\" value: " + reading.getReadingTime());
+        }
+        return readingTimeUnix;
+    }
+
+    // Read the event time settings on the first message
+    private void loadEventTimeConfig(Context context) {
+        allowedLatenessSec = Long.parseLong(context.getUserConfigValueOrDefault(
+                ALLOWED_LATENESS_KEY, DEFAULT_ALLOWED_LATENESS).toString());
+        if (allowedLatenessSec < 0) {
+            throw new IllegalArgumentException("Invalid \"" + ALLOWED_LATENESS_KEY + "\" value: " +
+                    allowedLatenessSec);
+        }
+        long maxFutureSkewSec = Long.parseLong(context.getUserConfigValueOrDefault(
+                MAX_FUTURE_SKEW_KEY, DEFAULT_MAX_FUTURE_SKEW).toString());
+        if (maxFutureSkewSec < 0) {
+            throw new IllegalArgumentException("Invalid \"" + MAX_FUTURE_SKEW_KEY + "\" value: " +
+                    maxFutureSkewSec);
+        }
+        maxFutureSkewMs = 1000L * maxFutureSkewSec;
+        Object lateTopicValue = context.getUserConfigValueOrDefault(LATE_TOPIC_KEY, null);
+        if ( (lateTopicValue != null) && !lateTopicValue.toString().trim().isEmpty() ) {
+            lateTopic = lateTopicValue.toString().trim();
+        }
+    }
+
+    // Advance the watermark with the reading time and move on to the watermark's day when it rolls over
+    private void advanceWatermark(long readingTimeUnix, Context context) {
+        if (readingTimeUnix <= maxReadingTimeUnix) {
+            return;
+        }
+        maxReadingTimeUnix = readingTimeUnix;
+
+        long watermarkUnix = maxReadingTimeUnix - allowedLatenessSec;
+        if (watermarkUnix >= nextDayStartUnix) {
+            currentDayStartUnix = Math.floorDiv(watermarkUnix, SensorFuncUtil.SECONDS_PER_DAY)
+                    * SensorFuncUtil.SECONDS_PER_DAY;
+            nextDayStartUnix = currentDayStartUnix + SensorFuncUtil.SECONDS_PER_DAY;
+            context.getLogger().info("Current warning day starts at {} (Unix time), watermark {}",
+                    currentDayStartUnix, watermarkUnix);
+        }
+    }
+
+    // Whether the warning reading was already seen (e.g. replayed or sent again by a producer retry)
+    private boolean isDuplicateWarning(SensorReading reading, long readingTimeUnix, Context context) {
+        if (!dedupConfigured) {
+            dedupConfigured = true;
+            long maxMemoryMb = Long.parseLong(context.getUserConfigValueOrDefault(
+                    DEDUP_MAX_MEMORY_KEY, DEFAULT_DEDUP_MAX_MEMORY).toString());
+            if (maxMemoryMb > 0) {
+                duplicateFilter = new DuplicateReadingFilter(maxMemoryMb * 1024 * 1024,
+                        Double.parseDouble(context.getUserConfigValueOrDefault(
+                                DEDUP_FALSE_POSITIVE_PROBABILITY_KEY, DEFAULT_DEDUP_FALSE_POSITIVE_PROBABILITY).toString()));
+                context.getLogger().info("Duplicate warning filter: {} warnings per day, {} hash functions",
+                        duplicateFilter.getCapacity(), duplicateFilter.getHashNum());
+            }
+        }
+
+        if (duplicateFilter == null) {
+            return false;
+        }
+        if (duplicateFilter.isDuplicate(reading.getSensorKey(), readingTimeUnix)) {
+            return true;
+        }
+
+        long readingDay = Math.floorDiv(readingTimeUnix, SensorFuncUtil.SECONDS_PER_DAY);
+        if ( (readingDay != overCapacityReportedDay) &&
+             (duplicateFilter.getReadingCnt(readingDay) > duplicateFilter.getCapacity()) ) {
+            overCapacityReportedDay = readingDay;
+            context.getLogger().warn("More than {} warnings of day {} (epoch day), the duplicate warning filter " +
+                    "now suppresses more non-duplicates; consider raising \"{}\"",
+                    duplicateFilter.getCapacity(), readingDay, DEDUP_MAX_MEMORY_KEY);
+        }
+        return false;
+    }
+
+    // Filter one parsed sensor reading and publish it if it is a warning; warnings of a day before the
+    //   current (event-time) day are late and go to the late topic instead
+    protected void processReading(SensorReading reading, Context context) throws Exception {
+        if (warnMode == null) {
+            loadWarnMode(context);
+        }
+        if (anomalyDetector == null) {
+            reloadWarnRulesIfDue(context);
+        }
+
+        if (allowedLatenessSec < 0) {
+            loadEventTimeConfig(context);
+        }
+
+        // Every valid reading moves the watermark, whether it is a warning or not. Only a reading time
+        //   later than the latest one (compared as text) is parsed. A reading time too far ahead of the
+        //   function's clock is ignored (but the reading is still filtered).
+        if (reading.isReadingTimeAfter(maxReadingTimeText, maxReadingTimeTextLen)) {
+            long readingTimeUnix = reading.getReadingTimeUnix();
+            if (readingTimeUnix != Long.MIN_VALUE) {
+                if (1000L * readingTimeUnix - System.currentTimeMillis() > maxFutureSkewMs) {
+                    context.recordMetric(FUTURE_READINGS_METRIC_NAME, 1);
+                }
+                else {
+                    maxReadingTimeTextLen = reading.copyReadingTime(maxReadingTimeText);
+                    advanceWatermark(readingTimeUnix, context);
+                }
+            }
+        }
+
+        // Check the reading value against the warning rules (or the sensor's statistics) first; most
+        //   readings are dropped here without creating any object
+        boolean warning = (anomalyDetector != null)
+                ? anomalyDetector.isAnomaly(reading.getSensorKey(), reading.getReadingValue())
+                : isWarningReading(reading);
+        if (!warning) {
+            return;
+        }
+
+        long warningTimeUnix = getValidReadingTime(reading);
+        if (isDuplicateWarning(reading, warningTimeUnix, context)) {
+            context.recordMetric(DUPLICATE_WARNINGS_METRIC_NAME, 1);
+            return;
+        }
+
+        boolean late = (warningTimeUnix < currentDayStartUnix);
+        if (late) {
+            context.recordMetric(LATE_WARNINGS_METRIC_NAME, 1);
+            if (lateTopic == null) {
+                return;
+            }
+        }
+
+        publishWarning(context,
+                reading.getDrillId(),
+                reading.getSensorId(),
+                reading.getReadingDate(),
+                reading.getReadingTime(),
+                reading.getSensorType(),
+                reading.getExactReadingValue(),
+                late);
+    }
+
+    // Publish one warning sensor data record to the output topic, or to the late topic if it is late
+    protected void publishWarning(Context context,
+                                  String drillIdStr,
+                                  String sensorIdStr,
+                                  String readingDateStr,
+                                  String readingTimeStr,
+                                  String sensorType,
+                                  float readValue,
+                                  boolean late) throws Exception {
+        // Set the output fields straight onto the (reused) Pulsar Avro record builder
+        if (recordBuilder == null) {
+            recordBuilder = OUTPUT_PULSAR_SCHEMA.newRecordBuilder();
+        }
+        GenericRecord pulsarAvroRecord = recordBuilder
+                .set(DRILL_ID_FIELD, drillIdStr)
+                .set(SENSOR_ID_FIELD, sensorIdStr)
+                .set(READING_DATE_FIELD, readingDateStr)
+                .set(READING_TIME_FIELD, readingTimeStr)
+                .set(SENSOR_TYPE_FIELD, sensorType)
+                .set(READING_VALUE_FIELD, readValue)
+                .build();
+
+        if (late) {
+            if (lateWarningPublisher == null) {
+                lateWarningPublisher = createWarningPublisher(context, lateTopic, LATE_PUBLISH_METRIC_NAME_PREFIX);
+            }
+            lateWarningPublisher.add(context, pulsarAvroRecord);
+        }
+        else {
+            if (warningPublisher == null) {
+                warningPublisher = createWarningPublisher(context, null, WarningPublisher.DEFAULT_METRIC_NAME_PREFIX);
+            }
+            warningPublisher.add(context, pulsarAvroRecord);
+        }
+    }
+
+    private WarningPublisher createWarningPublisher(Context context, String topic, String metricNamePrefix) {
+        if (timer == null) {
+            timer = new FunctionTimer("warning-publisher-timer-" + context.getFunctionName());
+        }
+        return new WarningPublisher(OUTPUT_PULSAR_SCHEMA, timer, topic, metricNamePrefix,
+                Integer.parseInt(context.getUserConfigValueOrDefault(
+                        OUTPUT_BATCH_MAX_RECORDS_KEY, DEFAULT_OUTPUT_BATCH_MAX_RECORDS).toString()),
+                Long.parseLong(context.getUserConfigValueOrDefault(
+                        OUTPUT_BATCH_MAX_DELAY_KEY, DEFAULT_OUTPUT_BATCH_MAX_DELAY).toString()),
+                Integer.parseInt(context.getUserConfigValueOrDefault(
+                        OUTPUT_MAX_IN_FLIGHT_KEY, DEFAULT_OUTPUT_MAX_IN_FLIGHT).toString()));
+    }
+
+    // Stop the publishers' timer (Pulsar 2.7 never calls this; the timer then ends with the instance)
+    public void close() {
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  Key/value store that persists the running sensor data aggregates of DrillAggregateFunc, so an
+ *  aggregate survives function restarts and can be evicted from memory without losing it.
+ *
+ *  See FunctionAggregateStateStore (Pulsar function state) and InMemoryAggregateStateStore.
+ */
+public interface AggregateStateStore {
+
+    // Stored value of the key; null if the key is not stored
+    ByteBuffer get(String key);
+
+    void put(String key, ByteBuffer value);
+}
@@ -0,0 +1,290 @@
+package com.example;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericRecordBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Speed layer counterpart of the daily batch job: incrementally maintains the running count/sum/min/max
+ *  of the reading values per (drill id, reading date, sensor type) for raw sensor data published as
+ *  JSON strings, and publishes the aggregates that changed at the end of every tumbling (processing time) window.
+ *
+ *  The aggregates are persisted in an AggregateStateStore (the Pulsar function state by default) when they
+ *  are published, so only a bounded number of them ("max_aggregates") has to be kept in memory: aggregates
+ *  of past reading dates are evicted when the in-memory table gets full and reloaded when needed again. If
+ *  the table fills up within a window, the changed aggregates are persisted (and published) right away to
+ *  make room, so no reading is lost.
+ */
+public class DrillAggregateFunc implements Function<String, Void> {
+    private static final String avroSchemDef = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"DrillAggregate\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingDate\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingCount\", \"type\": \"long\"},\n" +
+            "    {\"name\": \"SumValue\", \"type\": \"double\"},\n" +
+            "    {\"name\": \"MinValue\", \"type\": \"float\"},\n" +
+            "    {\"name\": \"MaxValue\", \"type\": \"float\"},\n" +
+            "    {\"name\": \"AvgValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    private static final SchemaInfo OUTPUT_SCHEMA_INFO = SchemaInfo.builder()
+            .schema(avroSchemDef.getBytes(StandardCharsets.UTF_8))
+            .type(SchemaType.AVRO)
+            .properties(new HashMap<>())
+            .name("NBAvro")
+            .build();
+    private static final GenericAvroSchema OUTPUT_PULSAR_SCHEMA = new GenericAvroSchema(OUTPUT_SCHEMA_INFO);
+
+    private static final Field DRILL_ID_FIELD = getOutputField("DrillID");
+    private static final Field READING_DATE_FIELD = getOutputField("ReadingDate");
+    private static final Field SENSOR_TYPE_FIELD = getOutputField("SensorType");
+    private static final Field READING_COUNT_FIELD = getOutputField("ReadingCount");
+    private static final Field SUM_VALUE_FIELD = getOutputField("SumValue");
+    private static final Field MIN_VALUE_FIELD = getOutputField("MinValue");
+    private static final Field MAX_VALUE_FIELD = getOutputField("MaxValue");
+    private static final Field AVG_VALUE_FIELD = getOutputField("AvgValue");
+
+    // User config key: length of the tumbling window (seconds) after which the changed aggregates are published
+    public static final String WINDOW_SEC_KEY = "aggregate_window_sec";
+    public static final int DEFAULT_WINDOW_SEC = 10;
+    // User config key: maximum number of aggregates kept in memory
+    public static final String MAX_AGGREGATES_KEY = "max_aggregates";
+    public static final int DEFAULT_MAX_AGGREGATES = 100000;
+    // User config key: where the aggregates are persisted, "function" (Pulsar function state) or "memory"
+    public static final String STATE_STORE_KEY = "aggregate_state_store";
+    public static final String STATE_STORE_FUNCTION = "function";
+    public static final String STATE_STORE_MEMORY = "memory";
+
+    public static final String EMITTED_METRIC_NAME = "aggregate_emitted";
+    public static final String EVICTED_METRIC_NAME = "aggregate_evicted";
+    public static final String DROPPED_READINGS_METRIC_NAME = "aggregate_dropped_readings";
+    public static final String PUBLISH_FAILED_METRIC_NAME = "aggregate_publish_failed";
+
+    // The in-memory table is compacted at the end of a window once it is this full, and right away when it is full
+    private static final float EVICTION_THRESHOLD = 0.9f;
+
+    // Reused for every message of this function instance
+    private final SensorReading reading = new SensorReading();
+    private final ByteBuffer stateBuffer = ByteBuffer.allocate(DrillAggregateTable.STATE_VALUE_SIZE);
+
+    private Context context;
+    private FunctionTimer timer;
+    private DrillAggregateTable aggregateTable;
+    private AggregateStateStore stateStore;
+    private GenericRecordBuilder recordBuilder;
+
+    private long windowMs;
+    private long windowEndMs;
+    // Most recent reading date (yyyy-MM-dd) seen so far
+    private String latestReadingDate = "";
+    private long emittedCnt = 0;
+    private long evictedCnt = 0;
+    private long droppedReadingCnt = 0;
+    private final AtomicLong publishFailedCnt = new AtomicLong();
+    private long reportedPublishFailedCnt = 0;
+
+    private static Field getOutputField(String fieldName) {
+        for (Field field : OUTPUT_PULSAR_SCHEMA.getFields()) {
+            if (field.getName().equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new RuntimeException("Field \"" + fieldName + "\" is not defined in the output Avro schema!");
+    }
+
+    // Synchronized with the window timer, which closes the window when no more messages arrive
+    @Override
+    public synchronized Void process(String input, Context context) throws Exception {
+        if (aggregateTable == null) {
+            initialize(context);
+        }
+
+        if (!StringUtils.isBlank(input)) {
+            if (!SensorReadingJsonScanner.scan(input, reading)) {
+                throw new IllegalArgumentException("Malformed sensor data message: " + input);
+            }
+            if (reading.getReadingTimeUnix() == Long.MIN_VALUE) {
+                throw new IllegalArgumentException("Invalid \"ReadingTime\" value: " + reading.getReadingTime());
+            }
+
+            int slot = aggregateTable.getSlot(reading);
+            if (slot < 0) {
+                slot = addAggregate();
+                if (slot < 0) {
+                    // The table is full within the window: make room right away instead of dropping the reading
+                    persistAndEvict();
+                    slot = addAggregate();
+                }
+            }
+
+            if (slot >= 0) {
+                aggregateTable.update(slot, reading.getReadingValue());
+            }
+            else {
+                droppedReadingCnt++;
+            }
+        }
+
+        closeWindowIfDue();
+        return null;
+    }
+
+    private void initialize(Context context) {
+        this.context = context;
+
+        String storeType = context.getUserConfigValueOrDefault(STATE_STORE_KEY, STATE_STORE_FUNCTION).toString();
+        if (StringUtils.equalsIgnoreCase(storeType, STATE_STORE_FUNCTION)) {
+            stateStore = new FunctionAggregateStateStore(context);
+        }
+        else if (StringUtils.equalsIgnoreCase(storeType, STATE_STORE_MEMORY)) {
+            stateStore = new InMemoryAggregateStateStore();
+        }
+        else {
+            throw new IllegalArgumentException(String.format("Invalid \"%s\" value: %s (must be \"%s\" or \"%s\")",
+                    STATE_STORE_KEY, storeType, STATE_STORE_FUNCTION, STATE_STORE_MEMORY));
+        }
+
+        windowMs = 1000L * Integer.parseInt(context.getUserConfigValueOrDefault(
+                WINDOW_SEC_KEY, DEFAULT_WINDOW_SEC).toString());
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException(String.format("\"%s\" must be positive", WINDOW_SEC_KEY));
+        }
+        windowEndMs = nextWindowEndMs(System.currentTimeMillis());
+
+        aggregateTable = new DrillAggregateTable(Integer.parseInt(context.getUserConfigValueOrDefault(
+                MAX_AGGREGATES_KEY, DEFAULT_MAX_AGGREGATES).toString()));
+        recordBuilder = OUTPUT_PULSAR_SCHEMA.newRecordBuilder();
+
+        long timerPeriodMs = Math.min(windowMs, 1000L);
+        timer = new FunctionTimer("aggregate-window-timer-" + context.getFunctionName());
+        timer.scheduleWithFixedDelay(this, DrillAggregateFunc::closeWindowOnTimer, timerPeriodMs);
+    }
+
+    // Add the aggregate of the current reading to the table, restoring it from the state store if it was
+    //   persisted before; -1 if the table is full
+    private int addAggregate() {
+        int slot = aggregateTable.addSlot(reading);
+        if (slot >= 0) {
+            ByteBuffer state = stateStore.get(aggregateTable.getStateKey(slot));
+            if (state != null) {
+                aggregateTable.readState(slot, state);
+            }
+
+            String readingDate = aggregateTable.getReadingDate(slot);
+            if (readingDate.compareTo(latestReadingDate) > 0) {
+                latestReadingDate = readingDate;
+            }
+        }
+        return slot;
+    }
+
+    private long nextWindowEndMs(long currentTimeMs) {
+        return (currentTimeMs / windowMs + 1) * windowMs;
+    }
+
+    private synchronized void closeWindowOnTimer() {
+        try {
+            closeWindowIfDue();
+        }
+        catch (Exception e) {
+            context.getLogger().error("Failed to publish the sensor data aggregates: {}", e.getMessage());
+        }
+    }
+
+    private void closeWindowIfDue() {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs < windowEndMs) {
+            return;
+        }
+        windowEndMs = nextWindowEndMs(currentTimeMs);
+
+        persistAndEvict();
+
+        long publishFailed = publishFailedCnt.get();
+        context.recordMetric(EMITTED_METRIC_NAME, emittedCnt);
+        context.recordMetric(EVICTED_METRIC_NAME, evictedCnt);
+        context.recordMetric(DROPPED_READINGS_METRIC_NAME, droppedReadingCnt);
+        context.recordMetric(PUBLISH_FAILED_METRIC_NAME, publishFailed - reportedPublishFailedCnt);
+        emittedCnt = 0;
+        evictedCnt = 0;
+        droppedReadingCnt = 0;
+        reportedPublishFailedCnt = publishFailed;
+    }
+
+    // Persist and publish the aggregates that changed since the last call, then compact the table if it
+    //   is (nearly) full
+    private void persistAndEvict() {
+        int updatedCnt = aggregateTable.getUpdatedCnt();
+        for (int i = 0; i < updatedCnt; i++) {
+            int slot = aggregateTable.getUpdatedSlot(i);
+            stateStore.put(aggregateTable.getStateKey(slot), aggregateTable.writeState(slot, stateBuffer));
+            publishAggregate(slot);
+        }
+        aggregateTable.clearUpdated();
+        emittedCnt += updatedCnt;
+
+        // Keep the table memory-bounded; every aggregate is persisted at this point, so evicted ones
+        //   are simply reloaded from the state store when they are needed again
+        if (aggregateTable.size() >= EVICTION_THRESHOLD * aggregateTable.getMaxAggregateNum()) {
+            evictedCnt += aggregateTable.evictBefore(latestReadingDate);
+            if (aggregateTable.size() >= EVICTION_THRESHOLD * aggregateTable.getMaxAggregateNum()) {
+                evictedCnt += aggregateTable.size();
+                aggregateTable.clear();
+            }
+        }
+    }
+
+    private void publishAggregate(int slot) {
+        long count = aggregateTable.getCount(slot);
+        double sum = aggregateTable.getSum(slot);
+
+        GenericRecord pulsarAvroRecord = recordBuilder
+                .set(DRILL_ID_FIELD, aggregateTable.getDrillId(slot))
+                .set(READING_DATE_FIELD, aggregateTable.getReadingDate(slot))
+                .set(SENSOR_TYPE_FIELD, aggregateTable.getSensorType(slot))
+                .set(READING_COUNT_FIELD, count)
+                .set(SUM_VALUE_FIELD, sum)
+                .set(MIN_VALUE_FIELD, aggregateTable.getMinValue(slot))
+                .set(MAX_VALUE_FIELD, aggregateTable.getMaxValue(slot))
+                .set(AVG_VALUE_FIELD, (float) (sum / count))
+                .build();
+
+        try {
+            context.newOutputMessage(context.getOutputTopic(), OUTPUT_PULSAR_SCHEMA)
+                    .value(pulsarAvroRecord)
+                    .sendAsync()
+                    .whenComplete((messageId, throwable) -> {
+                        if (throwable != null) {
+                            publishFailedCnt.incrementAndGet();
+                        }
+                    });
+        }
+        catch (Exception e) {
+            publishFailedCnt.incrementAndGet();
+            context.getLogger().debug("Failed to publish sensor data aggregate: {}", e.getMessage());
+        }
+    }
+
+    // Stop the window timer (Pulsar 2.7 never calls this; the timer then ends with the instance)
+    public void close() {
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ *  Memory-bounded table of running (count, sum, min, max) aggregates per (drill id, reading date, sensor type).
+ *
+ *  The aggregates are kept in primitive arrays indexed by the slot number of the aggregate key
+ *  (see SensorReading.getAggregateKey() and SensorKeyIndex). Aggregates that changed since the last
+ *  "clearUpdated()" call are tracked, so only those have to be emitted and persisted.
+ *
+ *  NOT thread-safe.
+ */
+public class DrillAggregateTable {
+
+    // Serialized aggregate state value: count (long), sum (double), min (float), max (float)
+    public static final int STATE_VALUE_SIZE = 8 + 8 + 4 + 4;
+
+    private final SensorKeyIndex keyIndex;
+
+    private final long[] keys;
+    private final String[] drillIds;
+    private final String[] readingDates;
+    private final String[] sensorTypes;
+    private final long[] counts;
+    private final double[] sums;
+    private final float[] minValues;
+    private final float[] maxValues;
+
+    // Slots updated since the last "clearUpdated()" call
+    private final boolean[] updated;
+    private final int[] updatedSlots;
+    private int updatedCnt = 0;
+
+    public DrillAggregateTable(int maxAggregateNum) {
+        keyIndex = new SensorKeyIndex(maxAggregateNum);
+
+        keys = new long[maxAggregateNum];
+        drillIds = new String[maxAggregateNum];
+        readingDates = new String[maxAggregateNum];
+        sensorTypes = new String[maxAggregateNum];
+        counts = new long[maxAggregateNum];
+        sums = new double[maxAggregateNum];
+        minValues = new float[maxAggregateNum];
+        maxValues = new float[maxAggregateNum];
+
+        updated = new boolean[maxAggregateNum];
+        updatedSlots = new int[maxAggregateNum];
+    }
+
+    public int size() {
+        return keyIndex.size();
+    }
+
+    public int getMaxAggregateNum() {
+        return keyIndex.getMaxKeyNum();
+    }
+
+    // Slot of the aggregate of the reading; -1 if it is not in the table
+    public int getSlot(SensorReading reading) {
+        return keyIndex.getSlot(reading.getAggregateKey());
+    }
+
+    // Add an empty aggregate for the reading (which must not be in the table yet); -1 if the table is full
+    public int addSlot(SensorReading reading) {
+        long key = reading.getAggregateKey();
+        int slot = keyIndex.getOrAddSlot(key);
+        if (slot >= 0) {
+            keys[slot] = key;
+            drillIds[slot] = reading.getDrillId();
+            readingDates[slot] = reading.getReadingDate();
+            sensorTypes[slot] = reading.getSensorType();
+            counts[slot] = 0;
+            sums[slot] = 0;
+            minValues[slot] = Float.POSITIVE_INFINITY;
+            maxValues[slot] = Float.NEGATIVE_INFINITY;
+            updated[slot] = false;
+        }
+        return slot;
+    }
+
+    // Add a reading value to the aggregate in the slot
+    public void update(int slot, float value) {
+        counts[slot]++;
+        sums[slot] += value;
+        if (value < minValues[slot]) {
+            minValues[slot] = value;
+        }
+        if (value > maxValues[slot]) {
+            maxValues[slot] = value;
+        }
+
+        if (!updated[slot]) {
+            updated[slot] = true;
+            updatedSlots[updatedCnt++] = slot;
+        }
+    }
+
+    public int getUpdatedCnt() {
+        return updatedCnt;
+    }
+
+    // Slot of the i-th aggregate updated since the last "clearUpdated()" call
+    public int getUpdatedSlot(int i) {
+        return updatedSlots[i];
+    }
+
+    public void clearUpdated() {
+        for (int i = 0; i < updatedCnt; i++) {
+            updated[updatedSlots[i]] = false;
+        }
+        updatedCnt = 0;
+    }
+
+    public String getDrillId(int slot) {
+        return drillIds[slot];
+    }
+
+    public String getReadingDate(int slot) {
+        return readingDates[slot];
+    }
+
+    public String getSensorType(int slot) {
+        return sensorTypes[slot];
+    }
+
+    public long getCount(int slot) {
+        return counts[slot];
+    }
+
+    public double getSum(int slot) {
+        return sums[slot];
+    }
+
+    public float getMinValue(int slot) {
+        return minValues[slot];
+    }
+
+    public float getMaxValue(int slot) {
+        return maxValues[slot];
+    }
+
+    // Key of the aggregate in the aggregate state store
+    public String getStateKey(int slot) {
+        return drillIds[slot] + "/" + readingDates[slot] + "/" + sensorTypes[slot];
+    }
+
+    // Serialize the aggregate in the slot into "buffer" (reused, cleared first) and flip it
+    public ByteBuffer writeState(int slot, ByteBuffer buffer) {
+        buffer.clear();
+        buffer.putLong(counts[slot])
+                .putDouble(sums[slot])
+                .putFloat(minValues[slot])
+                .putFloat(maxValues[slot])
+                .flip();
+        return buffer;
+    }
+
+    // Restore the aggregate in the slot from its serialized state
+    public void readState(int slot, ByteBuffer state) {
+        if (state.remaining() < STATE_VALUE_SIZE) {
+            throw new IllegalArgumentException(String.format("Invalid aggregate state of \"%s\" (%d bytes)",
+                    getStateKey(slot), state.remaining()));
+        }
+
+        int pos = state.position();
+        counts[slot] = state.getLong(pos);
+        sums[slot] = state.getDouble(pos + 8);
+        minValues[slot] = state.getFloat(pos + 16);
+        maxValues[slot] = state.getFloat(pos + 20);
+    }
+
+    /**
+     *  Remove all aggregates of reading dates before "minReadingDate" (yyyy-MM-dd) from the table.
+     *  Aggregates updated since the last "clearUpdated()" call are always kept.
+     *
+     *  @return the number of removed aggregates
+     */
+    public int evictBefore(String minReadingDate) {
+        int keptCnt = 0;
+        int oldCnt = keyIndex.size();
+
+        keyIndex.clear();
+        for (int slot = 0; slot < oldCnt; slot++) {
+            if ( updated[slot] || (readingDates[slot].compareTo(minReadingDate) >= 0) ) {
+                int newSlot = keyIndex.getOrAddSlot(keys[slot]);
+                moveSlot(slot, newSlot);
+                keptCnt++;
+            }
+        }
+
+        // Updated slots may have moved
+        updatedCnt = 0;
+        for (int slot = 0; slot < keptCnt; slot++) {
+            if (updated[slot]) {
+                updatedSlots[updatedCnt++] = slot;
+            }
+        }
+
+        Arrays.fill(drillIds, keptCnt, oldCnt, null);
+        Arrays.fill(readingDates, keptCnt, oldCnt, null);
+        Arrays.fill(sensorTypes, keptCnt, oldCnt, null);
+        Arrays.fill(updated, keptCnt, oldCnt, false);
+
+        return oldCnt - keptCnt;
+    }
+
+    // Remove all aggregates from the table
+    public void clear() {
+        int oldCnt = keyIndex.size();
+        keyIndex.clear();
+        updatedCnt = 0;
+
+        Arrays.fill(drillIds, 0, oldCnt, null);
+        Arrays.fill(readingDates, 0, oldCnt, null);
+        Arrays.fill(sensorTypes, 0, oldCnt, null);
+        Arrays.fill(updated, 0, oldCnt, false);
+    }
+
+    private void moveSlot(int from, int to) {
+        if (from == to) {
+            return;
+        }
+
+        keys[to] = keys[from];
+        drillIds[to] = drillIds[from];
+        readingDates[to] = readingDates[from];
+        sensorTypes[to] = sensorTypes[from];
+        counts[to] = counts[from];
+        sums[to] = sums[from];
+        minValues[to] = minValues[from];
+        maxValues[to] = maxValues[from];
+        updated[to] = updated[from];
+    }
+}
@@ -0,0 +1,261 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericRecordBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Heavy hitter view of the warning sensor data (the output of SensorWarnFilterFunc): counts the warnings
+ *  per drill and reading date, and periodically publishes the "top_n" drills with the most warnings of each
+ *  reading date, one message per rank.
+ *
+ *  The warnings per drill are counted approximately, with a fixed number of counters per reading date
+ *  ("top_k_counters", see SpaceSavingTopK), so the memory doesn't depend on the number of drills. Only the
+ *  latest two reading dates are counted (the warnings of the previous date keep arriving for a while after
+ *  midnight); the counters of an older date are reused once its final top-N has been published.
+ */
+public class DrillWarningTopFunc implements Function<GenericRecord, Void> {
+    private static final String avroSchemDef = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"DrillWarningTop\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"ReadingDate\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"Rank\", \"type\": \"int\"},\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"WarningCount\", \"type\": \"long\"},\n" +
+            "    {\"name\": \"MaxOvercount\", \"type\": \"long\"},\n" +
+            "    {\"name\": \"SnapshotTime\", \"type\": \"string\"}\n" +
+            "  ]\n" +
+            "}";
+
+    private static final SchemaInfo OUTPUT_SCHEMA_INFO = SchemaInfo.builder()
+            .schema(avroSchemDef.getBytes(StandardCharsets.UTF_8))
+            .type(SchemaType.AVRO)
+            .properties(new HashMap<>())
+            .name("NBAvro")
+            .build();
+    private static final GenericAvroSchema OUTPUT_PULSAR_SCHEMA = new GenericAvroSchema(OUTPUT_SCHEMA_INFO);
+
+    private static final Field READING_DATE_FIELD = getOutputField("ReadingDate");
+    private static final Field RANK_FIELD = getOutputField("Rank");
+    private static final Field DRILL_ID_FIELD = getOutputField("DrillID");
+    private static final Field WARNING_COUNT_FIELD = getOutputField("WarningCount");
+    private static final Field MAX_OVERCOUNT_FIELD = getOutputField("MaxOvercount");
+    private static final Field SNAPSHOT_TIME_FIELD = getOutputField("SnapshotTime");
+
+    // User config key: number of drills in each published top-N
+    public static final String TOP_N_KEY = "top_n";
+    public static final int DEFAULT_TOP_N = 10;
+    // User config key: number of warning counters per reading date (at least "top_n")
+    public static final String TOP_K_COUNTERS_KEY = "top_k_counters";
+    public static final int DEFAULT_TOP_K_COUNTERS = 1000;
+    // User config key: how often (seconds) the top-N of the changed reading dates is published
+    public static final String SNAPSHOT_INTERVAL_SEC_KEY = "top_snapshot_interval_sec";
+    public static final int DEFAULT_SNAPSHOT_INTERVAL_SEC = 60;
+
+    public static final String SNAPSHOTS_METRIC_NAME = "top_snapshots";
+    public static final String LATE_WARNINGS_METRIC_NAME = "top_late_warnings";
+    public static final String PUBLISH_FAILED_METRIC_NAME = "top_publish_failed";
+
+    private static final int DAY_NUM = 2;
+
+    private Context context;
+    private FunctionTimer timer;
+    private GenericRecordBuilder recordBuilder;
+    private int topN;
+    private long snapshotIntervalMs;
+    private long nextSnapshotMs;
+
+    // Per kept reading date (indexed by epoch day % DAY_NUM): its counters, epoch day and date string,
+    //   and whether it changed since its last published top-N
+    private SpaceSavingTopK[] dayCounters;
+    private final long[] days = new long[DAY_NUM];
+    private final String[] readingDates = new String[DAY_NUM];
+    private final boolean[] changed = new boolean[DAY_NUM];
+
+    private long snapshotCnt = 0;
+    private long lateWarningCnt = 0;
+    private final AtomicLong publishFailedCnt = new AtomicLong();
+    private long reportedPublishFailedCnt = 0;
+
+    private static Field getOutputField(String fieldName) {
+        for (Field field : OUTPUT_PULSAR_SCHEMA.getFields()) {
+            if (field.getName().equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new RuntimeException("Field \"" + fieldName + "\" is not defined in the output Avro schema!");
+    }
+
+    // Synchronized with the snapshot timer, which publishes the top-N when no more messages arrive
+    @Override
+    public synchronized Void process(GenericRecord input, Context context) throws Exception {
+        if (dayCounters == null) {
+            initialize(context);
+        }
+
+        if (input != null) {
+            Object drillId = input.getField("DrillID");
+            Object readingTime = input.getField("ReadingTime");
+            if ( !(drillId instanceof CharSequence) || !(readingTime instanceof CharSequence) ) {
+                throw new IllegalArgumentException("Malformed warning sensor data message: " + input);
+            }
+
+            CharSequence readingTimeSeq = (CharSequence) readingTime;
+            long readingTimeUnix = SensorFuncUtil.parseIsoLocalDateTime(readingTimeSeq, 0, readingTimeSeq.length());
+            if (readingTimeUnix == Long.MIN_VALUE) {
+                throw new IllegalArgumentException("Invalid \"ReadingTime\" value: " + readingTime);
+            }
+
+            addWarning((CharSequence) drillId, readingTimeSeq, readingTimeUnix);
+        }
+
+        publishIfDue();
+        return null;
+    }
+
+    private void initialize(Context context) {
+        this.context = context;
+
+        topN = Integer.parseInt(context.getUserConfigValueOrDefault(TOP_N_KEY, DEFAULT_TOP_N).toString());
+        int counterNum = Integer.parseInt(context.getUserConfigValueOrDefault(
+                TOP_K_COUNTERS_KEY, DEFAULT_TOP_K_COUNTERS).toString());
+        if ( (topN <= 0) || (counterNum < topN) ) {
+            throw new IllegalArgumentException(String.format("\"%s\" must be positive and \"%s\" must not be " +
+                    "less than \"%s\": %d, %d", TOP_N_KEY, TOP_K_COUNTERS_KEY, TOP_N_KEY, topN, counterNum));
+        }
+
+        snapshotIntervalMs = 1000L * Integer.parseInt(context.getUserConfigValueOrDefault(
+                SNAPSHOT_INTERVAL_SEC_KEY, DEFAULT_SNAPSHOT_INTERVAL_SEC).toString());
+        if (snapshotIntervalMs <= 0) {
+            throw new IllegalArgumentException(String.format("\"%s\" must be positive", SNAPSHOT_INTERVAL_SEC_KEY));
+        }
+        nextSnapshotMs = System.currentTimeMillis() + snapshotIntervalMs;
+
+        dayCounters = new SpaceSavingTopK[DAY_NUM];
+        for (int i = 0; i < DAY_NUM; i++) {
+            dayCounters[i] = new SpaceSavingTopK(counterNum);
+            days[i] = Long.MIN_VALUE;
+        }
+        recordBuilder = OUTPUT_PULSAR_SCHEMA.newRecordBuilder();
+
+        long timerPeriodMs = Math.min(snapshotIntervalMs, 1000L);
+        timer = new FunctionTimer("warning-top-timer-" + context.getFunctionName());
+        timer.scheduleWithFixedDelay(this, DrillWarningTopFunc::publishOnTimer, timerPeriodMs);
+    }
+
+    // Count the warning for its drill and reading date
+    private void addWarning(CharSequence drillId, CharSequence readingTime, long readingTimeUnix) {
+        long day = Math.floorDiv(readingTimeUnix, SensorFuncUtil.SECONDS_PER_DAY);
+        int dayIdx = (int) Math.floorMod(day, (long) DAY_NUM);
+
+        if (days[dayIdx] < day) {
+            // Publish the final top-N of the date whose counters are reused
+            if (changed[dayIdx]) {
+                publishTopN(dayIdx);
+            }
+            dayCounters[dayIdx].clear();
+            days[dayIdx] = day;
+            readingDates[dayIdx] = readingTime.subSequence(0, 10).toString();
+        }
+        else if (days[dayIdx] > day) {
+            // Older than the dates kept
+            lateWarningCnt++;
+            return;
+        }
+
+        long drillKey = SensorFuncUtil.hash(SensorFuncUtil.HASH_SEED, drillId, 0, drillId.length());
+        dayCounters[dayIdx].add(drillKey, drillId, 0, drillId.length());
+        changed[dayIdx] = true;
+    }
+
+    private synchronized void publishOnTimer() {
+        try {
+            publishIfDue();
+        }
+        catch (Exception e) {
+            context.getLogger().error("Failed to publish the top warning drills: {}", e.getMessage());
+        }
+    }
+
+    // Publish the top-N of the reading dates that changed, once per snapshot interval
+    private void publishIfDue() {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs < nextSnapshotMs) {
+            return;
+        }
+        nextSnapshotMs = currentTimeMs + snapshotIntervalMs;
+
+        for (int dayIdx = 0; dayIdx < DAY_NUM; dayIdx++) {
+            if (changed[dayIdx]) {
+                publishTopN(dayIdx);
+            }
+        }
+
+        long publishFailed = publishFailedCnt.get();
+        context.recordMetric(SNAPSHOTS_METRIC_NAME, snapshotCnt);
+        context.recordMetric(LATE_WARNINGS_METRIC_NAME, lateWarningCnt);
+        context.recordMetric(PUBLISH_FAILED_METRIC_NAME, publishFailed - reportedPublishFailedCnt);
+        snapshotCnt = 0;
+        lateWarningCnt = 0;
+        reportedPublishFailedCnt = publishFailed;
+    }
+
+    // Publish the top-N drills of the reading date, one message per rank
+    private void publishTopN(int dayIdx) {
+        changed[dayIdx] = false;
+        snapshotCnt++;
+
+        SpaceSavingTopK counters = dayCounters[dayIdx];
+        String snapshotTime = LocalDateTime.now(ZoneOffset.UTC).withNano(0)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        int[] topCounters = counters.getTopCounters(topN);
+        for (int rank = 0; rank < topCounters.length; rank++) {
+            int counter = topCounters[rank];
+            GenericRecord pulsarAvroRecord = recordBuilder
+                    .set(READING_DATE_FIELD, readingDates[dayIdx])
+                    .set(RANK_FIELD, rank + 1)
+                    .set(DRILL_ID_FIELD, counters.getItem(counter))
+                    .set(WARNING_COUNT_FIELD, counters.getCount(counter))
+                    .set(MAX_OVERCOUNT_FIELD, counters.getError(counter))
+                    .set(SNAPSHOT_TIME_FIELD, snapshotTime)
+                    .build();
+
+            try {
+                context.newOutputMessage(context.getOutputTopic(), OUTPUT_PULSAR_SCHEMA)
+                        .value(pulsarAvroRecord)
+                        .sendAsync()
+                        .whenComplete((messageId, throwable) -> {
+                            if (throwable != null) {
+                                publishFailedCnt.incrementAndGet();
+                            }
+                        });
+            }
+            catch (Exception e) {
+                publishFailedCnt.incrementAndGet();
+                context.getLogger().debug("Failed to publish top warning drill: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Stop the snapshot timer (Pulsar 2.7 never calls this; the timer then ends with the instance)
+    public void close() {
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+}
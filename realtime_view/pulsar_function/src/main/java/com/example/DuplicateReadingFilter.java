@@ -0,0 +1,117 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ *  Memory-bounded, allocation-free filter of duplicate readings, i.e. of readings of the same sensor with the
+ *  same reading time, as sent again by replays and producer retries.
+ *
+ *  The (sensor, reading time) pairs are kept in one Bloom filter per (UTC) reading day. Only the filters of
+ *  the two latest days are kept; the older one is cleared and reused when a reading of a new day arrives.
+ *  Readings of older days are never reported as duplicates. The given memory is split between the two
+ *  filters, and the number of hash functions and the number of readings per day a filter can take with the
+ *  given false positive probability follow from it. A filter that holds more readings than that reports
+ *  more false positives, i.e. readings that are suppressed although they are not duplicates.
+ *
+ *  NOT thread-safe.
+ */
+public class DuplicateReadingFilter {
+
+    private static final int DAY_FILTER_NUM = 2;
+
+    private final long[][] filterBits;
+    // Reading day (epoch day) of each filter
+    private final long[] filterDays;
+    private final long[] filterReadingCnts;
+    private final long bitMask;
+    private final int hashNum;
+    private final long capacity;
+
+    public DuplicateReadingFilter(long maxMemoryBytes, double falsePositiveProbability) {
+        if ( (falsePositiveProbability <= 0) || (falsePositiveProbability >= 1) ) {
+            throw new IllegalArgumentException("Invalid false positive probability: " + falsePositiveProbability);
+        }
+
+        // Bits per filter, a power of 2 (so a bit position is a mask away) between 64 bits and 8 GB
+        long maxBitNum = Math.max(maxMemoryBytes * 8 / DAY_FILTER_NUM, 64L);
+        long bitNum = Long.highestOneBit(Math.min(maxBitNum, 1L << 36));
+        this.bitMask = bitNum - 1;
+
+        double ln2 = Math.log(2);
+        this.hashNum = Math.max(1, (int) Math.round(-Math.log(falsePositiveProbability) / ln2));
+        this.capacity = (long) (bitNum * ln2 * ln2 / -Math.log(falsePositiveProbability));
+
+        this.filterBits = new long[DAY_FILTER_NUM][(int) (bitNum / 64)];
+        this.filterDays = new long[DAY_FILTER_NUM];
+        Arrays.fill(filterDays, Long.MIN_VALUE);
+        this.filterReadingCnts = new long[DAY_FILTER_NUM];
+    }
+
+    public int getHashNum() {
+        return hashNum;
+    }
+
+    // Number of readings per day a filter can take with the configured false positive probability
+    public long getCapacity() {
+        return capacity;
+    }
+
+    // Number of readings added to the filter of the given reading day; 0 if that day is not kept
+    public long getReadingCnt(long readingDay) {
+        int filterIdx = (int) Math.floorMod(readingDay, (long) DAY_FILTER_NUM);
+        return (filterDays[filterIdx] == readingDay) ? filterReadingCnts[filterIdx] : 0;
+    }
+
+    /**
+     *  Check whether the reading was seen before, and remember it if not.
+     *
+     *  @param sensorKey       sensor hash key, see SensorReading.getSensorKey()
+     *  @param readingTimeUnix reading time (Unix time in seconds)
+     *  @return true if the reading is (most likely) a duplicate
+     */
+    public boolean isDuplicate(long sensorKey, long readingTimeUnix) {
+        long readingDay = Math.floorDiv(readingTimeUnix, SensorFuncUtil.SECONDS_PER_DAY);
+        int filterIdx = (int) Math.floorMod(readingDay, (long) DAY_FILTER_NUM);
+
+        if (filterDays[filterIdx] < readingDay) {
+            Arrays.fill(filterBits[filterIdx], 0L);
+            filterDays[filterIdx] = readingDay;
+            filterReadingCnts[filterIdx] = 0;
+        }
+        else if (filterDays[filterIdx] > readingDay) {
+            // Older than the days kept
+            return false;
+        }
+
+        // Double hashing: the i-th bit position is (hash1 + i * hash2)
+        long key = sensorKey ^ (readingTimeUnix * 0x9E3779B97F4A7C15L);
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ key) | 1L;
+
+        long[] bits = filterBits[filterIdx];
+        boolean seen = true;
+        for (int i = 0; i < hashNum; i++) {
+            long bitPos = (hash1 + i * hash2) & bitMask;
+            int wordIdx = (int) (bitPos >>> 6);
+            long bit = 1L << bitPos;
+            if ((bits[wordIdx] & bit) == 0) {
+                seen = false;
+                bits[wordIdx] |= bit;
+            }
+        }
+
+        if (!seen) {
+            filterReadingCnts[filterIdx]++;
+        }
+        return seen;
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= (key >>> 33);
+        return key;
+    }
+}
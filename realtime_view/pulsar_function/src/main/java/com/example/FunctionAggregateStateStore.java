@@ -0,0 +1,29 @@
+package com.example;
+
+import org.apache.pulsar.functions.api.Context;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  Aggregate state store on top of the Pulsar function state (requires the function state storage,
+ *  i.e. BookKeeper table service, to be enabled).
+ */
+public class FunctionAggregateStateStore implements AggregateStateStore {
+
+    private final Context context;
+
+    public FunctionAggregateStateStore(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public ByteBuffer get(String key) {
+        ByteBuffer value = context.getState(key);
+        return ( (value != null) && value.hasRemaining() ) ? value : null;
+    }
+
+    @Override
+    public void put(String key, ByteBuffer value) {
+        context.putState(key, value);
+    }
+}
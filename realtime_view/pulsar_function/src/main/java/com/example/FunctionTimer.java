@@ -0,0 +1,55 @@
+package com.example;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ *  Background timer of one function instance, e.g. for publishing partial output batches or closing windows
+ *  when no more messages arrive.
+ *
+ *  Every function instance has its own timer thread, so a slow task (e.g. a state store write) of one
+ *  instance never holds up the timers of the other instances in the same JVM.
+ *
+ *  The Pulsar (2.7) functions API has no close callback, so a task only keeps a weak reference to its
+ *  owner (the function instance or one of its parts): once the owner is gone, e.g. after the instance was
+ *  restarted, the timer stops and its thread ends instead of keeping the old instance alive. All owners of
+ *  a timer must therefore belong to the same function instance, and a task must not reference its owner
+ *  other than through the argument it is called with.
+ */
+public class FunctionTimer {
+
+    private final ScheduledExecutorService executor;
+
+    public FunctionTimer(String threadName) {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     *  Run the task with the owner every "delayMs" milliseconds, until the owner is gone, the returned
+     *  future is cancelled or the timer is shut down.
+     */
+    public <T> ScheduledFuture<?> scheduleWithFixedDelay(T owner, Consumer<T> task, long delayMs) {
+        WeakReference<T> ownerRef = new WeakReference<>(owner);
+        return executor.scheduleWithFixedDelay(() -> {
+            T currentOwner = ownerRef.get();
+            if (currentOwner == null) {
+                shutdown();
+                return;
+            }
+            task.accept(currentOwner);
+        }, delayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Cancel all tasks and end the timer thread
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  Aggregate state store that only keeps the aggregates in memory, e.g. for testing or when the
+ *  Pulsar function state storage is not available. Nothing survives a function restart and the
+ *  store is NOT memory-bounded.
+ */
+public class InMemoryAggregateStateStore implements AggregateStateStore {
+
+    private final ConcurrentHashMap<String, ByteBuffer> store = new ConcurrentHashMap<>();
+
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public ByteBuffer get(String key) {
+        ByteBuffer value = store.get(key);
+        return (value != null) ? value.duplicate() : null;
+    }
+
+    @Override
+    public void put(String key, ByteBuffer value) {
+        ByteBuffer copy = ByteBuffer.allocate(value.remaining());
+        copy.put(value.duplicate()).flip();
+        store.put(key, copy);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+/**
+ *  Streaming per-sensor anomaly detector: a reading is an anomaly if it is more than "zScoreThreshold"
+ *  standard deviations away from the exponentially weighted moving mean of the sensor's earlier readings.
+ *
+ *  The moving mean and variance are updated with every reading (incl. anomalies, so the statistics follow
+ *  a lasting change of the sensor's level) as
+ *      diff = value - mean,  mean += alpha * diff,  variance = (1 - alpha) * (variance + alpha * diff^2)
+ *  where "alpha" is the weight of the newest reading. A sensor's first "minReadingNum" readings only
+ *  build up its statistics and are never anomalies.
+ *
+ *  The standard deviation is taken as at least "minStddev": a sensor that kept reporting the same value
+ *  (e.g. while idle) or reports in coarse steps has a variance of (nearly) 0, and would otherwise turn
+ *  every small change into an anomaly.
+ *
+ *  The statistics are kept in primitive arrays indexed by the sensor slot of a SensorKeyIndex, so each
+ *  reading costs O(1) without creating any object, and the memory is bounded by "maxSensorNum" (up to
+ *  about 60 bytes per sensor, incl. the index). Readings of sensors beyond "maxSensorNum" are never anomalies.
+ *
+ *  NOT thread-safe.
+ */
+public class SensorAnomalyDetector {
+
+    private final float alpha;
+    private final float zScoreThreshold;
+    private final int minReadingNum;
+    private final float minVariance;
+
+    private final SensorKeyIndex sensorIndex;
+    private final float[] means;
+    private final float[] variances;
+    private final int[] readingCnts;
+
+    public SensorAnomalyDetector(float alpha,
+                                 float zScoreThreshold,
+                                 int minReadingNum,
+                                 float minStddev,
+                                 int maxSensorNum) {
+        if ( !(alpha > 0 && alpha < 1) || !(zScoreThreshold > 0) || (minReadingNum < 0) ||
+             !(minStddev >= 0) || Float.isInfinite(minStddev) ) {
+            String errMsg = String.format("Invalid anomaly detector settings: alpha=%s, zScoreThreshold=%s, " +
+                    "minReadingNum=%d, minStddev=%s", alpha, zScoreThreshold, minReadingNum, minStddev);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.alpha = alpha;
+        this.zScoreThreshold = zScoreThreshold;
+        this.minReadingNum = Math.max(minReadingNum, 1);
+        this.minVariance = minStddev * minStddev;
+        this.sensorIndex = new SensorKeyIndex(maxSensorNum);
+        this.means = new float[maxSensorNum];
+        this.variances = new float[maxSensorNum];
+        this.readingCnts = new int[maxSensorNum];
+    }
+
+    // Number of sensors whose statistics are kept
+    public int getSensorNum() {
+        return sensorIndex.size();
+    }
+
+    /**
+     *  Check the reading value against the sensor's statistics, then add it to them.
+     *
+     *  @param sensorKey sensor hash key, see SensorReading.getSensorKey()
+     *  @return true if the reading is an anomaly
+     */
+    public boolean isAnomaly(long sensorKey, float value) {
+        int slot = sensorIndex.getOrAddSlot(sensorKey);
+        // Not tracked when the sensor index is full
+        if ( (slot < 0) || Float.isNaN(value) || Float.isInfinite(value) ) {
+            return false;
+        }
+
+        int readingCnt = readingCnts[slot];
+        if (readingCnt == 0) {
+            means[slot] = value;
+            variances[slot] = 0f;
+            readingCnts[slot] = 1;
+            return false;
+        }
+
+        float mean = means[slot];
+        float variance = variances[slot];
+        float diff = value - mean;
+
+        // |diff| > z * max(stddev, minStddev), without the square root
+        boolean anomaly = (readingCnt >= minReadingNum) &&
+                (diff * diff > zScoreThreshold * zScoreThreshold * Math.max(variance, minVariance));
+
+        float increment = alpha * diff;
+        means[slot] = mean + increment;
+        variances[slot] = (1f - alpha) * (variance + diff * increment);
+        if (readingCnt < minReadingNum) {
+            readingCnts[slot] = readingCnt + 1;
+        }
+
+        return anomaly;
+    }
+}
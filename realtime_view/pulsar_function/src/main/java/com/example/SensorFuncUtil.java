@@ -0,0 +1,226 @@
+package com.example;
+
+/**
+ *  Allocation-free helpers for parsing sensor data fields straight from character sequences.
+ */
+public class SensorFuncUtil {
+
+    public static final long SECONDS_PER_DAY = 24 * 3600L;
+
+    // Seed of "hash()" (FNV-1a 64-bit offset basis)
+    public static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // 64-bit (FNV-1a) hash of the characters in seq[start, end), continuing from "hash"
+    public static long hash(long hash, CharSequence seq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ seq.charAt(i)) * HASH_PRIME;
+        }
+        return hash;
+    }
+
+    // Whether seq[start, end) equals the given string
+    public static boolean regionEquals(CharSequence seq, int start, int end, String str) {
+        int len = end - start;
+        if (len != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (seq.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether seq[start, end) equals the given string, ignoring (ASCII) case
+    public static boolean regionEqualsIgnoreCase(CharSequence seq, int start, int end, String str) {
+        int len = end - start;
+        if (len != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char c1 = seq.charAt(start + i);
+            char c2 = str.charAt(i);
+            if ( (c1 != c2) && (Character.toLowerCase(c1) != Character.toLowerCase(c2)) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *  Parse a decimal number in seq[start, end), e.g. "399.000000", "-1.5" or "2.5E3".
+     *  The result is exact enough for threshold checks; it may differ from Float.parseFloat()
+     *  in the last bit for numbers with more than 15 significant digits.
+     *
+     *  @return the parsed value, or NaN if seq[start, end) is not a decimal number
+     */
+    public static double parseDecimal(CharSequence seq, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+
+        if ( (pos < end) && ((seq.charAt(pos) == '-') || (seq.charAt(pos) == '+')) ) {
+            negative = (seq.charAt(pos) == '-');
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digitCnt = 0;
+        int decimalExp = 0;
+        boolean seenDot = false;
+
+        for (; pos < end; pos++) {
+            char c = seq.charAt(pos);
+            if ( (c >= '0') && (c <= '9') ) {
+                digitCnt++;
+                // Keep at most 18 significant digits; the rest only shifts the exponent
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenDot) {
+                        decimalExp--;
+                    }
+                }
+                else if (!seenDot) {
+                    decimalExp++;
+                }
+            }
+            else if ( (c == '.') && !seenDot ) {
+                seenDot = true;
+            }
+            else {
+                break;
+            }
+        }
+
+        if (digitCnt == 0) {
+            return Double.NaN;
+        }
+
+        if ( (pos < end) && ((seq.charAt(pos) == 'e') || (seq.charAt(pos) == 'E')) ) {
+            pos++;
+            boolean negativeExp = false;
+            if ( (pos < end) && ((seq.charAt(pos) == '-') || (seq.charAt(pos) == '+')) ) {
+                negativeExp = (seq.charAt(pos) == '-');
+                pos++;
+            }
+
+            int exp = 0;
+            int expDigitCnt = 0;
+            for (; (pos < end) && (seq.charAt(pos) >= '0') && (seq.charAt(pos) <= '9'); pos++) {
+                exp = Math.min(exp * 10 + (seq.charAt(pos) - '0'), 1000);
+                expDigitCnt++;
+            }
+            if (expDigitCnt == 0) {
+                return Double.NaN;
+            }
+            decimalExp += negativeExp ? -exp : exp;
+        }
+
+        if (pos != end) {
+            return Double.NaN;
+        }
+
+        double value = mantissa;
+        if ( (decimalExp < 0) && (decimalExp >= -22) ) {
+            value = value / POW10[-decimalExp];
+        }
+        else if ( (decimalExp > 0) && (decimalExp <= 22) ) {
+            value = value * POW10[decimalExp];
+        }
+        else if (decimalExp != 0) {
+            value = value * Math.pow(10, decimalExp);
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     *  Parse an ISO local date-time in seq[start, end), "yyyy-MM-dd'T'HH:mm[:ss[.SSSSSSSSS]]",
+     *  into Unix time (seconds) in UTC. Fractional seconds are truncated.
+     *
+     *  @return the Unix time, or Long.MIN_VALUE if seq[start, end) is not a valid ISO local date-time
+     */
+    public static long parseIsoLocalDateTime(CharSequence seq, int start, int end) {
+        int len = end - start;
+        if ( (len < 16) ||
+             (seq.charAt(start + 4) != '-') ||
+             (seq.charAt(start + 7) != '-') ||
+             (seq.charAt(start + 10) != 'T') ||
+             (seq.charAt(start + 13) != ':') ) {
+            return Long.MIN_VALUE;
+        }
+
+        int year = parseDigits(seq, start, 4);
+        int month = parseDigits(seq, start + 5, 2);
+        int day = parseDigits(seq, start + 8, 2);
+        int hour = parseDigits(seq, start + 11, 2);
+        int minute = parseDigits(seq, start + 14, 2);
+        int second = 0;
+
+        if (len > 16) {
+            if ( (len < 19) || (seq.charAt(start + 16) != ':') ) {
+                return Long.MIN_VALUE;
+            }
+            second = parseDigits(seq, start + 17, 2);
+
+            if (len > 19) {
+                // Fractional seconds: '.' followed by 1 to 9 digits
+                if ( (seq.charAt(start + 19) != '.') || (len == 20) || (len > 29) ||
+                     (parseDigits(seq, start + 20, len - 20) < 0) ) {
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+
+        if ( (year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > daysInMonth(year, month)) ||
+             (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59) ) {
+            return Long.MIN_VALUE;
+        }
+
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    // Days since 1970-01-01 of a civil date (proleptic Gregorian calendar)
+    public static long epochDay(int year, int month, int day) {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = ((year % 4 == 0) && (year % 100 != 0)) || (year % 400 == 0);
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Parse "digitNum" decimal digits starting at "offset"; -1 if any of them is not a digit
+    private static int parseDigits(CharSequence seq, int offset, int digitNum) {
+        int value = 0;
+        for (int i = offset; i < offset + digitNum; i++) {
+            char c = seq.charAt(i);
+            if ( (c < '0') || (c > '9') ) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
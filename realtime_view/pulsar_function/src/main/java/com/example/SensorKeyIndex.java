@@ -0,0 +1,125 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ *  Memory-bounded, allocation-free index that assigns a dense slot number [0, maxKeyNum) to each
+ *  64-bit key (e.g. the hash of a drill/sensor ID, see SensorReading.getSensorKey()).
+ *
+ *  Per-key state can then be kept in plain primitive arrays indexed by the slot number.
+ *  Once "maxKeyNum" keys are indexed, new keys are not indexed any more (see "getOrAddSlot()").
+ *
+ *  NOT thread-safe.
+ */
+public class SensorKeyIndex {
+
+    private static final long EMPTY_KEY = 0L;
+    // Substitute for a (real) key that happens to equal EMPTY_KEY
+    private static final long ZERO_KEY_SUBSTITUTE = 0x9E3779B97F4A7C15L;
+
+    private final int maxKeyNum;
+
+    // Open addressing hash table (linear probing) of key -> slot number, sized to a power of 2
+    private long[] keys;
+    private int[] slots;
+    private int mask;
+    private int keyCnt = 0;
+
+    public SensorKeyIndex(int maxKeyNum) {
+        if (maxKeyNum <= 0) {
+            throw new IllegalArgumentException("The maximum number of keys must be positive: " + maxKeyNum);
+        }
+        this.maxKeyNum = maxKeyNum;
+        allocate(Math.min(1024, tableSizeFor(maxKeyNum)));
+    }
+
+    public int getMaxKeyNum() {
+        return maxKeyNum;
+    }
+
+    public int size() {
+        return keyCnt;
+    }
+
+    // Slot number of the key; -1 if the key is not indexed
+    public int getSlot(long key) {
+        key = (key == EMPTY_KEY) ? ZERO_KEY_SUBSTITUTE : key;
+        for (int pos = mix(key) & mask; ; pos = (pos + 1) & mask) {
+            if (keys[pos] == key) {
+                return slots[pos];
+            }
+            else if (keys[pos] == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    // Slot number of the key, indexing it if needed; -1 if the key is new and the index is full
+    public int getOrAddSlot(long key) {
+        key = (key == EMPTY_KEY) ? ZERO_KEY_SUBSTITUTE : key;
+        int pos = mix(key) & mask;
+        for (; keys[pos] != EMPTY_KEY; pos = (pos + 1) & mask) {
+            if (keys[pos] == key) {
+                return slots[pos];
+            }
+        }
+
+        if (keyCnt >= maxKeyNum) {
+            return -1;
+        }
+
+        // Keep the load factor below 0.5
+        if (2 * (keyCnt + 1) > keys.length) {
+            rehash(keys.length * 2);
+            pos = mix(key) & mask;
+            while (keys[pos] != EMPTY_KEY) {
+                pos = (pos + 1) & mask;
+            }
+        }
+
+        keys[pos] = key;
+        slots[pos] = keyCnt;
+        return keyCnt++;
+    }
+
+    // Forget all keys
+    public void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        keyCnt = 0;
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        allocate(tableSize);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int pos = mix(oldKeys[i]) & mask;
+                while (keys[pos] != EMPTY_KEY) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[i];
+                slots[pos] = oldSlots[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    private static int tableSizeFor(int keyNum) {
+        int tableSize = Integer.highestOneBit(Math.max(keyNum, 1)) << 2;
+        return (tableSize > 0) ? tableSize : (1 << 30);
+    }
+}
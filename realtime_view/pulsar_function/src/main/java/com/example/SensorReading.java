@@ -0,0 +1,191 @@
+package com.example;
+
+/**
+ *  Reusable holder of one parsed sensor reading.
+ *
+ *  String fields are kept as regions of the original character sequence (the JSON message or the
+ *  Avro Utf8 values) and are only turned into Strings on demand, i.e. for readings that are published.
+ *  The reading time is also only parsed on demand, because most readings are already dropped by
+ *  the (cheaper) reading value check; ordering reading times (e.g. for a watermark) can be done on
+ *  their text, see "isReadingTimeAfter()".
+ *
+ *  An instance is meant to be reused for every message of one function instance and is NOT thread-safe.
+ */
+public class SensorReading {
+
+    // Length of the reading time text up to the seconds, i.e. of "yyyy-MM-ddTHH:mm:ss"
+    public static final int READING_TIME_TEXT_LEN = 19;
+
+    private CharSequence drillIdSeq;
+    private int drillIdStart, drillIdEnd;
+
+    private CharSequence sensorIdSeq;
+    private int sensorIdStart, sensorIdEnd;
+
+    private CharSequence sensorTypeSeq;
+    private int sensorTypeStart, sensorTypeEnd;
+
+    private CharSequence readingTimeSeq;
+    private int readingTimeStart, readingTimeEnd;
+    private long readingTimeUnix;
+    private boolean readingTimeParsed;
+
+    private float readingValue;
+    // Original text of the reading value, if the value was parsed from text
+    private CharSequence readingValueSeq;
+    private int readingValueStart, readingValueEnd;
+
+    // Clear all fields before the holder is filled with the next reading
+    public void reset() {
+        drillIdSeq = null;
+        sensorIdSeq = null;
+        sensorTypeSeq = null;
+        readingTimeSeq = null;
+        readingTimeParsed = false;
+        readingValue = Float.NaN;
+        readingValueSeq = null;
+    }
+
+    // Whether all fields are present
+    public boolean isComplete() {
+        return (drillIdSeq != null) && (sensorIdSeq != null) && (sensorTypeSeq != null) &&
+                (readingTimeSeq != null) && !Float.isNaN(readingValue);
+    }
+
+    public void setDrillId(CharSequence seq, int start, int end) {
+        drillIdSeq = seq;
+        drillIdStart = start;
+        drillIdEnd = end;
+    }
+
+    public void setSensorId(CharSequence seq, int start, int end) {
+        sensorIdSeq = seq;
+        sensorIdStart = start;
+        sensorIdEnd = end;
+    }
+
+    public void setSensorType(CharSequence seq, int start, int end) {
+        sensorTypeSeq = seq;
+        sensorTypeStart = start;
+        sensorTypeEnd = end;
+    }
+
+    public void setReadingTime(CharSequence seq, int start, int end) {
+        readingTimeSeq = seq;
+        readingTimeStart = start;
+        readingTimeEnd = end;
+        readingTimeParsed = false;
+    }
+
+    public void setReadingValue(float value) {
+        readingValue = value;
+        readingValueSeq = null;
+    }
+
+    // Set a reading value parsed from seq[start, end); the original text is kept for "getExactReadingValue()"
+    public void setReadingValue(float value, CharSequence seq, int start, int end) {
+        readingValue = value;
+        readingValueSeq = seq;
+        readingValueStart = start;
+        readingValueEnd = end;
+    }
+
+    public String getDrillId() {
+        return drillIdSeq.subSequence(drillIdStart, drillIdEnd).toString();
+    }
+
+    public String getSensorId() {
+        return sensorIdSeq.subSequence(sensorIdStart, sensorIdEnd).toString();
+    }
+
+    public String getSensorType() {
+        return sensorTypeSeq.subSequence(sensorTypeStart, sensorTypeEnd).toString();
+    }
+
+    // Whether the sensor type equals the given one, ignoring case
+    public boolean sensorTypeEquals(String sensorType) {
+        return SensorFuncUtil.regionEqualsIgnoreCase(sensorTypeSeq, sensorTypeStart, sensorTypeEnd, sensorType);
+    }
+
+    // 64-bit hash key of the drill ID
+    public long getDrillKey() {
+        return SensorFuncUtil.hash(SensorFuncUtil.HASH_SEED, drillIdSeq, drillIdStart, drillIdEnd);
+    }
+
+    // 64-bit hash key of the sensor, i.e. of "<drill id>/<sensor id>"
+    public long getSensorKey() {
+        long hash = SensorFuncUtil.hash(SensorFuncUtil.HASH_SEED, drillIdSeq, drillIdStart, drillIdEnd);
+        hash = SensorFuncUtil.hash(hash, "/", 0, 1);
+        return SensorFuncUtil.hash(hash, sensorIdSeq, sensorIdStart, sensorIdEnd);
+    }
+
+    // 64-bit hash key of the daily aggregate of the reading, i.e. of "<drill id>/<reading date>/<sensor type>"
+    public long getAggregateKey() {
+        long hash = SensorFuncUtil.hash(SensorFuncUtil.HASH_SEED, drillIdSeq, drillIdStart, drillIdEnd);
+        hash = SensorFuncUtil.hash(hash, "/", 0, 1);
+        hash = SensorFuncUtil.hash(hash, readingTimeSeq, readingTimeStart, readingTimeStart + 10);
+        hash = SensorFuncUtil.hash(hash, "/", 0, 1);
+        return SensorFuncUtil.hash(hash, sensorTypeSeq, sensorTypeStart, sensorTypeEnd);
+    }
+
+    public String getReadingTime() {
+        return readingTimeSeq.subSequence(readingTimeStart, readingTimeEnd).toString();
+    }
+
+    // Reading date in "yyyy-MM-dd" format (the date part of the reading time)
+    public String getReadingDate() {
+        return readingTimeSeq.subSequence(readingTimeStart, readingTimeStart + 10).toString();
+    }
+
+    // Reading time as Unix time (seconds, UTC); Long.MIN_VALUE if the reading time is not a valid ISO date-time
+    public long getReadingTimeUnix() {
+        if (!readingTimeParsed) {
+            readingTimeUnix = SensorFuncUtil.parseIsoLocalDateTime(readingTimeSeq, readingTimeStart, readingTimeEnd);
+            readingTimeParsed = true;
+        }
+        return readingTimeUnix;
+    }
+
+    /**
+     *  Whether the reading time is (probably) later than the given reading time text, without parsing it.
+     *  Only the first READING_TIME_TEXT_LEN characters are compared, which order ISO date-times in time
+     *  order. A reading time that is not a valid ISO date-time may compare either way.
+     *
+     *  @param timeText    reading time text, e.g. copied by "copyReadingTime()"
+     *  @param timeTextLen length of the text in "timeText"; 0 for none (then every reading time is later)
+     */
+    public boolean isReadingTimeAfter(char[] timeText, int timeTextLen) {
+        int len = Math.min(readingTimeEnd - readingTimeStart, READING_TIME_TEXT_LEN);
+        int cmpLen = Math.min(len, timeTextLen);
+        for (int i = 0; i < cmpLen; i++) {
+            char c = readingTimeSeq.charAt(readingTimeStart + i);
+            if (c != timeText[i]) {
+                return c > timeText[i];
+            }
+        }
+        // E.g. "yyyy-MM-ddTHH:mm:ss" after "yyyy-MM-ddTHH:mm" of the same minute
+        return len > timeTextLen;
+    }
+
+    // Copy (at most READING_TIME_TEXT_LEN characters of) the reading time text; returns the number copied
+    public int copyReadingTime(char[] dest) {
+        int len = Math.min(readingTimeEnd - readingTimeStart, READING_TIME_TEXT_LEN);
+        for (int i = 0; i < len; i++) {
+            dest[i] = readingTimeSeq.charAt(readingTimeStart + i);
+        }
+        return len;
+    }
+
+    // Reading value, good enough for threshold checks
+    public float getReadingValue() {
+        return readingValue;
+    }
+
+    // Reading value exactly as Float.parseFloat() would parse the original text
+    public float getExactReadingValue() {
+        if (readingValueSeq == null) {
+            return readingValue;
+        }
+        return Float.parseFloat(readingValueSeq.subSequence(readingValueStart, readingValueEnd).toString());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example;
+
+/**
+ *  Single-pass, allocation-free scanner of raw sensor data JSON messages, e.g.
+ *      {"DrillID": "DRL-001", "SensorID": "SNS-temp-01", "SensorType": "temp", "ReadingTime": "2021-04-05T17:10:22", "ReadingValue": 399.000000}
+ *
+ *  Fields may come in any order and string values may contain commas, colons or escaped quotes.
+ *  Unknown fields are skipped. Nested objects and arrays are not supported, and escape sequences
+ *  inside string values are kept as they are.
+ */
+public class SensorReadingJsonScanner {
+
+    private static final String DRILL_ID_KEY = "DrillID";
+    private static final String SENSOR_ID_KEY = "SensorID";
+    private static final String SENSOR_TYPE_KEY = "SensorType";
+    private static final String READING_TIME_KEY = "ReadingTime";
+    private static final String READING_VALUE_KEY = "ReadingValue";
+
+    /**
+     *  Scan the JSON message into the (reused) reading holder.
+     *
+     *  @return true if the message is a well-formed JSON object with all sensor reading fields
+     */
+    public static boolean scan(CharSequence json, SensorReading reading) {
+        reading.reset();
+
+        int len = json.length();
+        int pos = skipWhitespace(json, 0, len);
+        if ( (pos >= len) || (json.charAt(pos) != '{') ) {
+            return false;
+        }
+        pos = skipWhitespace(json, pos + 1, len);
+
+        if ( (pos < len) && (json.charAt(pos) == '}') ) {
+            return false;
+        }
+
+        while (pos < len) {
+            // Key
+            if (json.charAt(pos) != '"') {
+                return false;
+            }
+            int keyStart = pos + 1;
+            int keyEnd = findStringEnd(json, keyStart, len);
+            if (keyEnd < 0) {
+                return false;
+            }
+
+            pos = skipWhitespace(json, keyEnd + 1, len);
+            if ( (pos >= len) || (json.charAt(pos) != ':') ) {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1, len);
+            if (pos >= len) {
+                return false;
+            }
+
+            // Value: either a quoted string or a bare literal (number, true, false, null)
+            int valueStart;
+            int valueEnd;
+            if (json.charAt(pos) == '"') {
+                valueStart = pos + 1;
+                valueEnd = findStringEnd(json, valueStart, len);
+                if (valueEnd < 0) {
+                    return false;
+                }
+                pos = valueEnd + 1;
+            }
+            else {
+                valueStart = pos;
+                while ( (pos < len) && !isLiteralEnd(json.charAt(pos)) ) {
+                    pos++;
+                }
+                valueEnd = pos;
+                if ( (valueEnd == valueStart) || (json.charAt(valueStart) == '{') || (json.charAt(valueStart) == '[') ) {
+                    return false;
+                }
+            }
+
+            setField(json, keyStart, keyEnd, valueStart, valueEnd, reading);
+
+            pos = skipWhitespace(json, pos, len);
+            if (pos >= len) {
+                return false;
+            }
+            else if (json.charAt(pos) == ',') {
+                pos = skipWhitespace(json, pos + 1, len);
+            }
+            else if (json.charAt(pos) == '}') {
+                return reading.isComplete();
+            }
+            else {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    private static void setField(CharSequence json, int keyStart, int keyEnd,
+                                 int valueStart, int valueEnd, SensorReading reading) {
+        if (SensorFuncUtil.regionEquals(json, keyStart, keyEnd, DRILL_ID_KEY)) {
+            reading.setDrillId(json, valueStart, valueEnd);
+        }
+        else if (SensorFuncUtil.regionEquals(json, keyStart, keyEnd, SENSOR_ID_KEY)) {
+            reading.setSensorId(json, valueStart, valueEnd);
+        }
+        else if (SensorFuncUtil.regionEquals(json, keyStart, keyEnd, SENSOR_TYPE_KEY)) {
+            reading.setSensorType(json, valueStart, valueEnd);
+        }
+        else if (SensorFuncUtil.regionEquals(json, keyStart, keyEnd, READING_TIME_KEY)) {
+            reading.setReadingTime(json, valueStart, valueEnd);
+        }
+        else if (SensorFuncUtil.regionEquals(json, keyStart, keyEnd, READING_VALUE_KEY)) {
+            float value = (float) SensorFuncUtil.parseDecimal(json, valueStart, valueEnd);
+            reading.setReadingValue(value, json, valueStart, valueEnd);
+        }
+    }
+
+    // Position of the closing quote of a string starting at "start", skipping escaped characters; -1 if none
+    private static int findStringEnd(CharSequence json, int start, int len) {
+        for (int pos = start; pos < len; pos++) {
+            char c = json.charAt(pos);
+            if (c == '\\') {
+                pos++;
+            }
+            else if (c == '"') {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLiteralEnd(char c) {
+        return (c == ',') || (c == '}') || isWhitespace(c);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r');
+    }
+
+    private static int skipWhitespace(CharSequence json, int pos, int len) {
+        while ( (pos < len) && isWhitespace(json.charAt(pos)) ) {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericRecordBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Function;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Down-sampling of the raw sensor data (JSON strings): rolls the readings of every sensor up into
+ *  (reading time) buckets of "rollup_bucket_sec" seconds and publishes the reading count and the minimum,
+ *  maximum and average reading value of each bucket, i.e. one message per sensor and bucket instead of
+ *  one per reading.
+ *
+ *  A sensor's bucket is published when
+ *  - a reading of a later bucket of the sensor arrives, or
+ *  - (checked by a timer, so sensors that stop reporting are not held back) the watermark, i.e. the latest
+ *    reading time seen so far minus "rollup_allowed_lateness_sec", has passed the end of the bucket, or the
+ *    bucket has been open for longer than the bucket length plus the allowed lateness (processing time)
+ *  Readings of a bucket that is already published are late; they are dropped and counted.
+ *
+ *  Sensors that stopped reporting give up their place in the table (of at most "max_rollup_sensors"
+ *  sensors) once their last bucket is published and has ended more than one bucket length before the
+ *  watermark. Readings of sensors not in the table for buckets that old are late as well, as their
+ *  bucket may already be published.
+ */
+public class SensorRollupFunc implements Function<String, Void> {
+    private static final String avroSchemDef = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"SensorRollup\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingDate\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"BucketStartTime\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"BucketSeconds\", \"type\": \"int\"},\n" +
+            "    {\"name\": \"ReadingCount\", \"type\": \"int\"},\n" +
+            "    {\"name\": \"MinValue\", \"type\": \"float\"},\n" +
+            "    {\"name\": \"MaxValue\", \"type\": \"float\"},\n" +
+            "    {\"name\": \"AvgValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    private static final SchemaInfo OUTPUT_SCHEMA_INFO = SchemaInfo.builder()
+            .schema(avroSchemDef.getBytes(StandardCharsets.UTF_8))
+            .type(SchemaType.AVRO)
+            .properties(new HashMap<>())
+            .name("NBAvro")
+            .build();
+    private static final GenericAvroSchema OUTPUT_PULSAR_SCHEMA = new GenericAvroSchema(OUTPUT_SCHEMA_INFO);
+
+    private static final Field DRILL_ID_FIELD = getOutputField("DrillID");
+    private static final Field SENSOR_ID_FIELD = getOutputField("SensorID");
+    private static final Field SENSOR_TYPE_FIELD = getOutputField("SensorType");
+    private static final Field READING_DATE_FIELD = getOutputField("ReadingDate");
+    private static final Field BUCKET_START_TIME_FIELD = getOutputField("BucketStartTime");
+    private static final Field BUCKET_SECONDS_FIELD = getOutputField("BucketSeconds");
+    private static final Field READING_COUNT_FIELD = getOutputField("ReadingCount");
+    private static final Field MIN_VALUE_FIELD = getOutputField("MinValue");
+    private static final Field MAX_VALUE_FIELD = getOutputField("MaxValue");
+    private static final Field AVG_VALUE_FIELD = getOutputField("AvgValue");
+
+    // User config key: length of the rollup buckets (seconds)
+    public static final String BUCKET_SEC_KEY = "rollup_bucket_sec";
+    public static final int DEFAULT_BUCKET_SEC = 60;
+    // User config key: how long (seconds) after its end a bucket still takes readings
+    public static final String ALLOWED_LATENESS_KEY = "rollup_allowed_lateness_sec";
+    public static final int DEFAULT_ALLOWED_LATENESS = 10;
+    // User config key: maximum number of sensors with an open bucket
+    public static final String MAX_SENSORS_KEY = "max_rollup_sensors";
+    public static final int DEFAULT_MAX_SENSORS = 100000;
+
+    public static final String EMITTED_METRIC_NAME = "rollup_emitted";
+    public static final String LATE_READINGS_METRIC_NAME = "rollup_late_readings";
+    public static final String DROPPED_READINGS_METRIC_NAME = "rollup_dropped_readings";
+    public static final String EVICTED_SENSORS_METRIC_NAME = "rollup_evicted_sensors";
+    public static final String PUBLISH_FAILED_METRIC_NAME = "rollup_publish_failed";
+
+    // How often (at most) the timer checks for buckets to publish
+    private static final long FLUSH_CHECK_INTERVAL_MS = 1000L;
+
+    // Reused for every message of this function instance
+    private final SensorReading reading = new SensorReading();
+
+    private Context context;
+    private FunctionTimer timer;
+    private SensorRollupTable rollupTable;
+    private GenericRecordBuilder recordBuilder;
+
+    private int bucketSec;
+    private long allowedLatenessSec;
+    private long nextFlushCheckMs;
+    // Latest reading time seen so far
+    private long maxReadingTimeUnix = Long.MIN_VALUE;
+    // Latest bucket start of the sensors evicted so far
+    private long evictedMaxBucketStart = Long.MIN_VALUE;
+
+    private long emittedCnt = 0;
+    private long lateReadingCnt = 0;
+    private long droppedReadingCnt = 0;
+    private long evictedSensorCnt = 0;
+    private final AtomicLong publishFailedCnt = new AtomicLong();
+    private long reportedPublishFailedCnt = 0;
+
+    private static Field getOutputField(String fieldName) {
+        for (Field field : OUTPUT_PULSAR_SCHEMA.getFields()) {
+            if (field.getName().equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new RuntimeException("Field \"" + fieldName + "\" is not defined in the output Avro schema!");
+    }
+
+    // Synchronized with the flush timer, which publishes the due buckets when no more messages arrive
+    @Override
+    public synchronized Void process(String input, Context context) throws Exception {
+        if (rollupTable == null) {
+            initialize(context);
+        }
+
+        if (!StringUtils.isBlank(input)) {
+            if (!SensorReadingJsonScanner.scan(input, reading)) {
+                throw new IllegalArgumentException("Malformed sensor data message: " + input);
+            }
+            long readingTimeUnix = reading.getReadingTimeUnix();
+            if (readingTimeUnix == Long.MIN_VALUE) {
+                throw new IllegalArgumentException("Invalid \"ReadingTime\" value: " + reading.getReadingTime());
+            }
+
+            addReading(readingTimeUnix);
+        }
+
+        flushIfDue();
+        return null;
+    }
+
+    private void initialize(Context context) {
+        this.context = context;
+
+        bucketSec = Integer.parseInt(context.getUserConfigValueOrDefault(
+                BUCKET_SEC_KEY, DEFAULT_BUCKET_SEC).toString());
+        if (bucketSec <= 0) {
+            throw new IllegalArgumentException(String.format("\"%s\" must be positive", BUCKET_SEC_KEY));
+        }
+        allowedLatenessSec = Long.parseLong(context.getUserConfigValueOrDefault(
+                ALLOWED_LATENESS_KEY, DEFAULT_ALLOWED_LATENESS).toString());
+        if (allowedLatenessSec < 0) {
+            throw new IllegalArgumentException(String.format("\"%s\" must not be negative", ALLOWED_LATENESS_KEY));
+        }
+
+        rollupTable = new SensorRollupTable(Integer.parseInt(context.getUserConfigValueOrDefault(
+                MAX_SENSORS_KEY, DEFAULT_MAX_SENSORS).toString()));
+        recordBuilder = OUTPUT_PULSAR_SCHEMA.newRecordBuilder();
+
+        nextFlushCheckMs = System.currentTimeMillis() + FLUSH_CHECK_INTERVAL_MS;
+        timer = new FunctionTimer("rollup-flush-timer-" + context.getFunctionName());
+        timer.scheduleWithFixedDelay(this, SensorRollupFunc::flushOnTimer, FLUSH_CHECK_INTERVAL_MS);
+    }
+
+    // Add the current reading to the bucket of its sensor, publishing the sensor's previous bucket first
+    //   when the reading starts a new one
+    private void addReading(long readingTimeUnix) {
+        int slot = rollupTable.getOrAddSlot(reading);
+        if (slot < 0) {
+            droppedReadingCnt++;
+            return;
+        }
+
+        long bucketStart = Math.floorDiv(readingTimeUnix, (long) bucketSec) * bucketSec;
+        long currentBucketStart = rollupTable.getBucketStart(slot);
+        // A new sensor's bucket may have been published before the sensor was evicted
+        boolean newSensor = (currentBucketStart == Long.MIN_VALUE);
+        if ( (bucketStart < currentBucketStart) ||
+             ((bucketStart == currentBucketStart) && !rollupTable.isOpen(slot)) ||
+             (newSensor && (bucketStart <= evictedMaxBucketStart)) ) {
+            lateReadingCnt++;
+            return;
+        }
+
+        if (bucketStart > currentBucketStart) {
+            if (rollupTable.isOpen(slot)) {
+                publishBucket(slot);
+            }
+            rollupTable.openBucket(slot, bucketStart, System.currentTimeMillis());
+        }
+        rollupTable.add(slot, reading.getReadingValue());
+
+        if (readingTimeUnix > maxReadingTimeUnix) {
+            maxReadingTimeUnix = readingTimeUnix;
+        }
+    }
+
+    private synchronized void flushOnTimer() {
+        try {
+            flushIfDue();
+        }
+        catch (Exception e) {
+            context.getLogger().error("Failed to publish the sensor data rollups: {}", e.getMessage());
+        }
+    }
+
+    // Publish the buckets that are due (see above), at most once per check interval
+    private void flushIfDue() {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs < nextFlushCheckMs) {
+            return;
+        }
+        nextFlushCheckMs = currentTimeMs + FLUSH_CHECK_INTERVAL_MS;
+
+        // Buckets ending at or before the watermark, or open for too long
+        long maxBucketStart = (maxReadingTimeUnix == Long.MIN_VALUE)
+                ? Long.MIN_VALUE
+                : maxReadingTimeUnix - allowedLatenessSec - bucketSec;
+        long minOpenTimeMs = currentTimeMs - 1000L * (bucketSec + allowedLatenessSec);
+
+        // Sensors whose published bucket ended more than a bucket length before the watermark
+        long maxEvictBucketStart = (maxBucketStart == Long.MIN_VALUE) ? Long.MIN_VALUE : maxBucketStart - bucketSec;
+        int evictableCnt = 0;
+
+        int sensorNum = rollupTable.size();
+        for (int slot = 0; slot < sensorNum; slot++) {
+            if ( rollupTable.isOpen(slot) &&
+                 ((rollupTable.getBucketStart(slot) <= maxBucketStart) ||
+                  (rollupTable.getOpenTimeMs(slot) <= minOpenTimeMs)) ) {
+                publishBucket(slot);
+            }
+            if ( !rollupTable.isOpen(slot) && (rollupTable.getBucketStart(slot) <= maxEvictBucketStart) ) {
+                evictableCnt++;
+            }
+        }
+
+        // Free the slots of the sensors that stopped reporting
+        if (evictableCnt > 0) {
+            evictedSensorCnt += rollupTable.evictClosedBefore(maxEvictBucketStart);
+            evictedMaxBucketStart = Math.max(evictedMaxBucketStart, maxEvictBucketStart);
+        }
+
+        long publishFailed = publishFailedCnt.get();
+        context.recordMetric(EMITTED_METRIC_NAME, emittedCnt);
+        context.recordMetric(LATE_READINGS_METRIC_NAME, lateReadingCnt);
+        context.recordMetric(DROPPED_READINGS_METRIC_NAME, droppedReadingCnt);
+        context.recordMetric(EVICTED_SENSORS_METRIC_NAME, evictedSensorCnt);
+        context.recordMetric(PUBLISH_FAILED_METRIC_NAME, publishFailed - reportedPublishFailedCnt);
+        emittedCnt = 0;
+        lateReadingCnt = 0;
+        droppedReadingCnt = 0;
+        evictedSensorCnt = 0;
+        reportedPublishFailedCnt = publishFailed;
+    }
+
+    // Publish the open bucket in the slot and close it
+    private void publishBucket(int slot) {
+        rollupTable.closeBucket(slot);
+        emittedCnt++;
+
+        int count = rollupTable.getCount(slot);
+        String bucketStartTime = LocalDateTime.ofEpochSecond(rollupTable.getBucketStart(slot), 0, ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        GenericRecord pulsarAvroRecord = recordBuilder
+                .set(DRILL_ID_FIELD, rollupTable.getDrillId(slot))
+                .set(SENSOR_ID_FIELD, rollupTable.getSensorId(slot))
+                .set(SENSOR_TYPE_FIELD, rollupTable.getSensorType(slot))
+                .set(READING_DATE_FIELD, bucketStartTime.substring(0, 10))
+                .set(BUCKET_START_TIME_FIELD, bucketStartTime)
+                .set(BUCKET_SECONDS_FIELD, bucketSec)
+                .set(READING_COUNT_FIELD, count)
+                .set(MIN_VALUE_FIELD, rollupTable.getMinValue(slot))
+                .set(MAX_VALUE_FIELD, rollupTable.getMaxValue(slot))
+                .set(AVG_VALUE_FIELD, (float) (rollupTable.getSum(slot) / count))
+                .build();
+
+        try {
+            context.newOutputMessage(context.getOutputTopic(), OUTPUT_PULSAR_SCHEMA)
+                    .value(pulsarAvroRecord)
+                    .sendAsync()
+                    .whenComplete((messageId, throwable) -> {
+                        if (throwable != null) {
+                            publishFailedCnt.incrementAndGet();
+                        }
+                    });
+        }
+        catch (Exception e) {
+            publishFailedCnt.incrementAndGet();
+            context.getLogger().debug("Failed to publish sensor data rollup: {}", e.getMessage());
+        }
+    }
+
+    // Stop the flush timer (Pulsar 2.7 never calls this; the timer then ends with the instance)
+    public void close() {
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ *  Memory-bounded table of the open time bucket of every sensor, with the (count, sum, min, max) of the
+ *  reading values in the bucket.
+ *
+ *  Each sensor (see SensorReading.getSensorKey() and SensorKeyIndex) has one slot, whose accumulator is
+ *  reused for all its buckets: when a bucket is closed, the next reading of the sensor opens the next one
+ *  in the same slot. The accumulators are kept in primitive arrays, so adding a reading creates no object.
+ *  The slots of sensors that stopped reporting are freed with "evictClosedBefore()".
+ *
+ *  NOT thread-safe.
+ */
+public class SensorRollupTable {
+
+    private final SensorKeyIndex keyIndex;
+
+    private final long[] keys;
+    private final String[] drillIds;
+    private final String[] sensorIds;
+    private final String[] sensorTypes;
+
+    // Start (Unix time in seconds) of the latest bucket of the sensor, open or not
+    private final long[] bucketStarts;
+    // Processing time (milliseconds) the open bucket was opened at
+    private final long[] openTimesMs;
+    private final boolean[] open;
+    private final int[] counts;
+    private final double[] sums;
+    private final float[] minValues;
+    private final float[] maxValues;
+
+    public SensorRollupTable(int maxSensorNum) {
+        keyIndex = new SensorKeyIndex(maxSensorNum);
+
+        keys = new long[maxSensorNum];
+        drillIds = new String[maxSensorNum];
+        sensorIds = new String[maxSensorNum];
+        sensorTypes = new String[maxSensorNum];
+
+        bucketStarts = new long[maxSensorNum];
+        openTimesMs = new long[maxSensorNum];
+        open = new boolean[maxSensorNum];
+        counts = new int[maxSensorNum];
+        sums = new double[maxSensorNum];
+        minValues = new float[maxSensorNum];
+        maxValues = new float[maxSensorNum];
+    }
+
+    public int size() {
+        return keyIndex.size();
+    }
+
+    // Slot of the reading's sensor, adding the sensor if needed; -1 if the sensor is new and the table is full
+    public int getOrAddSlot(SensorReading reading) {
+        int prevSize = keyIndex.size();
+        int slot = keyIndex.getOrAddSlot(reading.getSensorKey());
+        if ( (slot >= 0) && (keyIndex.size() > prevSize) ) {
+            keys[slot] = reading.getSensorKey();
+            drillIds[slot] = reading.getDrillId();
+            sensorIds[slot] = reading.getSensorId();
+            sensorTypes[slot] = reading.getSensorType();
+            bucketStarts[slot] = Long.MIN_VALUE;
+            open[slot] = false;
+        }
+        return slot;
+    }
+
+    // Reset the accumulator in the slot for the bucket starting at "bucketStart"
+    public void openBucket(int slot, long bucketStart, long currentTimeMs) {
+        bucketStarts[slot] = bucketStart;
+        openTimesMs[slot] = currentTimeMs;
+        open[slot] = true;
+        counts[slot] = 0;
+        sums[slot] = 0;
+        minValues[slot] = Float.POSITIVE_INFINITY;
+        maxValues[slot] = Float.NEGATIVE_INFINITY;
+    }
+
+    // Add a reading value to the open bucket in the slot
+    public void add(int slot, float value) {
+        counts[slot]++;
+        sums[slot] += value;
+        if (value < minValues[slot]) {
+            minValues[slot] = value;
+        }
+        if (value > maxValues[slot]) {
+            maxValues[slot] = value;
+        }
+    }
+
+    public void closeBucket(int slot) {
+        open[slot] = false;
+    }
+
+    /**
+     *  Remove the sensors whose latest bucket is closed and started at or before "maxBucketStart" from the
+     *  table. The remaining sensors may move to other slots.
+     *
+     *  @return the number of removed sensors
+     */
+    public int evictClosedBefore(long maxBucketStart) {
+        int keptCnt = 0;
+        int oldCnt = keyIndex.size();
+
+        keyIndex.clear();
+        for (int slot = 0; slot < oldCnt; slot++) {
+            if ( open[slot] || (bucketStarts[slot] > maxBucketStart) ) {
+                int newSlot = keyIndex.getOrAddSlot(keys[slot]);
+                moveSlot(slot, newSlot);
+                keptCnt++;
+            }
+        }
+
+        Arrays.fill(drillIds, keptCnt, oldCnt, null);
+        Arrays.fill(sensorIds, keptCnt, oldCnt, null);
+        Arrays.fill(sensorTypes, keptCnt, oldCnt, null);
+
+        return oldCnt - keptCnt;
+    }
+
+    private void moveSlot(int from, int to) {
+        if (from == to) {
+            return;
+        }
+
+        keys[to] = keys[from];
+        drillIds[to] = drillIds[from];
+        sensorIds[to] = sensorIds[from];
+        sensorTypes[to] = sensorTypes[from];
+        bucketStarts[to] = bucketStarts[from];
+        openTimesMs[to] = openTimesMs[from];
+        open[to] = open[from];
+        counts[to] = counts[from];
+        sums[to] = sums[from];
+        minValues[to] = minValues[from];
+        maxValues[to] = maxValues[from];
+    }
+
+    public boolean isOpen(int slot) {
+        return open[slot];
+    }
+
+    public long getBucketStart(int slot) {
+        return bucketStarts[slot];
+    }
+
+    public long getOpenTimeMs(int slot) {
+        return openTimesMs[slot];
+    }
+
+    public String getDrillId(int slot) {
+        return drillIds[slot];
+    }
+
+    public String getSensorId(int slot) {
+        return sensorIds[slot];
+    }
+
+    public String getSensorType(int slot) {
+        return sensorTypes[slot];
+    }
+
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+
+    public double getSum(int slot) {
+        return sums[slot];
+    }
+
+    public float getMinValue(int slot) {
+        return minValues[slot];
+    }
+
+    public float getMaxValue(int slot) {
+        return maxValues[slot];
+    }
+}
@@ -0,0 +1,114 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroRecord;
+import org.apache.pulsar.functions.api.Context;
+
+/**
+ *  Sensor warning filter for raw sensor data published with the "raw_sensor_data" Avro schema
+ *  (misc/raw_sensor_data.avsc), e.g. by SensorDataProducer with "schema.type=avro".
+ *
+ *  Fields are read from the Avro record by position (resolved once per input schema), and string
+ *  fields are only materialized for the (few) readings that actually raise a warning.
+ */
+public class SensorWarnFilterAvroFunc extends AbstractSensorWarnFunc<GenericRecord> {
+
+    private static final String[] INPUT_FIELD_NAMES =
+            {"DrillID", "SensorID", "SensorType", "ReadingTime", "ReadingValue"};
+    private static final int DRILL_ID_IDX = 0;
+    private static final int SENSOR_ID_IDX = 1;
+    private static final int SENSOR_TYPE_IDX = 2;
+    private static final int READING_TIME_IDX = 3;
+    private static final int READING_VALUE_IDX = 4;
+
+    // Input Avro schema that the field positions below are resolved against
+    private Object inputAvroSchema;
+    private final int[] inputFieldPos = new int[INPUT_FIELD_NAMES.length];
+    // Fallback for generic records that are not Avro records
+    private final Field[] inputFields = new Field[INPUT_FIELD_NAMES.length];
+
+    // Reused for every message of this function instance
+    private final SensorReading reading = new SensorReading();
+
+    @Override
+    protected void processMessage(GenericRecord input, Context context) throws Exception {
+        if (input == null) {
+            return;
+        }
+
+        Object drillId;
+        Object sensorId;
+        Object sensorType;
+        Object readingTimeStr;
+        Object readValueObj;
+
+        if (input instanceof GenericAvroRecord) {
+            org.apache.pulsar.shade.org.apache.avro.generic.GenericRecord avroRecord =
+                    ((GenericAvroRecord) input).getAvroRecord();
+
+            // Field positions only need to be resolved again when the input schema (version) changes
+            if (avroRecord.getSchema() != inputAvroSchema) {
+                resolveFieldPositions(avroRecord.getSchema());
+            }
+
+            // Avro string fields are Utf8 char sequences; no String is created here
+            drillId = avroRecord.get(inputFieldPos[DRILL_ID_IDX]);
+            sensorId = avroRecord.get(inputFieldPos[SENSOR_ID_IDX]);
+            sensorType = avroRecord.get(inputFieldPos[SENSOR_TYPE_IDX]);
+            readingTimeStr = avroRecord.get(inputFieldPos[READING_TIME_IDX]);
+            readValueObj = avroRecord.get(inputFieldPos[READING_VALUE_IDX]);
+        }
+        else {
+            if (inputFields[0] == null) {
+                resolveFields(input);
+            }
+
+            drillId = input.getField(inputFields[DRILL_ID_IDX]);
+            sensorId = input.getField(inputFields[SENSOR_ID_IDX]);
+            sensorType = input.getField(inputFields[SENSOR_TYPE_IDX]);
+            readingTimeStr = input.getField(inputFields[READING_TIME_IDX]);
+            readValueObj = input.getField(inputFields[READING_VALUE_IDX]);
+        }
+
+        // Same as a message the JSON scanner can't read (see SensorWarnFilterFunc)
+        if ( !(drillId instanceof CharSequence) || !(sensorId instanceof CharSequence) ||
+             !(sensorType instanceof CharSequence) || !(readingTimeStr instanceof CharSequence) ||
+             !(readValueObj instanceof Number) ) {
+            throw new IllegalArgumentException("Malformed sensor data message: " + input);
+        }
+
+        reading.reset();
+        reading.setDrillId((CharSequence) drillId, 0, ((CharSequence) drillId).length());
+        reading.setSensorId((CharSequence) sensorId, 0, ((CharSequence) sensorId).length());
+        reading.setSensorType((CharSequence) sensorType, 0, ((CharSequence) sensorType).length());
+        reading.setReadingTime((CharSequence) readingTimeStr, 0, ((CharSequence) readingTimeStr).length());
+        reading.setReadingValue(((Number) readValueObj).floatValue());
+
+        processReading(reading, context);
+    }
+
+    private void resolveFieldPositions(org.apache.pulsar.shade.org.apache.avro.Schema avroSchema) {
+        for (int i = 0; i < INPUT_FIELD_NAMES.length; i++) {
+            org.apache.pulsar.shade.org.apache.avro.Schema.Field field = avroSchema.getField(INPUT_FIELD_NAMES[i]);
+            if (field == null) {
+                throw new RuntimeException("Field \"" + INPUT_FIELD_NAMES[i] + "\" is not defined in the input Avro schema!");
+            }
+            inputFieldPos[i] = field.pos();
+        }
+        inputAvroSchema = avroSchema;
+    }
+
+    private void resolveFields(GenericRecord input) {
+        for (int i = 0; i < INPUT_FIELD_NAMES.length; i++) {
+            for (Field field : input.getFields()) {
+                if (field.getName().equals(INPUT_FIELD_NAMES[i])) {
+                    inputFields[i] = field;
+                }
+            }
+            if (inputFields[i] == null) {
+                throw new RuntimeException("Field \"" + INPUT_FIELD_NAMES[i] + "\" is not defined in the input schema!");
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ *  Fixed-memory approximate top-K counter ("Space-Saving" algorithm) of string items, e.g. drill IDs.
+ *
+ *  At most "counterNum" items are counted. When a new item arrives and all counters are taken, the item
+ *  takes over the counter with the lowest count, and inherits that count as its (maximum) overestimation
+ *  error. So the count of an item is never underestimated, overestimated by at most "getError()", and
+ *  every item occurring more than (total count / counterNum) times is guaranteed to be counted.
+ *
+ *  The counters are kept in primitive arrays, ordered by a min-heap on the count (so the lowest counter is
+ *  found in O(1) and an increment costs O(log counterNum)), and found by item hash key through an open
+ *  addressing table. Counting an item that already has a counter creates no object.
+ *
+ *  NOT thread-safe.
+ */
+public class SpaceSavingTopK {
+
+    private static final long EMPTY_KEY = 0L;
+    // Substitute for a (real) key that happens to equal EMPTY_KEY
+    private static final long ZERO_KEY_SUBSTITUTE = 0x9E3779B97F4A7C15L;
+
+    private final int counterNum;
+
+    // Per counter: item hash key, item, count and overestimation error
+    private final long[] keys;
+    private final String[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private int size = 0;
+    private long totalCnt = 0;
+
+    // Min-heap of counter numbers by count, and the heap position of each counter
+    private final int[] heap;
+    private final int[] heapPos;
+
+    // Open addressing hash table (linear probing) of item key -> counter number, sized to a power of 2
+    private final long[] tableKeys;
+    private final int[] tableCounters;
+    private final int tableMask;
+
+    public SpaceSavingTopK(int counterNum) {
+        if (counterNum <= 0) {
+            throw new IllegalArgumentException("The number of counters must be positive: " + counterNum);
+        }
+        this.counterNum = counterNum;
+
+        keys = new long[counterNum];
+        items = new String[counterNum];
+        counts = new long[counterNum];
+        errors = new long[counterNum];
+        heap = new int[counterNum];
+        heapPos = new int[counterNum];
+
+        // Load factor of at most 0.5
+        int tableSize = Integer.highestOneBit(counterNum) << 2;
+        tableKeys = new long[tableSize];
+        tableCounters = new int[tableSize];
+        tableMask = tableSize - 1;
+    }
+
+    public int getCounterNum() {
+        return counterNum;
+    }
+
+    // Number of counters in use
+    public int size() {
+        return size;
+    }
+
+    // Total count of all items ever added
+    public long getTotalCnt() {
+        return totalCnt;
+    }
+
+    public String getItem(int counter) {
+        return items[counter];
+    }
+
+    public long getCount(int counter) {
+        return counts[counter];
+    }
+
+    public long getError(int counter) {
+        return errors[counter];
+    }
+
+    // Forget all items
+    public void clear() {
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        totalCnt = 0;
+    }
+
+    /**
+     *  Count one occurrence of the item seq[start, end).
+     *
+     *  @param key item hash key (see SensorFuncUtil.hash()); equal items must have equal keys
+     */
+    public void add(long key, CharSequence seq, int start, int end) {
+        key = (key == EMPTY_KEY) ? ZERO_KEY_SUBSTITUTE : key;
+        totalCnt++;
+
+        int pos = findPos(key);
+        if (tableKeys[pos] == key) {
+            int counter = tableCounters[pos];
+            counts[counter]++;
+            siftDown(heapPos[counter]);
+            return;
+        }
+
+        int counter;
+        if (size < counterNum) {
+            counter = size++;
+            counts[counter] = 0;
+            errors[counter] = 0;
+            heap[counter] = counter;
+            heapPos[counter] = counter;
+            siftUp(counter);
+        }
+        else {
+            // Take over the lowest counter
+            counter = heap[0];
+            removeKey(keys[counter]);
+            errors[counter] = counts[counter];
+            pos = findPos(key);
+        }
+
+        keys[counter] = key;
+        items[counter] = seq.subSequence(start, end).toString();
+        counts[counter]++;
+        tableKeys[pos] = key;
+        tableCounters[pos] = counter;
+        siftDown(heapPos[counter]);
+    }
+
+    /**
+     *  Counter numbers of the (at most) "n" items with the highest counts, highest first.
+     */
+    public int[] getTopCounters(int n) {
+        Integer[] counters = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = i;
+        }
+        Arrays.sort(counters, (c1, c2) -> Long.compare(counts[c2], counts[c1]));
+
+        int[] topCounters = new int[Math.min(n, size)];
+        for (int i = 0; i < topCounters.length; i++) {
+            topCounters[i] = counters[i];
+        }
+        return topCounters;
+    }
+
+    // Table position of the key, or of the empty entry where it would be added
+    private int findPos(long key) {
+        int pos = mix(key) & tableMask;
+        while ( (tableKeys[pos] != EMPTY_KEY) && (tableKeys[pos] != key) ) {
+            pos = (pos + 1) & tableMask;
+        }
+        return pos;
+    }
+
+    // Remove the key from the table, moving back the entries after it (no tombstones)
+    private void removeKey(long key) {
+        int pos = findPos(key);
+        tableKeys[pos] = EMPTY_KEY;
+
+        for (int next = (pos + 1) & tableMask; tableKeys[next] != EMPTY_KEY; next = (next + 1) & tableMask) {
+            int home = mix(tableKeys[next]) & tableMask;
+            // Move the entry back if its home position is not within (pos, next]
+            if ( ((next - home) & tableMask) >= ((next - pos) & tableMask) ) {
+                tableKeys[pos] = tableKeys[next];
+                tableCounters[pos] = tableCounters[next];
+                tableKeys[next] = EMPTY_KEY;
+                pos = next;
+            }
+        }
+    }
+
+    private void siftUp(int i) {
+        int counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            setHeap(i, heap[parent]);
+            i = parent;
+        }
+        setHeap(i, counter);
+    }
+
+    private void siftDown(int i) {
+        int counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if ( (child + 1 < size) && (counts[heap[child + 1]] < counts[heap[child]]) ) {
+                child++;
+            }
+            if (counts[counter] <= counts[heap[child]]) {
+                break;
+            }
+            setHeap(i, heap[child]);
+            i = child;
+        }
+        setHeap(i, counter);
+    }
+
+    private void setHeap(int i, int counter) {
+        heap[i] = counter;
+        heapPos[counter] = i;
+    }
+
+    private static int mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example;
+
+/**
+ *  Compiled warning rule of one sensor type (optionally for one specific drill), e.g.
+ *      "speed: max=2500, max_rate=50"
+ *
+ *  A reading is a warning if its value is out of [min, max], or if the value changes faster than
+ *  "max_rate" (units per second) compared with the previous reading of the same sensor.
+ *  Unspecified bounds never trigger a warning.
+ */
+public class WarnRule {
+
+    public final float min;
+    public final float max;
+    public final float maxRatePerSec;
+
+    public WarnRule(float min, float max, float maxRatePerSec) {
+        this.min = min;
+        this.max = max;
+        this.maxRatePerSec = maxRatePerSec;
+    }
+
+    // Whether the value is out of the [min, max] range
+    public boolean isOutOfRange(float value) {
+        return (value > max) || (value < min);
+    }
+
+    // Whether the rule has a rate-of-change limit (and therefore needs the previous reading of the sensor)
+    public boolean hasRateLimit() {
+        return maxRatePerSec != Float.POSITIVE_INFINITY;
+    }
+
+    // Whether the change from the previous reading is faster than the rate-of-change limit
+    public boolean isRateExceeded(float prevValue, long prevTimeUnix, float value, long timeUnix) {
+        long elapsedSec = timeUnix - prevTimeUnix;
+        if (elapsedSec <= 0) {
+            return false;
+        }
+        return Math.abs(value - prevValue) > maxRatePerSec * elapsedSec;
+    }
+
+    @Override
+    public String toString() {
+        return "min=" + min + ", max=" + max + ", max_rate=" + maxRatePerSec;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  Compiled set of warning rules, built from a rule specification like
+ *      "temp: max=400; speed: max=2500, max_rate=50; pressure: min=10, max=90; DRL-007/temp: max=380"
+ *
+ *  - rules are separated by ';'
+ *  - each rule is "[<drill id>/]<sensor type>: <setting>=<value>[, <setting>=<value>]*", with the
+ *    settings "min", "max" and "max_rate" (maximum change of the reading value per second)
+ *  - a rule with a drill ID overrides the rule of the same sensor type for that drill only
+ *  - readings of sensor types without any rule never raise a warning
+ *
+ *  The sensor type of a reading is resolved to an index into a rule lookup table once per message,
+ *  without creating any object. A rule set is immutable once built.
+ */
+public class WarnRuleSet {
+
+    public static final String DEFAULT_RULES = "temp: max=400; speed: max=2500";
+
+    private static final String MIN_SETTING = "min";
+    private static final String MAX_SETTING = "max";
+    private static final String MAX_RATE_SETTING = "max_rate";
+
+    private final String spec;
+
+    // Sensor type index -> sensor type (lower case) and its default rule (null if none)
+    private final String[] sensorTypes;
+    private final WarnRule[] typeRules;
+
+    // Per drill overrides: drill key (see SensorReading.getDrillKey()) -> slot -> rule per sensor type index
+    private final SensorKeyIndex drillIndex;
+    private final WarnRule[][] drillRules;
+
+    private final boolean hasRateLimit;
+
+    private WarnRuleSet(String spec,
+                        String[] sensorTypes,
+                        WarnRule[] typeRules,
+                        SensorKeyIndex drillIndex,
+                        WarnRule[][] drillRules) {
+        this.spec = spec;
+        this.sensorTypes = sensorTypes;
+        this.typeRules = typeRules;
+        this.drillIndex = drillIndex;
+        this.drillRules = drillRules;
+
+        boolean rateLimit = false;
+        for (WarnRule rule : typeRules) {
+            rateLimit |= (rule != null) && rule.hasRateLimit();
+        }
+        for (WarnRule[] rules : drillRules) {
+            for (WarnRule rule : rules) {
+                rateLimit |= (rule != null) && rule.hasRateLimit();
+            }
+        }
+        this.hasRateLimit = rateLimit;
+    }
+
+    // Compile a rule specification (see above); throws IllegalArgumentException for an invalid specification
+    public static WarnRuleSet parse(String spec) {
+        if (StringUtils.isBlank(spec)) {
+            throw new IllegalArgumentException("Warning rule specification must NOT be empty!");
+        }
+
+        List<String> sensorTypeList = new ArrayList<>();
+        Map<String, WarnRule> typeRuleMap = new LinkedHashMap<>();
+        Map<String, Map<String, WarnRule>> drillRuleMap = new LinkedHashMap<>();
+
+        for (String ruleStr : StringUtils.split(spec, ';')) {
+            if (StringUtils.isBlank(ruleStr)) {
+                continue;
+            }
+
+            String target = StringUtils.substringBefore(ruleStr, ":").trim();
+            String settings = StringUtils.substringAfter(ruleStr, ":").trim();
+            if (StringUtils.isAnyBlank(target, settings)) {
+                throw new IllegalArgumentException("Invalid warning rule (\"" + ruleStr.trim() + "\"), " +
+                        "expecting \"[<drill id>/]<sensor type>: <setting>=<value>, ...\"");
+            }
+
+            String drillId = null;
+            String sensorType = target;
+            if (target.contains("/")) {
+                drillId = StringUtils.substringBeforeLast(target, "/").trim();
+                sensorType = StringUtils.substringAfterLast(target, "/").trim();
+            }
+            sensorType = sensorType.toLowerCase();
+
+            if (!sensorTypeList.contains(sensorType)) {
+                sensorTypeList.add(sensorType);
+            }
+
+            WarnRule rule = parseRule(ruleStr.trim(), settings);
+            if (drillId == null) {
+                typeRuleMap.put(sensorType, rule);
+            }
+            else {
+                drillRuleMap.computeIfAbsent(drillId, k -> new LinkedHashMap<>()).put(sensorType, rule);
+            }
+        }
+
+        if (sensorTypeList.isEmpty()) {
+            throw new IllegalArgumentException("No warning rule is defined in \"" + spec + "\"");
+        }
+
+        String[] sensorTypes = sensorTypeList.toArray(new String[0]);
+        WarnRule[] typeRules = new WarnRule[sensorTypes.length];
+        for (int typeIdx = 0; typeIdx < sensorTypes.length; typeIdx++) {
+            typeRules[typeIdx] = typeRuleMap.get(sensorTypes[typeIdx]);
+        }
+
+        SensorKeyIndex drillIndex = new SensorKeyIndex(Math.max(1, drillRuleMap.size()));
+        WarnRule[][] drillRules = new WarnRule[drillRuleMap.size()][];
+        for (Map.Entry<String, Map<String, WarnRule>> entry : drillRuleMap.entrySet()) {
+            String drillId = entry.getKey();
+            int slot = drillIndex.getOrAddSlot(SensorFuncUtil.hash(SensorFuncUtil.HASH_SEED, drillId, 0, drillId.length()));
+
+            // Sensor types without a drill specific rule fall back to the default rule
+            drillRules[slot] = typeRules.clone();
+            for (int typeIdx = 0; typeIdx < sensorTypes.length; typeIdx++) {
+                WarnRule rule = entry.getValue().get(sensorTypes[typeIdx]);
+                if (rule != null) {
+                    drillRules[slot][typeIdx] = rule;
+                }
+            }
+        }
+
+        return new WarnRuleSet(spec, sensorTypes, typeRules, drillIndex, drillRules);
+    }
+
+    private static WarnRule parseRule(String ruleStr, String settings) {
+        float min = Float.NEGATIVE_INFINITY;
+        float max = Float.POSITIVE_INFINITY;
+        float maxRate = Float.POSITIVE_INFINITY;
+
+        for (String setting : StringUtils.split(settings, ',')) {
+            String name = StringUtils.substringBefore(setting, "=").trim().toLowerCase();
+            String valueStr = StringUtils.substringAfter(setting, "=").trim();
+
+            float value;
+            try {
+                value = Float.parseFloat(valueStr);
+            }
+            catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Invalid setting value (\"" + setting.trim() + "\") " +
+                        "in warning rule \"" + ruleStr + "\"");
+            }
+
+            if (MIN_SETTING.equals(name)) {
+                min = value;
+            }
+            else if (MAX_SETTING.equals(name)) {
+                max = value;
+            }
+            else if (MAX_RATE_SETTING.equals(name)) {
+                if (value <= 0) {
+                    throw new IllegalArgumentException("\"" + MAX_RATE_SETTING + "\" must be positive " +
+                            "in warning rule \"" + ruleStr + "\"");
+                }
+                maxRate = value;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown setting (\"" + name + "\") in warning rule \"" + ruleStr + "\". " +
+                        "Valid settings: " + MIN_SETTING + "," + MAX_SETTING + "," + MAX_RATE_SETTING);
+            }
+        }
+
+        return new WarnRule(min, max, maxRate);
+    }
+
+    public String getSpec() {
+        return spec;
+    }
+
+    // Whether any rule has a rate-of-change limit
+    public boolean hasRateLimit() {
+        return hasRateLimit;
+    }
+
+    // Index of the reading's sensor type in the rule lookup table; -1 if there is no rule for the sensor type
+    public int getSensorTypeIdx(SensorReading reading) {
+        for (int typeIdx = 0; typeIdx < sensorTypes.length; typeIdx++) {
+            if (reading.sensorTypeEquals(sensorTypes[typeIdx])) {
+                return typeIdx;
+            }
+        }
+        return -1;
+    }
+
+    // Rule that applies to the reading (drill override first); null if no rule applies
+    public WarnRule getRule(int sensorTypeIdx, SensorReading reading) {
+        if (sensorTypeIdx < 0) {
+            return null;
+        }
+
+        if (drillRules.length > 0) {
+            int slot = drillIndex.getSlot(reading.getDrillKey());
+            if (slot >= 0) {
+                return drillRules[slot][sensorTypeIdx];
+            }
+        }
+
+        return typeRules[sensorTypeIdx];
+    }
+}
@@ -0,0 +1,242 @@
+package com.example;
+
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.functions.api.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  Micro-batching output stage of the warning filter functions.
+ *
+ *  Warning records are buffered and published together when either "maxBatchRecords" records are
+ *  buffered or the oldest buffered record is "maxBatchDelayMs" old. The function instance's timer (see
+ *  FunctionTimer) makes sure a partial batch is not held back when no more messages arrive.
+ *
+ *  At most "maxInFlight" messages are being sent at any time. When this limit is reached, publishing
+ *  (and therefore the function's "process" call) blocks until earlier sends complete, which in turn
+ *  slows down the consumption of the input topic (backpressure). The timer never blocks: it only sends
+ *  as many records as there are free in-flight permits, and leaves the rest of the batch for later.
+ *
+ *  Delivery: Pulsar acknowledges an input message when "process" returns, i.e. before the warning it
+ *  produced is published. Warnings still buffered (at most "maxBatchRecords" records or "maxBatchDelayMs"
+ *  worth of them) or in flight are therefore lost if the function instance crashes; they are published
+ *  at most once. "maxBatchRecords" = 1 hands every warning to the Pulsar client within "process" again.
+ *
+ *  Publish success/failure counts are reported through "context.recordMetric" after each batch.
+ *
+ *  The records are published to the function's output topic, unless another topic is given (e.g. the
+ *  late warning topic); the metrics of such a publisher are then named with its own prefix.
+ */
+public class WarningPublisher {
+
+    public static final String PUBLISH_SUCCEEDED_METRIC_NAME = "warn_publish_succeeded";
+    public static final String PUBLISH_FAILED_METRIC_NAME = "warn_publish_failed";
+    public static final String PUBLISH_BATCH_SIZE_METRIC_NAME = "warn_publish_batch_size";
+    public static final String PUBLISH_IN_FLIGHT_METRIC_NAME = "warn_publish_in_flight";
+    public static final String DEFAULT_METRIC_NAME_PREFIX = "warn_publish";
+
+    private final Schema<GenericRecord> schema;
+    // null for the function's output topic
+    private final String outputTopic;
+    private final String succeededMetricName;
+    private final String failedMetricName;
+    private final String batchSizeMetricName;
+    private final String inFlightMetricName;
+    private final int maxBatchRecords;
+    private final long maxBatchDelayMs;
+    private final int maxInFlight;
+    private final Semaphore inFlightPermits;
+    // Guards the batch; the timer only tries to take it, so it never waits for a blocked "process" call
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledFuture<?> flushTask;
+
+    private final List<GenericRecord> batch;
+    private long batchStartTimeMs;
+    private Context context;
+
+    private final AtomicLong succeededCnt = new AtomicLong();
+    private final AtomicLong failedCnt = new AtomicLong();
+    private long reportedSucceededCnt = 0;
+    private long reportedFailedCnt = 0;
+
+    public WarningPublisher(Schema<GenericRecord> schema,
+                            FunctionTimer timer,
+                            int maxBatchRecords,
+                            long maxBatchDelayMs,
+                            int maxInFlight) {
+        this(schema, timer, null, DEFAULT_METRIC_NAME_PREFIX, maxBatchRecords, maxBatchDelayMs, maxInFlight);
+    }
+
+    public WarningPublisher(Schema<GenericRecord> schema,
+                            FunctionTimer timer,
+                            String outputTopic,
+                            String metricNamePrefix,
+                            int maxBatchRecords,
+                            long maxBatchDelayMs,
+                            int maxInFlight) {
+        if ( (maxBatchRecords <= 0) || (maxBatchDelayMs < 0) || (maxInFlight <= 0) ) {
+            String errMsg = String.format("Invalid warning publisher settings: maxBatchRecords=%d, " +
+                    "maxBatchDelayMs=%d, maxInFlight=%d", maxBatchRecords, maxBatchDelayMs, maxInFlight);
+            throw new IllegalArgumentException(errMsg);
+        }
+
+        this.schema = schema;
+        this.outputTopic = outputTopic;
+        this.succeededMetricName = metricNamePrefix + "_succeeded";
+        this.failedMetricName = metricNamePrefix + "_failed";
+        this.batchSizeMetricName = metricNamePrefix + "_batch_size";
+        this.inFlightMetricName = metricNamePrefix + "_in_flight";
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        this.maxInFlight = maxInFlight;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.batch = new ArrayList<>(maxBatchRecords);
+
+        this.flushTask = ( (maxBatchRecords > 1) && (maxBatchDelayMs > 0) )
+                ? timer.scheduleWithFixedDelay(this, WarningPublisher::flushIfDue, maxBatchDelayMs)
+                : null;
+    }
+
+    public long getSucceededCnt() {
+        return succeededCnt.get();
+    }
+
+    public long getFailedCnt() {
+        return failedCnt.get();
+    }
+
+    // Add a warning record to the current batch, publishing the batch when it is full or due
+    public void add(Context context, GenericRecord record) throws Exception {
+        lock.lock();
+        try {
+            this.context = context;
+
+            if (batch.isEmpty()) {
+                batchStartTimeMs = System.currentTimeMillis();
+            }
+            batch.add(record);
+
+            if ( (batch.size() >= maxBatchRecords) ||
+                 (System.currentTimeMillis() - batchStartTimeMs >= maxBatchDelayMs) ) {
+                publish(true);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Publish the current batch if its oldest record has waited long enough (called by the timer).
+    //   Never blocks: skipped while "process" holds the batch, and only sends what the in-flight limit allows.
+    public void flushIfDue() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if ( !batch.isEmpty() && (System.currentTimeMillis() - batchStartTimeMs >= maxBatchDelayMs) ) {
+                publish(false);
+            }
+        }
+        catch (Exception e) {
+            context.getLogger().error("Failed to publish warning messages: {}", e.getMessage());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Publish all buffered records
+    public void flush() throws Exception {
+        lock.lock();
+        try {
+            publish(true);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Stop the timer task of this publisher; buffered records are still published by "add" or "flush"
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+    }
+
+    // Publish the buffered records; without "wait", stop at the in-flight limit and keep the rest
+    private void publish(boolean wait) throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        String topic = (outputTopic != null) ? outputTopic : context.getOutputTopic();
+        int sentCnt = 0;
+
+        for (GenericRecord record : batch) {
+            // Blocks when too many messages are still in flight
+            if (wait) {
+                inFlightPermits.acquire();
+            }
+            else if (!inFlightPermits.tryAcquire()) {
+                break;
+            }
+            sentCnt++;
+
+            try {
+                context.newOutputMessage(topic, schema)
+                        .value(record)
+                        .sendAsync()
+                        .whenComplete((messageId, throwable) -> {
+                            inFlightPermits.release();
+                            if (throwable == null) {
+                                succeededCnt.incrementAndGet();
+                            }
+                            else {
+                                failedCnt.incrementAndGet();
+                            }
+                        });
+            }
+            catch (Exception e) {
+                inFlightPermits.release();
+                failedCnt.incrementAndGet();
+                context.getLogger().debug("Failed to publish warning message: {}", e.getMessage());
+            }
+        }
+
+        if (sentCnt == batch.size()) {
+            batch.clear();
+        }
+        else if (sentCnt > 0) {
+            batch.subList(0, sentCnt).clear();
+        }
+
+        if (sentCnt > 0) {
+            recordMetrics(topic, sentCnt);
+        }
+    }
+
+    // Report the publish results since the last report
+    private void recordMetrics(String topic, int batchSize) {
+        long succeeded = succeededCnt.get();
+        long failed = failedCnt.get();
+
+        context.recordMetric(batchSizeMetricName, batchSize);
+        context.recordMetric(succeededMetricName, succeeded - reportedSucceededCnt);
+        context.recordMetric(failedMetricName, failed - reportedFailedCnt);
+        context.recordMetric(inFlightMetricName, maxInFlight - inFlightPermits.availablePermits());
+
+        if (failed > reportedFailedCnt) {
+            context.getLogger().warn("{} warning message(s) failed to publish to {}",
+                    failed - reportedFailedCnt, topic);
+        }
+
+        reportedSucceededCnt = succeeded;
+        reportedFailedCnt = failed;
+    }
+}
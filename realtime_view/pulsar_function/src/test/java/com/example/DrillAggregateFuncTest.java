@@ -0,0 +1,146 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  DrillAggregateFunc with the in-memory aggregate state store ("aggregate_state_store" = "memory") and
+ *  1 second windows, checked through the published aggregate records.
+ */
+public class DrillAggregateFuncTest {
+
+    private static final String MESSAGE_FORMAT = "{\"DrillID\": \"%s\", \"SensorID\": \"SNS-%s-01\", " +
+            "\"SensorType\": \"%s\", \"ReadingTime\": \"%s\", \"ReadingValue\": %.2f}";
+
+    private DrillAggregateFunc function;
+    private RecordingContext context;
+
+    @BeforeEach
+    public void setUp() {
+        function = new DrillAggregateFunc();
+        context = new RecordingContext()
+                .withUserConfig(DrillAggregateFunc.STATE_STORE_KEY, DrillAggregateFunc.STATE_STORE_MEMORY)
+                .withUserConfig(DrillAggregateFunc.WINDOW_SEC_KEY, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        function.close();
+    }
+
+    private void process(String drillId, String sensorType, String readingTime, float value) throws Exception {
+        function.process(String.format(MESSAGE_FORMAT, drillId, sensorType, sensorType, readingTime, value), context);
+    }
+
+    // Wait until the current (1 second) window is over and close it, unless the window timer already did
+    private void closeWindow() throws Exception {
+        Thread.sleep(1100);
+        function.process("", context);
+    }
+
+    // Latest published aggregate per "DrillID/ReadingDate/SensorType"
+    private static Map<String, GenericRecord> latestAggregates(List<Object> sentValues) {
+        Map<String, GenericRecord> latest = new HashMap<>();
+        for (Object value : sentValues) {
+            GenericRecord record = (GenericRecord) value;
+            latest.put(record.getField("DrillID") + "/" + record.getField("ReadingDate") + "/" +
+                    record.getField("SensorType"), record);
+        }
+        return latest;
+    }
+
+    private static void assertAggregate(GenericRecord record, long count, double sum, float min, float max) {
+        assertNotNull(record);
+        assertEquals(count, record.getField("ReadingCount"));
+        assertEquals(sum, (Double) record.getField("SumValue"), 1e-6);
+        assertEquals(min, record.getField("MinValue"));
+        assertEquals(max, record.getField("MaxValue"));
+        assertEquals((float) (sum / count), record.getField("AvgValue"));
+    }
+
+    @Test
+    public void makesRoomInFullTableInsteadOfDroppingReadings() throws Exception {
+        context.withUserConfig(DrillAggregateFunc.MAX_AGGREGATES_KEY, 10);
+
+        int drillNum = 50;
+        for (int value = 1; value <= 3; value++) {
+            for (int drill = 0; drill < drillNum; drill++) {
+                process(String.format("DRL-%03d", drill), "temp", "2026-10-18T10:00:0" + value, value);
+            }
+        }
+        // The table only takes 10 aggregates, so most were already published to make room
+        assertTrue(context.getSentCnt() >= drillNum);
+
+        // The window end publishes the rest
+        closeWindow();
+
+        Map<String, GenericRecord> latest = latestAggregates(context.getSentValues());
+        assertEquals(drillNum, latest.size());
+        for (int drill = 0; drill < drillNum; drill++) {
+            assertAggregate(latest.get(String.format("DRL-%03d/2026-10-18/temp", drill)), 3, 6.0, 1f, 3f);
+        }
+        assertEquals(0.0, context.getMetricSum(DrillAggregateFunc.DROPPED_READINGS_METRIC_NAME));
+        assertTrue(context.getMetricSum(DrillAggregateFunc.EVICTED_METRIC_NAME) > 0);
+    }
+
+    @Test
+    public void reloadsEvictedAggregateFromStateStore() throws Exception {
+        context.withUserConfig(DrillAggregateFunc.MAX_AGGREGATES_KEY, 10);
+
+        process("DRL-000", "temp", "2026-10-17T23:59:00", 5f);
+        // Aggregates of the next date fill the table, so the one of the past date is evicted
+        for (int drill = 1; drill <= 10; drill++) {
+            process(String.format("DRL-%03d", drill), "temp", "2026-10-18T00:00:10", 1f);
+        }
+        Map<String, GenericRecord> latest = latestAggregates(context.getSentValues());
+        assertAggregate(latest.get("DRL-000/2026-10-17/temp"), 1, 5.0, 5f, 5f);
+
+        // A late reading of the past date continues the persisted aggregate
+        process("DRL-000", "temp", "2026-10-17T23:59:30", 7f);
+        closeWindow();
+
+        latest = latestAggregates(context.getSentValues());
+        assertAggregate(latest.get("DRL-000/2026-10-17/temp"), 2, 12.0, 5f, 7f);
+        for (int drill = 1; drill <= 10; drill++) {
+            assertAggregate(latest.get(String.format("DRL-%03d/2026-10-18/temp", drill)), 1, 1.0, 1f, 1f);
+        }
+        assertTrue(context.getMetricSum(DrillAggregateFunc.EVICTED_METRIC_NAME) > 0);
+    }
+
+    @Test
+    public void publishesOnlyChangedAggregatesAtWindowEnd() throws Exception {
+        process("DRL-001", "temp", "2026-10-18T10:00:00", 300f);
+        process("DRL-001", "speed", "2026-10-18T10:00:00", 2000f);
+        process("DRL-002", "temp", "2026-10-18T10:00:00", 310f);
+        closeWindow();
+
+        List<Object> sentValues = context.getSentValues();
+        assertEquals(3, sentValues.size());
+        Map<String, GenericRecord> first = latestAggregates(sentValues);
+        assertAggregate(first.get("DRL-001/2026-10-18/temp"), 1, 300.0, 300f, 300f);
+        assertAggregate(first.get("DRL-001/2026-10-18/speed"), 1, 2000.0, 2000f, 2000f);
+        assertAggregate(first.get("DRL-002/2026-10-18/temp"), 1, 310.0, 310f, 310f);
+
+        // Only the aggregate updated in the next window is published again
+        process("DRL-001", "temp", "2026-10-18T10:00:01", 320f);
+        closeWindow();
+        closeWindow();
+
+        sentValues = context.getSentValues();
+        assertEquals(4, sentValues.size());
+        Map<String, GenericRecord> second = latestAggregates(sentValues.subList(3, 4));
+        assertEquals(1, second.size());
+        assertAggregate(second.get("DRL-001/2026-10-18/temp"), 2, 620.0, 300f, 320f);
+        assertEquals(4.0, context.getMetricSum(DrillAggregateFunc.EMITTED_METRIC_NAME));
+    }
+}
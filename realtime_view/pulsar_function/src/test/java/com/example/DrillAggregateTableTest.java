@@ -0,0 +1,90 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DrillAggregateTableTest {
+
+    private static SensorReading reading(String drillId, String readingTime, String sensorType) {
+        SensorReading reading = new SensorReading();
+        reading.setDrillId(drillId, 0, drillId.length());
+        reading.setSensorId("SNS-01", 0, 6);
+        reading.setSensorType(sensorType, 0, sensorType.length());
+        reading.setReadingTime(readingTime, 0, readingTime.length());
+        return reading;
+    }
+
+    @Test
+    public void addsAggregateUntilFull() {
+        DrillAggregateTable table = new DrillAggregateTable(2);
+
+        assertTrue(table.addSlot(reading("DRL-001", "2026-10-18T10:00:00", "temp")) >= 0);
+        assertTrue(table.addSlot(reading("DRL-002", "2026-10-18T10:00:00", "temp")) >= 0);
+        assertEquals(-1, table.addSlot(reading("DRL-003", "2026-10-18T10:00:00", "temp")));
+        // Same drill, date and sensor type, so the same aggregate
+        assertEquals(table.getSlot(reading("DRL-001", "2026-10-18T10:00:00", "temp")),
+                table.getSlot(reading("DRL-001", "2026-10-18T23:59:59", "temp")));
+    }
+
+    @Test
+    public void evictsOnlyPersistedAggregatesOfPastDates() {
+        DrillAggregateTable table = new DrillAggregateTable(10);
+        int persistedSlot = table.addSlot(reading("DRL-001", "2026-10-17T23:00:00", "temp"));
+        table.update(persistedSlot, 1f);
+        table.clearUpdated();
+        int updatedSlot = table.addSlot(reading("DRL-002", "2026-10-17T23:00:00", "temp"));
+        table.update(updatedSlot, 2f);
+        int currentSlot = table.addSlot(reading("DRL-003", "2026-10-18T00:00:00", "temp"));
+        table.update(currentSlot, 3f);
+
+        assertEquals(1, table.evictBefore("2026-10-18"));
+        assertEquals(2, table.size());
+        assertEquals(-1, table.getSlot(reading("DRL-001", "2026-10-17T23:00:00", "temp")));
+
+        // The kept aggregates may have moved, but are still tracked as updated
+        assertEquals(2, table.getUpdatedCnt());
+        for (int i = 0; i < table.getUpdatedCnt(); i++) {
+            int slot = table.getUpdatedSlot(i);
+            assertEquals(slot, table.getSlot(reading(table.getDrillId(slot), table.getReadingDate(slot) + "T00:00:00",
+                    table.getSensorType(slot))));
+        }
+        int slot = table.getSlot(reading("DRL-002", "2026-10-17T23:00:00", "temp"));
+        assertEquals(1, table.getCount(slot));
+        assertEquals(2f, table.getMinValue(slot));
+    }
+
+    @Test
+    public void restoresAggregateFromStateStore() {
+        InMemoryAggregateStateStore stateStore = new InMemoryAggregateStateStore();
+        ByteBuffer stateBuffer = ByteBuffer.allocate(DrillAggregateTable.STATE_VALUE_SIZE);
+        SensorReading reading = reading("DRL-001", "2026-10-18T10:00:00", "temp");
+
+        DrillAggregateTable table = new DrillAggregateTable(10);
+        int slot = table.addSlot(reading);
+        table.update(slot, 300f);
+        table.update(slot, 320f);
+        stateStore.put(table.getStateKey(slot), table.writeState(slot, stateBuffer));
+        table.clear();
+        assertEquals(0, table.size());
+
+        // The buffer is reused for the next aggregate, the stored value must not change with it
+        table.writeState(table.addSlot(reading("DRL-002", "2026-10-18T10:00:00", "temp")), stateBuffer);
+
+        slot = table.addSlot(reading);
+        ByteBuffer state = stateStore.get(table.getStateKey(slot));
+        assertNotNull(state);
+        table.readState(slot, state);
+        table.update(slot, 310f);
+
+        assertEquals(3, table.getCount(slot));
+        assertEquals(930.0, table.getSum(slot), 1e-6);
+        assertEquals(300f, table.getMinValue(slot));
+        assertEquals(320f, table.getMaxValue(slot));
+        assertEquals("DRL-001/2026-10-18/temp", table.getStateKey(slot));
+    }
+}
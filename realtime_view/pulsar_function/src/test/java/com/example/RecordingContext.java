@@ -0,0 +1,325 @@
+package com.example;
+
+import org.apache.pulsar.client.api.ConsumerBuilder;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.TypedMessageBuilder;
+import org.apache.pulsar.functions.api.Context;
+import org.apache.pulsar.functions.api.Record;
+import org.apache.pulsar.functions.api.StateStore;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  In-memory stand-in of the Pulsar function runtime context for tests:
+ *  - every sent output message value is recorded, and every send succeeds right away
+ *  - user config and state are kept in plain maps
+ *  - metrics are summed up over all recorded values
+ *
+ *  The function timers publish from their own thread, so the recorded messages and metrics are synchronized.
+ */
+public class RecordingContext implements Context {
+
+    private final Map<String, Object> userConfig = new HashMap<>();
+    private final Map<String, ByteBuffer> state = new HashMap<>();
+    private final Map<String, Double> metrics = new HashMap<>();
+    private final List<Object> sentValues = new ArrayList<>();
+
+    public RecordingContext withUserConfig(String key, Object value) {
+        userConfig.put(key, value);
+        return this;
+    }
+
+    // Values of all messages sent so far, in send order
+    public synchronized List<Object> getSentValues() {
+        return new ArrayList<>(sentValues);
+    }
+
+    public synchronized int getSentCnt() {
+        return sentValues.size();
+    }
+
+    // Sum of all values recorded for the metric
+    public synchronized double getMetricSum(String metricName) {
+        return metrics.getOrDefault(metricName, 0.0);
+    }
+
+    private synchronized void recordSent(Object value) {
+        sentValues.add(value);
+    }
+
+    @Override
+    public Record<?> getCurrentRecord() {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getInputTopics() {
+        return Collections.singletonList("persistent://public/default/raw_sensor_data");
+    }
+
+    @Override
+    public String getOutputTopic() {
+        return "persistent://public/default/test_output";
+    }
+
+    @Override
+    public String getOutputSchemaType() {
+        return null;
+    }
+
+    @Override
+    public String getTenant() {
+        return "public";
+    }
+
+    @Override
+    public String getNamespace() {
+        return "default";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return "test";
+    }
+
+    @Override
+    public String getFunctionId() {
+        return "test";
+    }
+
+    @Override
+    public int getInstanceId() {
+        return 0;
+    }
+
+    @Override
+    public int getNumInstances() {
+        return 1;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "1.0-SNAPSHOT";
+    }
+
+    @Override
+    public Logger getLogger() {
+        return NOPLogger.NOP_LOGGER;
+    }
+
+    @Override
+    public <S extends StateStore> S getStateStore(String name) {
+        return null;
+    }
+
+    @Override
+    public <S extends StateStore> S getStateStore(String tenant, String ns, String name) {
+        return null;
+    }
+
+    @Override
+    public void incrCounter(String key, long amount) {
+        throw new UnsupportedOperationException("Counters are not supported in tests");
+    }
+
+    @Override
+    public CompletableFuture<Void> incrCounterAsync(String key, long amount) {
+        throw new UnsupportedOperationException("Counters are not supported in tests");
+    }
+
+    @Override
+    public long getCounter(String key) {
+        throw new UnsupportedOperationException("Counters are not supported in tests");
+    }
+
+    @Override
+    public CompletableFuture<Long> getCounterAsync(String key) {
+        throw new UnsupportedOperationException("Counters are not supported in tests");
+    }
+
+    @Override
+    public synchronized void putState(String key, ByteBuffer value) {
+        ByteBuffer copy = ByteBuffer.allocate(value.remaining());
+        copy.put(value.duplicate()).flip();
+        state.put(key, copy);
+    }
+
+    @Override
+    public CompletableFuture<Void> putStateAsync(String key, ByteBuffer value) {
+        putState(key, value);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized void deleteState(String key) {
+        state.remove(key);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStateAsync(String key) {
+        deleteState(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized ByteBuffer getState(String key) {
+        ByteBuffer value = state.get(key);
+        return (value != null) ? value.duplicate() : null;
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> getStateAsync(String key) {
+        return CompletableFuture.completedFuture(getState(key));
+    }
+
+    @Override
+    public Map<String, Object> getUserConfigMap() {
+        return userConfig;
+    }
+
+    @Override
+    public Optional<Object> getUserConfigValue(String key) {
+        return Optional.ofNullable(userConfig.get(key));
+    }
+
+    @Override
+    public Object getUserConfigValueOrDefault(String key, Object defaultValue) {
+        return userConfig.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public String getSecret(String secretName) {
+        return null;
+    }
+
+    @Override
+    public synchronized void recordMetric(String metricName, double value) {
+        metrics.merge(metricName, value, Double::sum);
+    }
+
+    @Override
+    @Deprecated
+    public <O> CompletableFuture<Void> publish(String topicName, O object, String schemaOrSerdeClassName) {
+        recordSent(object);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    @Deprecated
+    public <O> CompletableFuture<Void> publish(String topicName, O object) {
+        recordSent(object);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <O> TypedMessageBuilder<O> newOutputMessage(String topicName, Schema<O> schema) {
+        return new RecordingMessageBuilder<>();
+    }
+
+    @Override
+    public <O> TypedMessageBuilder<O> newOutputMessage(String clusterName, String topicName, Schema<O> schema) {
+        return new RecordingMessageBuilder<>();
+    }
+
+    @Override
+    public <O> ConsumerBuilder<O> newConsumerBuilder(Schema<O> schema) {
+        throw new UnsupportedOperationException("Consumers are not supported in tests");
+    }
+
+    // Message builder that records the value when the message is sent
+    private class RecordingMessageBuilder<T> implements TypedMessageBuilder<T> {
+        private static final long serialVersionUID = 1L;
+
+        private T value;
+
+        @Override
+        public MessageId send() {
+            recordSent(value);
+            return MessageId.earliest;
+        }
+
+        @Override
+        public CompletableFuture<MessageId> sendAsync() {
+            recordSent(value);
+            return CompletableFuture.completedFuture(MessageId.earliest);
+        }
+
+        @Override
+        public TypedMessageBuilder<T> key(String key) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> keyBytes(byte[] key) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> orderingKey(byte[] orderingKey) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> value(T value) {
+            this.value = value;
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> property(String name, String value) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> properties(Map<String, String> properties) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> eventTime(long timestamp) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> sequenceId(long sequenceId) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> replicationClusters(List<String> clusters) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> disableReplication() {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> deliverAt(long timestamp) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> deliverAfter(long delay, TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public TypedMessageBuilder<T> loadConf(Map<String, Object> config) {
+            return this;
+        }
+    }
+}
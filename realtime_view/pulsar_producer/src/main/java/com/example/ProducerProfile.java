@@ -0,0 +1,104 @@
+package com.example;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  Named Pulsar producer tuning profiles, selected with "producer_profile" in the configuration properties file.
+ *
+ *  A profile is a set of Pulsar producer configuration settings (the keys of "ProducerBuilder.loadConf()").
+ *  The "producer.*" keys of the configuration properties file are applied on top of it.
+ */
+public enum ProducerProfile {
+
+    // Pulsar producer defaults (1 ms batching delay, up to 1000 messages / 128 KB per batch, no compression)
+    DEFAULT("default"),
+
+    // Small batches that are sent almost immediately
+    LOW_LATENCY("low-latency",
+            "batchingMaxPublishDelayMicros", "100",
+            "batchingMaxMessages", "100",
+            "compressionType", "NONE"),
+
+    // Large, compressed batches and a deep pending message queue
+    HIGH_THROUGHPUT("high-throughput",
+            "batchingMaxPublishDelayMicros", "10000",
+            "batchingMaxMessages", "10000",
+            "batchingMaxBytes", "1048576",
+            "compressionType", "LZ4",
+            "maxPendingMessages", "10000");
+
+    // Pulsar producer default of "maxPendingMessages"
+    private static final int DEFAULT_MAX_PENDING_MESSAGES = 1000;
+
+    private final String profileName;
+    private final Map<String, Object> producerConf;
+
+    ProducerProfile(String profileName, String... confKeyValues) {
+        this.profileName = profileName;
+
+        Map<String, Object> conf = new HashMap<>();
+        for (int i = 0; i < confKeyValues.length; i += 2) {
+            conf.put(confKeyValues[i], confKeyValues[i + 1]);
+        }
+        this.producerConf = Collections.unmodifiableMap(conf);
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    public Map<String, Object> getProducerConf() {
+        return producerConf;
+    }
+
+    // The profile settings, overridden by the given (e.g. "producer.*") settings
+    public Map<String, Object> getProducerConf(Map<String, Object> overrideConf) {
+        Map<String, Object> conf = new HashMap<>(producerConf);
+        conf.putAll(overrideConf);
+        return conf;
+    }
+
+    // Value of "maxPendingMessages" in the given producer configuration, or the Pulsar default
+    public static int getMaxPendingMessages(Map<String, Object> producerConf) {
+        Object value = producerConf.get("maxPendingMessages");
+        if (value == null) {
+            return DEFAULT_MAX_PENDING_MESSAGES;
+        }
+
+        try {
+            return Integer.parseInt(value.toString().trim());
+        }
+        catch (NumberFormatException nfe) {
+            String errMsg = String.format("Invalid \"maxPendingMessages\" producer setting (%s)!", value);
+            throw new RuntimeException(errMsg);
+        }
+    }
+
+    // Profile of the given name (case-insensitive); DEFAULT if the name is blank
+    public static ProducerProfile fromName(String profileName) {
+        if (StringUtils.isBlank(profileName)) {
+            return DEFAULT;
+        }
+
+        for (ProducerProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(profileName.trim())) {
+                return profile;
+            }
+        }
+
+        StringBuilder validNames = new StringBuilder();
+        for (ProducerProfile profile : values()) {
+            if (validNames.length() > 0) {
+                validNames.append(", ");
+            }
+            validNames.append(profile.profileName);
+        }
+        String errMsg = String.format("Unknown producer profile \"%s\" (valid profiles: %s)!",
+                profileName, validNames);
+        throw new RuntimeException(errMsg);
+    }
+}
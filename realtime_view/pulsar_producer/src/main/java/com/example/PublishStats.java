@@ -0,0 +1,245 @@
+package com.example;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Publish statistics of SensorDataProducer, shared by all sending threads:
+ *  - message/byte counters and the number of pending (sent, but not yet acknowledged) messages
+ *  - publish latency (from "sendAsync" to its completion) in an HdrHistogram, in microseconds
+ *
+ *  Optionally, interval reports (rates, latency percentiles, pending messages) are printed periodically,
+ *  and a summary can be written as JSON or CSV at the end.
+ */
+public class PublishStats {
+
+    private static final double[] REPORTED_PERCENTILES = { 50.0, 99.0, 99.9 };
+
+    private final AtomicLong sentMsgCnt = new AtomicLong();
+    private final AtomicLong succeededMsgCnt = new AtomicLong();
+    private final AtomicLong failedMsgCnt = new AtomicLong();
+    private final AtomicLong succeededByteCnt = new AtomicLong();
+
+    // Latency in microseconds; the recorder hands out the interval histograms, which are added to the total one
+    private final Recorder latencyRecorder = new Recorder(3);
+    private final Histogram totalLatencyHistogram = new Histogram(3);
+    private Histogram intervalLatencyHistogram;
+
+    private long startNanos;
+    private long endNanos;
+
+    private ScheduledExecutorService reportTimer;
+    private long lastReportNanos;
+    private long lastReportSucceededMsgCnt;
+    private long lastReportSucceededByteCnt;
+
+    // Start the clock, and the interval reports every "reportIntervalSec" seconds (0: no interval reports)
+    public void start(int reportIntervalSec) {
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+
+        if (reportIntervalSec > 0) {
+            reportTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "publish-stats-report");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reportTimer.scheduleAtFixedRate(this::printIntervalReport,
+                    reportIntervalSec, reportIntervalSec, TimeUnit.SECONDS);
+        }
+    }
+
+    // Stop the clock and the interval reports
+    public synchronized void stop() {
+        endNanos = System.nanoTime();
+        if (reportTimer != null) {
+            reportTimer.shutdownNow();
+        }
+        collectIntervalLatency();
+    }
+
+    // Called right before a message is sent; returns the start time of its publish latency
+    public long onSend() {
+        sentMsgCnt.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    // Called when the send of a message (of "msgSize" payload bytes) completes
+    public void onComplete(long sendNanos, int msgSize, Throwable throwable) {
+        if (throwable == null) {
+            latencyRecorder.recordValue(Math.max(0L, (System.nanoTime() - sendNanos) / 1000L));
+            succeededByteCnt.addAndGet(msgSize);
+            succeededMsgCnt.incrementAndGet();
+        }
+        else {
+            failedMsgCnt.incrementAndGet();
+        }
+    }
+
+    public long getSentMsgCnt() {
+        return sentMsgCnt.get();
+    }
+
+    public long getSucceededMsgCnt() {
+        return succeededMsgCnt.get();
+    }
+
+    public long getFailedMsgCnt() {
+        return failedMsgCnt.get();
+    }
+
+    public long getSucceededByteCnt() {
+        return succeededByteCnt.get();
+    }
+
+    // Messages sent, but not completed yet
+    public long getPendingMsgCnt() {
+        return sentMsgCnt.get() - succeededMsgCnt.get() - failedMsgCnt.get();
+    }
+
+    private void collectIntervalLatency() {
+        intervalLatencyHistogram = latencyRecorder.getIntervalHistogram(intervalLatencyHistogram);
+        totalLatencyHistogram.add(intervalLatencyHistogram);
+    }
+
+    private synchronized void printIntervalReport() {
+        long nowNanos = System.nanoTime();
+        long succeededMsgs = succeededMsgCnt.get();
+        long succeededBytes = succeededByteCnt.get();
+        double intervalSec = (nowNanos - lastReportNanos) / 1e9;
+
+        collectIntervalLatency();
+
+        System.out.format(Locale.ROOT,
+                "  [%7.1fs] %,.0f msgs/s, %,.2f MB/s, latency (ms) %s, pending: %d, failed: %d\n",
+                (nowNanos - startNanos) / 1e9,
+                (succeededMsgs - lastReportSucceededMsgCnt) / intervalSec,
+                (succeededBytes - lastReportSucceededByteCnt) / intervalSec / (1024 * 1024),
+                formatLatency(intervalLatencyHistogram),
+                getPendingMsgCnt(),
+                failedMsgCnt.get());
+
+        lastReportNanos = nowNanos;
+        lastReportSucceededMsgCnt = succeededMsgs;
+        lastReportSucceededByteCnt = succeededBytes;
+    }
+
+    private static String formatLatency(Histogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : REPORTED_PERCENTILES) {
+            sb.append("p").append(formatPercentile(percentile)).append("=")
+                    .append(formatMillis(histogram.getValueAtPercentile(percentile))).append(" ");
+        }
+        sb.append("max=").append(formatMillis(histogram.getMaxValue()));
+        return sb.toString();
+    }
+
+    private static String formatPercentile(double percentile) {
+        return (percentile == Math.rint(percentile)) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+    private double getElapsedSec() {
+        return ((endNanos > 0) ? endNanos - startNanos : System.nanoTime() - startNanos) / 1e9;
+    }
+
+    // Print the summary of the whole run (after "stop()")
+    public synchronized void printSummary() {
+        double elapsedSec = getElapsedSec();
+
+        System.out.println("  Total Messages successfully sent : " + succeededMsgCnt.get());
+        System.out.println("  Total Messages failed to send: " + failedMsgCnt.get());
+        System.out.format(Locale.ROOT, "  Elapsed time: %.3f s (%,.0f msgs/s, %,.2f MB/s)\n",
+                elapsedSec,
+                succeededMsgCnt.get() / elapsedSec,
+                succeededByteCnt.get() / elapsedSec / (1024 * 1024));
+        System.out.println("  Publish latency (ms): " + formatLatency(totalLatencyHistogram) +
+                " mean=" + formatMillis(totalLatencyHistogram.getMean()));
+    }
+
+    // Summary of the whole run (after "stop()"), as (name, value) pairs in the reporting order
+    public synchronized Map<String, String> getSummary() {
+        double elapsedSec = getElapsedSec();
+
+        Map<String, String> summary = new LinkedHashMap<>();
+        summary.put("total_msgs", String.valueOf(sentMsgCnt.get()));
+        summary.put("succeeded_msgs", String.valueOf(succeededMsgCnt.get()));
+        summary.put("failed_msgs", String.valueOf(failedMsgCnt.get()));
+        summary.put("succeeded_bytes", String.valueOf(succeededByteCnt.get()));
+        summary.put("elapsed_sec", String.format(Locale.ROOT, "%.3f", elapsedSec));
+        summary.put("msgs_per_sec", String.format(Locale.ROOT, "%.1f", succeededMsgCnt.get() / elapsedSec));
+        summary.put("bytes_per_sec", String.format(Locale.ROOT, "%.1f", succeededByteCnt.get() / elapsedSec));
+        summary.put("latency_ms_p50", formatMillis(totalLatencyHistogram.getValueAtPercentile(50.0)));
+        summary.put("latency_ms_p99", formatMillis(totalLatencyHistogram.getValueAtPercentile(99.0)));
+        summary.put("latency_ms_p999", formatMillis(totalLatencyHistogram.getValueAtPercentile(99.9)));
+        summary.put("latency_ms_max", formatMillis(totalLatencyHistogram.getMaxValue()));
+        summary.put("latency_ms_mean", formatMillis(totalLatencyHistogram.getMean()));
+        return summary;
+    }
+
+    private static String formatMillis(double micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+
+    /**
+     *  Write run summaries (see "getSummary()") into a JSON file (if the file name ends with ".json") or
+     *  a CSV file (header line plus one line per summary). In JSON, a single summary is written as an object,
+     *  multiple ones as an array of objects.
+     *
+     *  Non-numeric values are quoted in JSON; all summaries must have the same names.
+     */
+    public static void writeSummaries(Path summaryFile, List<Map<String, String>> summaries) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(summaryFile, StandardCharsets.UTF_8))) {
+            if (summaryFile.toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                boolean isArray = (summaries.size() != 1);
+                String indent = isArray ? "    " : "  ";
+                if (isArray) {
+                    writer.println("[");
+                }
+                for (int i = 0; i < summaries.size(); i++) {
+                    writer.println(isArray ? "  {" : "{");
+                    int fieldIdx = 0;
+                    for (Map.Entry<String, String> entry : summaries.get(i).entrySet()) {
+                        writer.format("%s\"%s\": %s%s\n", indent, entry.getKey(), toJsonValue(entry.getValue()),
+                                (++fieldIdx < summaries.get(i).size()) ? "," : "");
+                    }
+                    writer.println((isArray ? "  }" : "}") + ((i < summaries.size() - 1) ? "," : ""));
+                }
+                if (isArray) {
+                    writer.println("]");
+                }
+            }
+            else if (!summaries.isEmpty()) {
+                writer.println(String.join(",", summaries.get(0).keySet()));
+                for (Map<String, String> summary : summaries) {
+                    writer.println(String.join(",", summary.values()));
+                }
+            }
+        }
+    }
+
+    private static String toJsonValue(String value) {
+        try {
+            if (Double.isFinite(Double.parseDouble(value))) {
+                return value;
+            }
+        }
+        catch (NumberFormatException nfe) {
+            // Not a number
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,82 @@
+package com.example;
+
+import org.apache.pulsar.client.api.Producer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Bounded window of the in-flight (sent, but not yet completed) messages of one Pulsar producer.
+ *
+ *  A permit is taken before each "sendAsync" and given back when the send completes, successfully or not,
+ *  so the sending thread blocks once "maxInFlight" messages are outstanding, and the producer can only be
+ *  closed after all of them have completed (see "flushAndDrain()").
+ */
+public class PublishWindow {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    // How often "flushAndDrain()" prints the number of messages it is still waiting for
+    private static final long DRAIN_REPORT_INTERVAL_SEC = 10;
+
+    private final int maxInFlight;
+    private final Semaphore permits;
+
+    public PublishWindow(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            String errMsg = String.format("Invalid maximum number of in-flight messages: %d", maxInFlight);
+            throw new RuntimeException(errMsg);
+        }
+
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlightCnt() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    // Take a permit before sending a message; blocks while the window is full
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    // Same as "acquire()", but gives up after the timeout; false if no permit was taken
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return permits.tryAcquire(timeout, unit);
+    }
+
+    // Give the permit back when the send completes, successfully or not
+    public void release() {
+        permits.release();
+    }
+
+    // Wait until all the in-flight messages have completed; false if they haven't before the timeout
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits.tryAcquire(maxInFlight, timeout, unit)) {
+            permits.release(maxInFlight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     *  Flush the messages batched by the producer and wait until all the in-flight messages have completed.
+     *
+     *  There is no overall timeout: every send completes eventually, at the latest with a failure after
+     *  the producer's send timeout (30 seconds by default).
+     */
+    public void flushAndDrain(Producer<?> producer) throws InterruptedException {
+        // A failed send also fails the flush; the failure is already counted by the send's own callback
+        producer.flushAsync().handle((result, throwable) -> null);
+
+        while (!awaitDrained(DRAIN_REPORT_INTERVAL_SEC, TimeUnit.SECONDS)) {
+            System.out.format("  Waiting for %d in-flight message(s) of producer \"%s\" ...\n",
+                    getInFlightCnt(), producer.getProducerName());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  Paces the publishing of the workload messages, by either or both of
+ *  - replaying the messages according to their "ReadingTime", "speedup" times faster than real time:
+ *    a message is due "(readingTime - first readingTime) / speedup" after the start of the replay
+ *  - limiting the rate to "maxRate" messages per second (token bucket)
+ *
+ *  Due times are absolute (System.nanoTime() based) and are never busy-waited for: the caller parks
+ *  until the due time, and when it oversleeps, the following messages are simply already due. So the
+ *  average rate stays accurate at any rate, while the bucket allows a burst of at most "MAX_BURST_SEC"
+ *  seconds worth of messages to catch up.
+ *
+ *  NOT thread-safe.
+ */
+public class ReplayPacer {
+
+    // Maximum burst (in seconds worth of messages at "maxRate") after the publishing fell behind
+    public static final double MAX_BURST_SEC = 0.01;
+
+    private final double speedup;
+    private final long intervalNanos;
+    private final long maxBurstNanos;
+
+    private boolean started = false;
+    private long startNanos;
+    private long firstReadingTime;
+    // Due time of the next message per the rate limit
+    private long nextFreeNanos;
+
+    /**
+     *  @param speedup replay speed-up factor of the reading times; 0 to ignore the reading times
+     *  @param maxRate maximum number of messages per second; 0 for no limit
+     */
+    public ReplayPacer(double speedup, double maxRate) {
+        if ( (speedup < 0) || (maxRate < 0) || Double.isNaN(speedup) || Double.isNaN(maxRate) ) {
+            String errMsg = String.format("Invalid replay pacing: speedup=%s, rate=%s", speedup, maxRate);
+            throw new RuntimeException(errMsg);
+        }
+
+        this.speedup = speedup;
+        this.intervalNanos = (maxRate > 0) ? Math.max(1L, Math.round(1e9 / maxRate)) : 0L;
+        this.maxBurstNanos = Math.round(MAX_BURST_SEC * 1e9);
+    }
+
+    /**
+     *  Reserve the publishing of one message (line) and get its due time.
+     *
+     *  @return the System.nanoTime() value from which on the message may be published
+     */
+    public long reserve(WorkloadCsvLine line) {
+        long nowNanos = System.nanoTime();
+        // Due right away, unless the replay schedule or the rate limit says otherwise
+        long dueNanos = Long.MIN_VALUE;
+
+        long readingTime = 0;
+        if (speedup > 0) {
+            readingTime = line.getEpochSecondField(WorkloadCsvLine.READING_TIME_IDX);
+            if (readingTime == Long.MIN_VALUE) {
+                String errMsg = String.format("Invalid reading time (%s) at line %d of the workload file!",
+                        line.getField(WorkloadCsvLine.READING_TIME_IDX), line.getLineNum());
+                throw new RuntimeException(errMsg);
+            }
+        }
+
+        // The replay starts with the first message
+        if (!started) {
+            started = true;
+            startNanos = nowNanos;
+            nextFreeNanos = nowNanos;
+            firstReadingTime = readingTime;
+        }
+
+        if (speedup > 0) {
+            dueNanos = startNanos + Math.round((readingTime - firstReadingTime) * 1e9 / speedup);
+        }
+
+        if (intervalNanos > 0) {
+            // Unused capacity is only kept for a short burst
+            nextFreeNanos = Math.max(nextFreeNanos, nowNanos - maxBurstNanos);
+            dueNanos = Math.max(dueNanos, nextFreeNanos);
+            nextFreeNanos = dueNanos + intervalNanos;
+        }
+
+        return dueNanos;
+    }
+
+    // Park the calling thread until the due time (no busy waiting)
+    public static void awaitUntil(long dueNanos) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
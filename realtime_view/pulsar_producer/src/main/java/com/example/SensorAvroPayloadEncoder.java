@@ -0,0 +1,140 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.Field;
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.api.schema.GenericRecordBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+
+import java.util.List;
+
+/**
+ *  Encodes a workload CSV line straight into a Pulsar Avro record of the given (raw sensor data) schema,
+ *  e.g. misc/raw_sensor_data.avsc.
+ *
+ *  The schema fields are matched to the CSV columns by name, and their positions and types are resolved
+ *  only once, when the encoder is created. Supported field types are string, float and double
+ *  (optionally as a union with null).
+ *
+ *  NOT thread-safe (the record builder is reused).
+ */
+public class SensorAvroPayloadEncoder {
+
+    private static final String[] CSV_COLUMN_NAMES = {
+            "DrillID", "SensorID", "SensorType", "ReadingDate", "ReadingTime", "ReadingValue"
+    };
+
+    private enum FieldType { STRING, FLOAT, DOUBLE }
+
+    private final Field[] fields;
+    private final int[] csvColumnIdxs;
+    private final FieldType[] fieldTypes;
+    // Union fields (e.g. ["null", "string"]) have an extra union branch index in the binary encoding
+    private final boolean[] unionFields;
+    private final GenericRecordBuilder recordBuilder;
+
+    private int lastEncodedSize = 0;
+
+    public SensorAvroPayloadEncoder(GenericAvroSchema pulsarSchema) {
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser()
+                .parse(pulsarSchema.getSchemaInfo().getSchemaDefinition());
+
+        List<Field> fieldList = pulsarSchema.getFields();
+        int fieldNum = fieldList.size();
+        fields = new Field[fieldNum];
+        csvColumnIdxs = new int[fieldNum];
+        fieldTypes = new FieldType[fieldNum];
+        unionFields = new boolean[fieldNum];
+
+        for (int i = 0; i < fieldNum; i++) {
+            Field field = fieldList.get(i);
+            fields[i] = field;
+            csvColumnIdxs[i] = getCsvColumnIdx(field.getName());
+            org.apache.avro.Schema.Field avroField = avroSchema.getField(field.getName());
+            fieldTypes[i] = getFieldType(avroField);
+            unionFields[i] = (avroField.schema().getType() == org.apache.avro.Schema.Type.UNION);
+        }
+
+        recordBuilder = pulsarSchema.newRecordBuilder();
+    }
+
+    private static int getCsvColumnIdx(String fieldName) {
+        for (int i = 0; i < CSV_COLUMN_NAMES.length; i++) {
+            if (CSV_COLUMN_NAMES[i].equals(fieldName)) {
+                return i;
+            }
+        }
+
+        String errMsg = String.format("Avro schema field \"%s\" doesn't match any workload CSV column!", fieldName);
+        throw new RuntimeException(errMsg);
+    }
+
+    private static FieldType getFieldType(org.apache.avro.Schema.Field avroField) {
+        org.apache.avro.Schema fieldSchema = avroField.schema();
+        if (fieldSchema.getType() == org.apache.avro.Schema.Type.UNION) {
+            for (org.apache.avro.Schema branch : fieldSchema.getTypes()) {
+                if (branch.getType() != org.apache.avro.Schema.Type.NULL) {
+                    fieldSchema = branch;
+                    break;
+                }
+            }
+        }
+
+        switch (fieldSchema.getType()) {
+            case STRING:
+                return FieldType.STRING;
+            case FLOAT:
+                return FieldType.FLOAT;
+            case DOUBLE:
+                return FieldType.DOUBLE;
+            default:
+                String errMsg = String.format("Unsupported type (%s) of Avro schema field \"%s\"!",
+                        fieldSchema.getType(), avroField.name());
+                throw new RuntimeException(errMsg);
+        }
+    }
+
+    // Size of the binary Avro encoding of the last encoded record
+    public int getLastEncodedSize() {
+        return lastEncodedSize;
+    }
+
+    public GenericRecord encode(WorkloadCsvLine line) {
+        int encodedSize = 0;
+
+        for (int i = 0; i < fields.length; i++) {
+            int csvColumnIdx = csvColumnIdxs[i];
+
+            switch (fieldTypes[i]) {
+                case FLOAT:
+                    recordBuilder.set(fields[i], line.getFloatField(csvColumnIdx));
+                    encodedSize += 4;
+                    break;
+                case DOUBLE:
+                    recordBuilder.set(fields[i], (double) line.getFloatField(csvColumnIdx));
+                    encodedSize += 8;
+                    break;
+                default:
+                    recordBuilder.set(fields[i], line.getField(csvColumnIdx));
+                    int fieldLen = line.getFieldLength(csvColumnIdx);
+                    encodedSize += getVarLongSize(fieldLen) + fieldLen;
+            }
+
+            if (unionFields[i]) {
+                encodedSize++;
+            }
+        }
+
+        lastEncodedSize = encodedSize;
+        return recordBuilder.build();
+    }
+
+    // Size of the (zig-zag) variable-length encoding of a non-negative length
+    private static int getVarLongSize(long value) {
+        long zigZag = value << 1;
+        int size = 1;
+        while ((zigZag >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+}
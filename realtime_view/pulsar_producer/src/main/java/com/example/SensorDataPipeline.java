@@ -0,0 +1,397 @@
+package com.example;
+
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.TypedMessageBuilder;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Multi-threaded publishing pipeline of SensorDataProducer:
+ *
+ *      reader (calling thread) --> N encoding workers --> M producer threads (one Pulsar producer each)
+ *
+ *  The stages are connected by bounded queues of line/message batches, so a slow stage throttles the
+ *  stages before it. Lines are partitioned by drill ID in every stage (and the messages are keyed by
+ *  drill ID), so the messages of one drill keep their file order, also on a partitioned topic.
+ */
+public class SensorDataPipeline {
+
+    // Number of lines/messages per batch handed over between the stages
+    public static final int BATCH_SIZE = 1024;
+    // Number of batches each stage queue can hold
+    public static final int QUEUE_CAPACITY = 16;
+    // When paced, partial line batches are handed over before a wait of at least this long, or when the
+    //   last hand-over is this long ago; shorter waits don't hold the lines back noticeably
+    public static final long PACED_FLUSH_INTERVAL_NANOS = 1000000L;
+
+    // Marks the end of the input in the stage queues
+    private static final LineBatch END_OF_LINES = new LineBatch();
+    private static final MessageBatch END_OF_MESSAGES = new MessageBatch();
+
+    private final Schema<?> pulsarSchema;
+    private final List<Producer<?>> producers;
+    private final int workerNum;
+    // Optional, see ReplayPacer
+    private final ReplayPacer pacer;
+
+    private final List<BlockingQueue<LineBatch>> workerQueues = new ArrayList<>();
+    private final List<BlockingQueue<MessageBatch>> producerQueues = new ArrayList<>();
+    // Line batches the workers are done with, reused by the reader
+    private final BlockingQueue<LineBatch> freeLineBatches;
+
+    private final PublishStats stats;
+    private final int maxInFlight;
+    private volatile boolean aborted = false;
+
+    // Batch of raw CSV lines for one encoding worker
+    private static class LineBatch {
+        byte[] data = new byte[BATCH_SIZE * 80];
+        int dataLen = 0;
+        final int[] lineStarts = new int[BATCH_SIZE];
+        final int[] lineEnds = new int[BATCH_SIZE];
+        final long[] lineNums = new long[BATCH_SIZE];
+        int lineCnt = 0;
+
+        void add(WorkloadCsvLine line) {
+            int lineLen = line.getLineLength();
+            if (dataLen + lineLen > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, dataLen + lineLen));
+            }
+
+            lineStarts[lineCnt] = dataLen;
+            dataLen = line.copyLine(data, dataLen);
+            lineEnds[lineCnt] = dataLen;
+            lineNums[lineCnt] = line.getLineNum();
+            lineCnt++;
+        }
+
+        boolean isFull() {
+            return lineCnt == BATCH_SIZE;
+        }
+
+        void clear() {
+            dataLen = 0;
+            lineCnt = 0;
+        }
+    }
+
+    // Batch of encoded messages for one producer thread
+    private static class MessageBatch {
+        final String[] keys = new String[BATCH_SIZE];
+        final Object[] values = new Object[BATCH_SIZE];
+        final long[] lineNums = new long[BATCH_SIZE];
+        final int[] sizes = new int[BATCH_SIZE];
+        int msgCnt = 0;
+
+        void add(String key, Object value, long lineNum, int size) {
+            keys[msgCnt] = key;
+            values[msgCnt] = value;
+            lineNums[msgCnt] = lineNum;
+            sizes[msgCnt] = size;
+            msgCnt++;
+        }
+
+        boolean isFull() {
+            return msgCnt == BATCH_SIZE;
+        }
+    }
+
+    /**
+     *  @param pulsarSchema message schema; Schema.BYTES (JSON payload) or the raw sensor data GenericAvroSchema
+     *  @param producers    one Pulsar producer per producer thread, all on the same topic
+     *  @param workerNum    number of encoding workers
+     *  @param pacer        paces the reader stage; null to publish as fast as possible
+     *  @param stats        collects the publish statistics
+     *  @param maxInFlight  maximum number of in-flight messages per producer (see PublishWindow)
+     */
+    public SensorDataPipeline(Schema<?> pulsarSchema,
+                              List<Producer<?>> producers,
+                              int workerNum,
+                              ReplayPacer pacer,
+                              PublishStats stats,
+                              int maxInFlight) {
+        if ( producers.isEmpty() || (workerNum <= 0) ) {
+            String errMsg = String.format("Invalid pipeline parallelism: %d encoding worker(s), %d producer(s)",
+                    workerNum, producers.size());
+            throw new RuntimeException(errMsg);
+        }
+
+        this.pulsarSchema = pulsarSchema;
+        this.producers = producers;
+        this.workerNum = workerNum;
+        this.pacer = pacer;
+        this.stats = stats;
+        this.maxInFlight = maxInFlight;
+
+        for (int i = 0; i < workerNum; i++) {
+            workerQueues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+        for (int i = 0; i < producers.size(); i++) {
+            producerQueues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+        // Enough for all the batches queued or being filled or encoded
+        freeLineBatches = new ArrayBlockingQueue<>(workerNum * (QUEUE_CAPACITY + 2));
+    }
+
+    public SensorDataPipeline(Schema<?> pulsarSchema, List<Producer<?>> producers, int workerNum) {
+        this(pulsarSchema, producers, workerNum, null, new PublishStats(), PublishWindow.DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public PublishStats getStats() {
+        return stats;
+    }
+
+    /**
+     *  Publish all lines of the workload file and wait until every message has either been sent or failed.
+     *
+     *  @return the number of lines read
+     */
+    public long run(Path workloadFile) throws Exception {
+        return run(workloadFile, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     *  Publish the readings of the workload file (CSV or binary, see WorkloadReader) with a reading time
+     *  within [startTime, endTime], and wait until every message has either been sent or failed.
+     *
+     *  @return the number of lines read
+     */
+    public long run(Path workloadFile, long startTime, long endTime) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workerNum + producers.size());
+        List<Future<?>> stageFutures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < workerNum; i++) {
+                int workerIdx = i;
+                stageFutures.add(executor.submit(() -> {
+                    encode(workerQueues.get(workerIdx));
+                    return null;
+                }));
+            }
+            for (int i = 0; i < producers.size(); i++) {
+                int producerIdx = i;
+                stageFutures.add(executor.submit(() -> {
+                    publish(producers.get(producerIdx), producerQueues.get(producerIdx));
+                    return null;
+                }));
+            }
+
+            long totalMsg = read(workloadFile, startTime, endTime);
+
+            for (Future<?> future : stageFutures) {
+                future.get();
+            }
+            return totalMsg;
+        }
+        catch (Exception e) {
+            aborted = true;
+            throw e;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Reader stage: read the workload file and hand the lines over to the workers, partitioned by drill ID
+    private long read(Path workloadFile, long startTime, long endTime) throws IOException, InterruptedException {
+        LineBatch[] lineBatches = new LineBatch[workerNum];
+        for (int i = 0; i < workerNum; i++) {
+            lineBatches[i] = new LineBatch();
+        }
+
+        WorkloadCsvLine csvLine = new WorkloadCsvLine();
+        long totalMsg = 0;
+        long lastFlushNanos = System.nanoTime();
+
+        try (WorkloadReader workloadReader = WorkloadReader.open(workloadFile, startTime, endTime)) {
+            while (workloadReader.readLine(csvLine)) {
+                totalMsg++;
+
+                if (pacer != null) {
+                    long dueNanos = pacer.reserve(csvLine);
+                    long nowNanos = System.nanoTime();
+                    if (dueNanos > nowNanos) {
+                        // Don't hold back the lines that are already due while waiting
+                        if ( (dueNanos - nowNanos >= PACED_FLUSH_INTERVAL_NANOS) ||
+                             (nowNanos - lastFlushNanos >= PACED_FLUSH_INTERVAL_NANOS) ) {
+                            for (int i = 0; i < workerNum; i++) {
+                                if (lineBatches[i].lineCnt > 0) {
+                                    put(workerQueues.get(i), lineBatches[i]);
+                                    lineBatches[i] = newLineBatch();
+                                }
+                            }
+                            lastFlushNanos = nowNanos;
+                        }
+                        ReplayPacer.awaitUntil(dueNanos);
+                    }
+                }
+
+                int workerIdx = csvLine.getFieldHash(WorkloadCsvLine.DRILL_ID_IDX) % workerNum;
+                lineBatches[workerIdx].add(csvLine);
+                if (lineBatches[workerIdx].isFull()) {
+                    put(workerQueues.get(workerIdx), lineBatches[workerIdx]);
+                    lineBatches[workerIdx] = newLineBatch();
+                }
+            }
+        }
+
+        for (int i = 0; i < workerNum; i++) {
+            if (lineBatches[i].lineCnt > 0) {
+                put(workerQueues.get(i), lineBatches[i]);
+            }
+            put(workerQueues.get(i), END_OF_LINES);
+        }
+
+        return totalMsg;
+    }
+
+    // A recycled line batch, or a new one if none is free
+    private LineBatch newLineBatch() {
+        LineBatch lineBatch = freeLineBatches.poll();
+        return (lineBatch != null) ? lineBatch : new LineBatch();
+    }
+
+    // Encoding worker stage: parse and encode the lines, and hand the messages over to the producer threads
+    private void encode(BlockingQueue<LineBatch> lineQueue) throws InterruptedException {
+        int producerNum = producers.size();
+
+        WorkloadCsvLine csvLine = new WorkloadCsvLine();
+        SensorJsonPayloadEncoder jsonPayloadEncoder = new SensorJsonPayloadEncoder();
+        SensorAvroPayloadEncoder avroPayloadEncoder = (pulsarSchema instanceof GenericAvroSchema) ?
+                new SensorAvroPayloadEncoder((GenericAvroSchema) pulsarSchema) : null;
+
+        MessageBatch[] msgBatches = new MessageBatch[producerNum];
+        for (int i = 0; i < producerNum; i++) {
+            msgBatches[i] = new MessageBatch();
+        }
+
+        try {
+            LineBatch lineBatch;
+            while ((lineBatch = take(lineQueue)) != END_OF_LINES) {
+                ByteBuffer lineBuffer = ByteBuffer.wrap(lineBatch.data);
+
+                for (int i = 0; i < lineBatch.lineCnt; i++) {
+                    csvLine.set(lineBuffer, lineBatch.lineStarts[i], lineBatch.lineEnds[i], lineBatch.lineNums[i]);
+
+                    Object value;
+                    int size;
+                    if (avroPayloadEncoder != null) {
+                        value = avroPayloadEncoder.encode(csvLine);
+                        size = avroPayloadEncoder.getLastEncodedSize();
+                    }
+                    else {
+                        byte[] payloadBytes = jsonPayloadEncoder.encode(csvLine);
+                        value = payloadBytes;
+                        size = payloadBytes.length;
+                    }
+
+                    int producerIdx = csvLine.getFieldHash(WorkloadCsvLine.DRILL_ID_IDX) % producerNum;
+                    msgBatches[producerIdx].add(
+                            csvLine.getField(WorkloadCsvLine.DRILL_ID_IDX), value, csvLine.getLineNum(), size);
+                    if (msgBatches[producerIdx].isFull()) {
+                        put(producerQueues.get(producerIdx), msgBatches[producerIdx]);
+                        msgBatches[producerIdx] = new MessageBatch();
+                    }
+                }
+
+                // The encoded messages don't refer to the line data, so the batch can be reused
+                lineBatch.clear();
+                freeLineBatches.offer(lineBatch);
+            }
+
+            for (int i = 0; i < producerNum; i++) {
+                if (msgBatches[i].msgCnt > 0) {
+                    put(producerQueues.get(i), msgBatches[i]);
+                }
+            }
+        }
+        catch (Exception e) {
+            aborted = true;
+            throw e;
+        }
+        finally {
+            // Each producer thread waits for the end marker of every worker
+            if (!aborted) {
+                for (int i = 0; i < producerNum; i++) {
+                    put(producerQueues.get(i), END_OF_MESSAGES);
+                }
+            }
+        }
+    }
+
+    // Producer stage: publish the messages asynchronously, at most "maxInFlight" at a time,
+    // and wait for all of them to complete
+    @SuppressWarnings("unchecked")
+    private void publish(Producer<?> producer, BlockingQueue<MessageBatch> msgQueue) throws Exception {
+        Producer<Object> typedProducer = (Producer<Object>) producer;
+        PublishWindow window = new PublishWindow(maxInFlight);
+
+        try {
+            int endCnt = 0;
+            while (endCnt < workerNum) {
+                MessageBatch msgBatch = take(msgQueue);
+                if (msgBatch == END_OF_MESSAGES) {
+                    endCnt++;
+                    continue;
+                }
+
+                for (int i = 0; i < msgBatch.msgCnt; i++) {
+                    TypedMessageBuilder<Object> messageBuilder = typedProducer.newMessage()
+                            .key(msgBatch.keys[i])
+                            .value(msgBatch.values[i])
+                            .property("line", String.valueOf(msgBatch.lineNums[i]));
+
+                    while (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        checkAborted();
+                    }
+
+                    int size = msgBatch.sizes[i];
+                    long sendNanos = stats.onSend();
+                    messageBuilder.sendAsync().whenComplete((messageId, throwable) -> {
+                        stats.onComplete(sendNanos, size, throwable);
+                        window.release();
+                    });
+                }
+            }
+        }
+        catch (Exception e) {
+            aborted = true;
+            throw e;
+        }
+
+        window.flushAndDrain(producer);
+    }
+
+    private <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            checkAborted();
+        }
+    }
+
+    private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        T item;
+        while ((item = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            checkAborted();
+        }
+        return item;
+    }
+
+    private void checkAborted() {
+        if (aborted) {
+            throw new RuntimeException("Publishing pipeline is aborted due to an error in another stage!");
+        }
+    }
+}
@@ -12,21 +12,28 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.pulsar.client.api.*;
-import org.apache.pulsar.client.api.schema.GenericRecord;
 import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class SensorDataProducer {
     private final static Logger logger = LogManager.getLogger(SensorDataProducer.class);
 
+    private final static int DEFAULT_REPORT_INTERVAL_SEC = 10;
 
     /**
      *  Define Command Line Arguments
@@ -44,11 +51,63 @@ public class SensorDataProducer {
         Option workloadOption = new Option(
                 SensorDataProducerUtil.CMD_OPTION_WORKLOAD_SOURCE_SHORT,
                 SensorDataProducerUtil.CMD_OPTION_WORKLOAD_SOURCE_LONG,
-                true, "Input workload source file.");
+                true, "Input workload source file (workload CSV file or binary workload file).");
+        Option parallelismOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_PARALLELISM_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_PARALLELISM_LONG,
+                true, "Number of parsing/encoding worker threads (enables the pipeline mode).");
+        Option producersOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_PRODUCERS_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_PRODUCERS_LONG,
+                true, "Number of Pulsar producers, each on its own thread (enables the pipeline mode).");
+        Option speedupOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_SPEEDUP_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_SPEEDUP_LONG,
+                true, "Replay the messages per their reading time, the given factor faster than real time (e.g. 60).");
+        Option rateOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_RATE_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_RATE_LONG,
+                true, "Maximum number of messages published per second.");
+        Option maxInFlightOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_MAX_IN_FLIGHT_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_MAX_IN_FLIGHT_LONG,
+                true, "Maximum number of in-flight (not yet acknowledged) messages per producer " +
+                "(default: the producer's \"maxPendingMessages\").");
+        Option benchOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_BENCH_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_BENCH_LONG,
+                false, "Publish the workload once with every producer profile and compare the throughput/latency.");
+        Option reportIntervalOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_REPORT_INTERVAL_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_REPORT_INTERVAL_LONG,
+                true, "Interval (in seconds) of the throughput/latency reports; 0 to disable (default: 10).");
+        Option summaryFileOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_SUMMARY_FILE_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_SUMMARY_FILE_LONG,
+                true, "Write the run summary into the given file (JSON if it ends with \".json\", otherwise CSV).");
+        Option startTimeOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_START_TIME_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_START_TIME_LONG,
+                true, "Only publish the readings from this (UTC) reading time on: yyyy-MM-dd or yyyy-MM-ddTHH:mm:ss.");
+        Option endTimeOption = new Option(
+                SensorDataProducerUtil.CMD_OPTION_END_TIME_SHORT,
+                SensorDataProducerUtil.CMD_OPTION_END_TIME_LONG,
+                true, "Only publish the readings up to this (UTC) reading time: yyyy-MM-dd (the whole day) " +
+                "or yyyy-MM-ddTHH:mm:ss.");
 
         options.addOption(helpOption);
         options.addOption(cfgOption);
         options.addOption(workloadOption);
+        options.addOption(parallelismOption);
+        options.addOption(producersOption);
+        options.addOption(speedupOption);
+        options.addOption(rateOption);
+        options.addOption(maxInFlightOption);
+        options.addOption(benchOption);
+        options.addOption(reportIntervalOption);
+        options.addOption(summaryFileOption);
+        options.addOption(startTimeOption);
+        options.addOption(endTimeOption);
     }
 
     static void usageAndExit(int errorCode) {
@@ -77,6 +136,113 @@ public class SensorDataProducer {
         usageAndExit(0);
     }
 
+    // Parse a positive integer option value; 0 if the option is not specified
+    static int getPositiveIntValue(String valueStr, String optionName) {
+        if (StringUtils.isBlank(valueStr)) {
+            return 0;
+        }
+
+        int value;
+        try {
+            value = Integer.parseInt(valueStr.trim());
+        }
+        catch (NumberFormatException nfe) {
+            value = -1;
+        }
+
+        if (value <= 0) {
+            String errMsg = String.format("Specified \"%s\" value (%s) must be a positive integer!",
+                    optionName, valueStr);
+            throw new RuntimeException(errMsg);
+        }
+
+        return value;
+    }
+
+    // Parse a non-negative decimal option value; 0 if the option is not specified
+    static double getPacingValue(String valueStr, String optionName) {
+        if (StringUtils.isBlank(valueStr)) {
+            return 0;
+        }
+
+        double value;
+        try {
+            value = Double.parseDouble(valueStr.trim());
+        }
+        catch (NumberFormatException nfe) {
+            value = -1;
+        }
+
+        if ( !(value > 0) || Double.isInfinite(value) ) {
+            String errMsg = String.format("Specified \"%s\" value (%s) must be a positive number!",
+                    optionName, valueStr);
+            throw new RuntimeException(errMsg);
+        }
+
+        return value;
+    }
+
+    // Parse the "report-interval" option value (in seconds); the default if the option is not specified
+    static int getReportInterval(String valueStr) {
+        if (StringUtils.isBlank(valueStr)) {
+            return DEFAULT_REPORT_INTERVAL_SEC;
+        }
+
+        int value;
+        try {
+            value = Integer.parseInt(valueStr.trim());
+        }
+        catch (NumberFormatException nfe) {
+            value = -1;
+        }
+
+        if (value < 0) {
+            String errMsg = String.format("Specified \"%s\" value (%s) must be a non-negative integer!",
+                    SensorDataProducerUtil.CMD_OPTION_REPORT_INTERVAL_LONG, valueStr);
+            throw new RuntimeException(errMsg);
+        }
+
+        return value;
+    }
+
+    // Parse a reading time option value ("yyyy-MM-dd" or "yyyy-MM-ddTHH:mm:ss", UTC) as Unix time in seconds;
+    // a date alone means the start (or the end) of that day. "defaultValue" if the option is not specified.
+    static long getReadingTimeValue(String valueStr, String optionName, boolean endOfDay, long defaultValue) {
+        if (StringUtils.isBlank(valueStr)) {
+            return defaultValue;
+        }
+
+        try {
+            String timeStr = valueStr.trim();
+            if (timeStr.length() == 10) {
+                LocalDate date = LocalDate.parse(timeStr);
+                LocalDateTime dateTime = endOfDay ? date.atTime(23, 59, 59) : date.atStartOfDay();
+                return dateTime.toEpochSecond(ZoneOffset.UTC);
+            }
+            return LocalDateTime.parse(timeStr).toEpochSecond(ZoneOffset.UTC);
+        }
+        catch (DateTimeParseException dtpe) {
+            String errMsg = String.format("Specified \"%s\" value (%s) must be in \"yyyy-MM-dd\" or " +
+                            "\"yyyy-MM-ddTHH:mm:ss\" format!",
+                    optionName, valueStr);
+            throw new RuntimeException(errMsg);
+        }
+    }
+
+    // Create a producer with the given (ProducerBuilder.loadConf) settings on top of the defaults of this program
+    static Producer<?> createProducer(PulsarClient pulsarClient,
+                                      Schema<?> pulsarSchema,
+                                      String pulsarTopic,
+                                      Map<String, Object> producerConf) throws PulsarClientException {
+        return pulsarClient
+                .newProducer(pulsarSchema)
+                .enableBatching(true)
+                .blockIfQueueFull(true)
+                .loadConf(producerConf)
+                .topic(pulsarTopic)
+                .create();
+    }
+
     // Main function
     public static void main(String[] args) {
         try {
@@ -122,6 +288,45 @@ public class SensorDataProducer {
                 usageAndExit(30);
             }
 
+            int workerNum = getPositiveIntValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_PARALLELISM_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_PARALLELISM_LONG);
+            int producerNum = getPositiveIntValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_PRODUCERS_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_PRODUCERS_LONG);
+
+            // Optional replay pacing
+            double speedup = getPacingValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_SPEEDUP_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_SPEEDUP_LONG);
+            double maxRate = getPacingValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_RATE_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_RATE_LONG);
+            boolean paced = (speedup > 0) || (maxRate > 0);
+
+            // In-flight message window of each producer
+            int maxInFlight = getPositiveIntValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_MAX_IN_FLIGHT_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_MAX_IN_FLIGHT_LONG);
+
+            // Optional reading time range of the messages to publish
+            long startTime = getReadingTimeValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_START_TIME_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_START_TIME_LONG, false, Long.MIN_VALUE);
+            long endTime = getReadingTimeValue(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_END_TIME_SHORT),
+                    SensorDataProducerUtil.CMD_OPTION_END_TIME_LONG, true, Long.MAX_VALUE);
+            if (startTime > endTime) {
+                String errMsg = String.format("Specified \"%s\" value must not be after the \"%s\" value!",
+                        SensorDataProducerUtil.CMD_OPTION_START_TIME_LONG, SensorDataProducerUtil.CMD_OPTION_END_TIME_LONG);
+                throw new RuntimeException(errMsg);
+            }
+
+            // Throughput/latency reporting
+            int reportIntervalSec = getReportInterval(
+                    cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_REPORT_INTERVAL_SHORT));
+            String summaryFileStr = cmd.getOptionValue(SensorDataProducerUtil.CMD_OPTION_SUMMARY_FILE_SHORT);
+
             try {
                 Thread.sleep(1000);
             }
@@ -171,67 +376,127 @@ public class SensorDataProducer {
                 throw new RuntimeException(errMsg);
             }
 
-            // Create a Pulsar producer with certain schema on the specified topic
-            Producer producer = pulsarClient
-                    .newProducer(pulsarSchema)
-                    .enableBatching(true)
-                    .blockIfQueueFull(true)
-                    .topic(pulsarTopic)
-                    .create();
+            // Pulsar producer settings: the "producer.*" keys, on top of the selected profile (see ProducerProfile)
+            HashMap<String, Object> producerConf = new HashMap<>();
+            String producerPrefix = "producer";
+            for (Iterator<String> it = config.getKeys(producerPrefix); it.hasNext(); ) {
+                String confKey = it.next();
+                String confVal = config.getProperty(confKey).toString();
+                if (!StringUtils.isBlank(confVal))
+                    producerConf.put(confKey.substring(producerPrefix.length() + 1), config.getProperty(confKey));
+            }
 
-            FileInputStream fileInputStream=new FileInputStream(workloadSrcFileStr);
-            Scanner scanner = new Scanner(fileInputStream);
+            // Bench mode: publish the workload once with every producer profile and compare the results
+            List<ProducerProfile> producerProfiles = new ArrayList<>();
+            if ( cmd.hasOption(SensorDataProducerUtil.CMD_OPTION_BENCH_SHORT) ) {
+                producerProfiles.addAll(Arrays.asList(ProducerProfile.values()));
+            }
+            else {
+                producerProfiles.add(ProducerProfile.fromName(config.getString("producer_profile")));
+            }
 
-            String msgLine;
-            int totalMsg = 0;
-            int lineNum = 1;
-            AtomicInteger msgSucceedCnt = new AtomicInteger();
-            AtomicInteger msgFailedCnt = new AtomicInteger();
+            List<Map<String, String>> summaries = new ArrayList<>();
+            for (ProducerProfile producerProfile : producerProfiles) {
+                Map<String, Object> profileConf = producerProfile.getProducerConf(producerConf);
+                // By default, the in-flight window matches the producer's own pending message queue
+                int profileMaxInFlight = (maxInFlight > 0) ?
+                        maxInFlight : ProducerProfile.getMaxPendingMessages(profileConf);
+
+                System.out.println("\n=========================");
+                System.out.format("Producer profile: %s %s\n", producerProfile.getProfileName(), profileConf);
+
+                // A pacer starts its clock at the first reading it sees, so every profile run needs its own
+                ReplayPacer pacer = paced ? new ReplayPacer(speedup, maxRate) : null;
+                PublishStats stats = new PublishStats();
+                if ( (workerNum > 0) || (producerNum > 0) ) {
+                    // Pipeline mode: reader -> N parsing/encoding workers -> M producers
+                    runPipeline(pulsarClient, pulsarSchema, pulsarTopic, profileConf,
+                            Math.max(workerNum, 1), Math.max(producerNum, 1), pacer, stats, profileMaxInFlight,
+                            reportIntervalSec, workloadSrcFileStr, startTime, endTime);
+                }
+                else {
+                    runSingleThread(pulsarClient, pulsarSchema, pulsarTopic, profileConf,
+                            pacer, stats, profileMaxInFlight, reportIntervalSec, workloadSrcFileStr, startTime, endTime);
+                }
 
-            CompletableFuture<MessageId> future = null;
+                Map<String, String> summary = new LinkedHashMap<>();
+                summary.put("profile", producerProfile.getProfileName());
+                summary.putAll(stats.getSummary());
+                summaries.add(summary);
+            }
 
-            System.out.println("\n=========================");
-            System.out.println("Sending messages ...");
+            if (producerProfiles.size() > 1) {
+                printBenchResults(summaries);
+            }
 
-            while ( scanner.hasNext() ) {
+            if (!StringUtils.isBlank(summaryFileStr)) {
+                PublishStats.writeSummaries(Paths.get(summaryFileStr), summaries);
+                System.out.println("  Summary written to: " + summaryFileStr);
+            }
+
+            // Finish processing
+            pulsarClient.close();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            System.err.format("\nERROR: Unexpected error happens: %s.\n", e.getMessage());
+            usageAndExit(100);
+        }
+    }
+
+    // Publish the workload file (the readings within [startTime, endTime]) from the calling thread, with one Pulsar producer
+    @SuppressWarnings("unchecked")
+    static void runSingleThread(PulsarClient pulsarClient,
+                                Schema<?> pulsarSchema,
+                                String pulsarTopic,
+                                Map<String, Object> producerConf,
+                                ReplayPacer pacer,
+                                PublishStats stats,
+                                int maxInFlight,
+                                int reportIntervalSec,
+                                String workloadSrcFileStr,
+                                long startTime,
+                                long endTime) throws Exception {
+        // Create a Pulsar producer with certain schema on the specified topic
+        Producer producer = createProducer(pulsarClient, pulsarSchema, pulsarTopic, producerConf);
+
+        // Either a workload CSV file or a binary workload file
+        WorkloadReader workloadReader = WorkloadReader.open(Paths.get(workloadSrcFileStr), startTime, endTime);
+        WorkloadCsvLine csvLine = new WorkloadCsvLine();
+        SensorJsonPayloadEncoder jsonPayloadEncoder = new SensorJsonPayloadEncoder();
+        // Avro records are built straight from the CSV fields, with the schema fields resolved only once
+        SensorAvroPayloadEncoder avroPayloadEncoder = null;
+        if (pulsarSchema instanceof GenericAvroSchema) {
+            avroPayloadEncoder = new SensorAvroPayloadEncoder((GenericAvroSchema) pulsarSchema);
+        }
+
+        PublishWindow window = new PublishWindow(maxInFlight);
+        int totalMsg = 0;
+
+        System.out.println("Sending messages ...");
+        stats.start(reportIntervalSec);
+
+        try {
+            while ( workloadReader.readLine(csvLine) ) {
                 totalMsg++;
-                msgLine = scanner.nextLine();
-
-                String[] strArr = StringUtils.split(msgLine, ',');
-                String msgPayloadJson = String.format(
-                        "{" +
-                            "\"DrillID\": \"%s\", " +
-                            "\"SensorID\": \"%s\", " +
-                            "\"SensorType\": \"%s\", " +
-                            "\"ReadingTime\": \"%s\", " +
-                            "\"ReadingValue\": %f" +
-                        "}",
-                        strArr[0],
-                        strArr[1],
-                        strArr[2],
-                        strArr[4],
-                        Float.parseFloat(strArr[5])
-                );
+                long lineNum = csvLine.getLineNum();
+
+                if (pacer != null) {
+                    ReplayPacer.awaitUntil(pacer.reserve(csvLine));
+                }
 
                 TypedMessageBuilder messageBuilder =
                         producer.newMessage(pulsarSchema);
 
-                if ( StringUtils.equalsIgnoreCase(schemaType, "avro") ) {
-                    org.apache.avro.generic.GenericRecord avroRecord =
-                            SensorDataProducerUtil.GetGenericRecord_ApacheAvro(
-                                    pulsarSchema.getSchemaInfo().getSchemaDefinition(),
-                                    msgPayloadJson
-                            );
-                    GenericRecord payloadAvro = SensorDataProducerUtil.GetGenericRecord_PulsarAvro(
-                            (GenericAvroSchema) pulsarSchema,
-                            avroRecord);
-
-                    messageBuilder.value(payloadAvro);
+                int msgSize;
+                if (avroPayloadEncoder != null) {
+                    messageBuilder.value(avroPayloadEncoder.encode(csvLine));
+                    msgSize = avroPayloadEncoder.getLastEncodedSize();
                 }
                 else {
-                    byte[] payloadBytes = msgPayloadJson.getBytes(StandardCharsets.UTF_8);
+                    byte[] payloadBytes = jsonPayloadEncoder.encode(csvLine);
                     messageBuilder.value(payloadBytes);
-
+                    msgSize = payloadBytes.length;
                 }
 
                 messageBuilder.property("line", String.valueOf(lineNum));
@@ -244,37 +509,91 @@ public class SensorDataProducer {
                 //    e.printStackTrace();
                 //}
 
-                // Async API
-                future = messageBuilder.sendAsync();
-                future.whenComplete((messageId, throwable) -> msgSucceedCnt.getAndIncrement())
-                    .exceptionally(ex -> {
-                        logger.trace("Failed to publish message: " + msgPayloadJson );
-                        msgFailedCnt.getAndIncrement();
-                        //System.out.println("Failed to publish message: " + msgPayloadJson );
-                        return null;
-                    });
-
-                lineNum++;
+                // Async API, with at most "maxInFlight" messages outstanding
+                window.acquire();
+                long sendNanos = stats.onSend();
+                CompletableFuture<MessageId> future = messageBuilder.sendAsync();
+                future.whenComplete((messageId, throwable) -> {
+                    stats.onComplete(sendNanos, msgSize, throwable);
+                    window.release();
+                    if (throwable != null) {
+                        logger.trace("Failed to publish message (line " + lineNum + ")");
+                    }
+                });
+            }
+
+            // Wait for all the messages to be either sent or failed before it exits.
+            window.flushAndDrain(producer);
+        }
+        finally {
+            stats.stop();
+            workloadReader.close();
+            producer.close();
+        }
+
+        System.out.println("  Total message read: " + totalMsg);
+        stats.printSummary();
+    }
+
+    // Publish the workload file (the readings within [startTime, endTime]) through the multi-threaded pipeline
+    // (see SensorDataPipeline)
+    static void runPipeline(PulsarClient pulsarClient,
+                            Schema<?> pulsarSchema,
+                            String pulsarTopic,
+                            Map<String, Object> producerConf,
+                            int workerNum,
+                            int producerNum,
+                            ReplayPacer pacer,
+                            PublishStats stats,
+                            int maxInFlight,
+                            int reportIntervalSec,
+                            String workloadSrcFileStr,
+                            long startTime,
+                            long endTime) throws Exception {
+        List<Producer<?>> producers = new ArrayList<>();
+        try {
+            for (int i = 0; i < producerNum; i++) {
+                producers.add(createProducer(pulsarClient, pulsarSchema, pulsarTopic, producerConf));
             }
 
-            // Wait for the message sending process to complete before it exits.
-            if (future != null)
-                future.get(10, TimeUnit.SECONDS);
+            SensorDataPipeline pipeline = new SensorDataPipeline(pulsarSchema, producers, workerNum, pacer, stats, maxInFlight);
 
-            System.out.println("  Total message read: " + totalMsg);
-            System.out.println("  Total Messages successfully sent : " + msgSucceedCnt.get());
-            System.out.println("  Total Messages failed to send: " + msgFailedCnt.get());
+            System.out.format("Sending messages (%d encoding worker(s), %d producer(s)) ...\n", workerNum, producerNum);
 
-            // Finish processing
-            scanner.close();
-            fileInputStream.close();
-            producer.close();
-            pulsarClient.close();
+            stats.start(reportIntervalSec);
+            long totalMsg;
+            try {
+                totalMsg = pipeline.run(Paths.get(workloadSrcFileStr), startTime, endTime);
+            }
+            finally {
+                stats.stop();
+            }
+
+            System.out.println("  Total message read: " + totalMsg);
+            stats.printSummary();
         }
-        catch (Exception e) {
-            e.printStackTrace();
-            System.err.format("\nERROR: Unexpected error happens: %s.\n", e.getMessage());
-            usageAndExit(100);
+        finally {
+            for (Producer<?> producer : producers) {
+                producer.close();
+            }
+        }
+    }
+
+    // Print the throughput/latency of every producer profile of a bench run side by side
+    static void printBenchResults(List<Map<String, String>> summaries) {
+        System.out.println("\n=========================");
+        System.out.format("%-16s %12s %10s %10s %10s %10s %10s %8s\n",
+                "Profile", "msgs/s", "MB/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "failed");
+        for (Map<String, String> summary : summaries) {
+            System.out.format(Locale.ROOT, "%-16s %,12.0f %10.2f %10s %10s %10s %10s %8s\n",
+                    summary.get("profile"),
+                    Double.parseDouble(summary.get("msgs_per_sec")),
+                    Double.parseDouble(summary.get("bytes_per_sec")) / (1024 * 1024),
+                    summary.get("latency_ms_p50"),
+                    summary.get("latency_ms_p99"),
+                    summary.get("latency_ms_p999"),
+                    summary.get("latency_ms_max"),
+                    summary.get("failed_msgs"));
         }
     }
 }
@@ -32,6 +32,26 @@ public class SensorDataProducerUtil {
     public static final String CMD_OPTION_CFG_FILE_LONG = "config";
     public static final String CMD_OPTION_WORKLOAD_SOURCE_SHORT = "w";
     public static final String CMD_OPTION_WORKLOAD_SOURCE_LONG = "workload";
+    public static final String CMD_OPTION_PARALLELISM_SHORT = "p";
+    public static final String CMD_OPTION_PARALLELISM_LONG = "parallelism";
+    public static final String CMD_OPTION_PRODUCERS_SHORT = "m";
+    public static final String CMD_OPTION_PRODUCERS_LONG = "producers";
+    public static final String CMD_OPTION_SPEEDUP_SHORT = "x";
+    public static final String CMD_OPTION_SPEEDUP_LONG = "speedup";
+    public static final String CMD_OPTION_RATE_SHORT = "r";
+    public static final String CMD_OPTION_RATE_LONG = "rate";
+    public static final String CMD_OPTION_REPORT_INTERVAL_SHORT = "i";
+    public static final String CMD_OPTION_REPORT_INTERVAL_LONG = "report-interval";
+    public static final String CMD_OPTION_SUMMARY_FILE_SHORT = "o";
+    public static final String CMD_OPTION_SUMMARY_FILE_LONG = "summary";
+    public static final String CMD_OPTION_MAX_IN_FLIGHT_SHORT = "n";
+    public static final String CMD_OPTION_MAX_IN_FLIGHT_LONG = "max-in-flight";
+    public static final String CMD_OPTION_BENCH_SHORT = "b";
+    public static final String CMD_OPTION_BENCH_LONG = "bench";
+    public static final String CMD_OPTION_START_TIME_SHORT = "s";
+    public static final String CMD_OPTION_START_TIME_LONG = "start";
+    public static final String CMD_OPTION_END_TIME_SHORT = "e";
+    public static final String CMD_OPTION_END_TIME_LONG = "end";
 
     /**
      * Create Pulsar client
@@ -127,6 +147,27 @@ public class SensorDataProducerUtil {
         return schema;
     }
 
+    // Convert one workload CSV line into the JSON message payload, e.g.
+    //   DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33
+    //   => {"DrillID": "DRL-001", "SensorID": "SNS-temp-01", "SensorType": "temp", "ReadingTime": "2021-04-05T16:34:43", "ReadingValue": 344.329987}
+    public static String getJsonPayload(String csvLine) {
+        String[] strArr = StringUtils.split(csvLine, ',');
+
+        return String.format(
+                "{" +
+                    "\"DrillID\": \"%s\", " +
+                    "\"SensorID\": \"%s\", " +
+                    "\"SensorType\": \"%s\", " +
+                    "\"ReadingTime\": \"%s\", " +
+                    "\"ReadingValue\": %f" +
+                "}",
+                strArr[0],
+                strArr[1],
+                strArr[2],
+                strArr[4],
+                Float.parseFloat(strArr[5])
+        );
+    }
 
     // Create a general (Apache) Avro record
     public static org.apache.avro.generic.GenericRecord GetGenericRecord_ApacheAvro(String avroSchemaDef, String jsonData)  {
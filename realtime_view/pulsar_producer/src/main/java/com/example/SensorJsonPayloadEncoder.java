@@ -0,0 +1,90 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *  Encodes a workload CSV line straight into the JSON message payload bytes, byte for byte the same
+ *  as "SensorDataProducerUtil.getJsonPayload(csvLine).getBytes()" but without the intermediate Strings.
+ *
+ *  NOT thread-safe (the scratch buffer is reused).
+ */
+public class SensorJsonPayloadEncoder {
+
+    private static final byte[] DRILL_ID_PREFIX = "{\"DrillID\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SENSOR_ID_PREFIX = "\", \"SensorID\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SENSOR_TYPE_PREFIX = "\", \"SensorType\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] READING_TIME_PREFIX = "\", \"ReadingTime\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] READING_VALUE_PREFIX = "\", \"ReadingValue\": ".getBytes(StandardCharsets.US_ASCII);
+
+    // Beyond this, "%f" is used for the reading value instead of the fixed-point formatting below
+    private static final double MAX_FIXED_POINT_VALUE = 1e12;
+    private static final int FRACTION_DIGIT_NUM = 6;
+    private static final long FRACTION_SCALE = 1000000L;
+
+    private byte[] scratch = new byte[256];
+
+    public byte[] encode(WorkloadCsvLine line) {
+        int maxLen = DRILL_ID_PREFIX.length + SENSOR_ID_PREFIX.length + SENSOR_TYPE_PREFIX.length +
+                READING_TIME_PREFIX.length + READING_VALUE_PREFIX.length + 64 +
+                line.getFieldLength(WorkloadCsvLine.DRILL_ID_IDX) +
+                line.getFieldLength(WorkloadCsvLine.SENSOR_ID_IDX) +
+                line.getFieldLength(WorkloadCsvLine.SENSOR_TYPE_IDX) +
+                line.getFieldLength(WorkloadCsvLine.READING_TIME_IDX);
+        if (scratch.length < maxLen) {
+            scratch = new byte[maxLen];
+        }
+
+        int pos = put(DRILL_ID_PREFIX, 0);
+        pos = line.copyField(WorkloadCsvLine.DRILL_ID_IDX, scratch, pos);
+        pos = put(SENSOR_ID_PREFIX, pos);
+        pos = line.copyField(WorkloadCsvLine.SENSOR_ID_IDX, scratch, pos);
+        pos = put(SENSOR_TYPE_PREFIX, pos);
+        pos = line.copyField(WorkloadCsvLine.SENSOR_TYPE_IDX, scratch, pos);
+        pos = put(READING_TIME_PREFIX, pos);
+        pos = line.copyField(WorkloadCsvLine.READING_TIME_IDX, scratch, pos);
+        pos = put(READING_VALUE_PREFIX, pos);
+        pos = putFloat(line.getFloatField(WorkloadCsvLine.READING_VALUE_IDX), pos);
+        scratch[pos++] = '}';
+
+        return Arrays.copyOf(scratch, pos);
+    }
+
+    private int put(byte[] bytes, int pos) {
+        System.arraycopy(bytes, 0, scratch, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    // Same output as String.format("%f", value): 6 fraction digits, rounded half up.
+    // A float times 10^6 is exact in double (24 + 14 significant bits), so Math.round() rounds the exact value.
+    private int putFloat(float value, int pos) {
+        double absValue = Math.abs((double) value);
+        if ( Double.isNaN(absValue) || (absValue >= MAX_FIXED_POINT_VALUE) ) {
+            return put(String.format("%f", value).getBytes(StandardCharsets.US_ASCII), pos);
+        }
+
+        if (Float.floatToRawIntBits(value) < 0) {
+            scratch[pos++] = '-';
+        }
+
+        long scaled = Math.round(absValue * FRACTION_SCALE);
+        pos = putDigits(scaled / FRACTION_SCALE, pos, 1);
+        scratch[pos++] = '.';
+        return putDigits(scaled % FRACTION_SCALE, pos, FRACTION_DIGIT_NUM);
+    }
+
+    // Write the decimal digits of a non-negative number, left-padded with '0' to at least "minDigitNum" digits
+    private int putDigits(long number, int pos, int minDigitNum) {
+        int digitNum = 1;
+        for (long n = number / 10; n > 0; n /= 10) {
+            digitNum++;
+        }
+        digitNum = Math.max(digitNum, minDigitNum);
+
+        for (int i = pos + digitNum - 1; i >= pos; i--) {
+            scratch[i] = (byte) ('0' + (number % 10));
+            number /= 10;
+        }
+        return pos + digitNum;
+    }
+}
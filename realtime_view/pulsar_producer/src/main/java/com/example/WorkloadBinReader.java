@@ -0,0 +1,348 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Reader of the binary workload files of WorkloadGen ("-k bin", see BinaryRecordSink there for the format).
+ *
+ *  The block index is loaded when the file is opened, so only the blocks overlapping the reading time range
+ *  are read at all. Every reading is turned back into its workload CSV line, e.g.
+ *      DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33
+ *  which is exactly the line of the workload CSV file, so the rest of SensorDataProducer works the same for
+ *  both formats. The line number is the record number in the file.
+ *
+ *  NOT thread-safe.
+ */
+public class WorkloadBinReader implements WorkloadReader {
+
+    // "SWB1"
+    public static final int MAGIC = 0x53574231;
+    public static final int VERSION = 1;
+
+    // record count, base time and the byte lengths of the 3 varint columns
+    private static final int BLOCK_HEADER_LEN = 4 + 8 + 3 * 4;
+    // block offset, first record number, record count, min. and max. reading time
+    private static final int INDEX_ENTRY_LEN = 8 + 8 + 4 + 8 + 8;
+    // index offset and magic
+    private static final int FOOTER_LEN = 8 + 4;
+
+    private static final int SECONDS_PER_DAY = 24 * 3600;
+
+    private static final int TIME_COLUMN = 0;
+    private static final int DRILL_COLUMN = 1;
+    private static final int SENSOR_COLUMN = 2;
+
+    private final Path filePath;
+    private final FileChannel fileChannel;
+    private final long startTime;
+    private final long endTime;
+
+    // "DRL-001,", indexed by drill dictionary index
+    private final byte[][] drillBytes;
+    // "SNS-temp-01,temp,", indexed by sensor dictionary index
+    private final byte[][] sensorBytes;
+
+    // Block index
+    private final int blockNum;
+    private final long[] blockOffsets;
+    private final long[] blockFirstRecordNums;
+    private final long[] blockMinTimes;
+    private final long[] blockMaxTimes;
+
+    // Current block
+    private int blockIdx = -1;
+    private byte[] blockBytes = new byte[BLOCK_HEADER_LEN];
+    private int blockRecordCnt = 0;
+    private int blockRecordIdx = 0;
+    private long blockTime;
+    // Read positions in "blockBytes" of the time, drill and sensor columns
+    private final int[] columnPos = new int[3];
+    private int valuePos;
+
+    // "yyyy-MM-dd,yyyy-MM-dd'T'HH:mm:ss," of the last reading time
+    private final byte[] timeBytes = new byte[31];
+    private long cachedTime = Long.MIN_VALUE;
+
+    private final byte[] lineBytes;
+    private final ByteBuffer lineBuffer;
+
+    public WorkloadBinReader(Path filePath) throws IOException {
+        this(filePath, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public WorkloadBinReader(Path filePath, long startTime, long endTime) throws IOException {
+        this.filePath = filePath;
+        this.startTime = startTime;
+        this.endTime = endTime;
+
+        // Header with the drill and sensor dictionaries
+        int maxDrillLen = 0;
+        int maxSensorLen = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filePath)))) {
+            if ( (in.readInt() != MAGIC) || (in.readInt() != VERSION) ) {
+                String errMsg = String.format("Workload file (%s) is not a (version %d) binary workload file!",
+                        filePath, VERSION);
+                throw new RuntimeException(errMsg);
+            }
+
+            drillBytes = new byte[in.readInt()][];
+            for (int i = 0; i < drillBytes.length; i++) {
+                drillBytes[i] = (in.readUTF() + ",").getBytes(StandardCharsets.UTF_8);
+                maxDrillLen = Math.max(maxDrillLen, drillBytes[i].length);
+            }
+
+            sensorBytes = new byte[in.readInt()][];
+            for (int i = 0; i < sensorBytes.length; i++) {
+                sensorBytes[i] = (in.readUTF() + "," + in.readUTF() + ",").getBytes(StandardCharsets.UTF_8);
+                maxSensorLen = Math.max(maxSensorLen, sensorBytes[i].length);
+            }
+        }
+
+        // Drill, sensor, date and time, and the longest value a long can hold
+        lineBytes = new byte[maxDrillLen + maxSensorLen + timeBytes.length + 24];
+        lineBuffer = ByteBuffer.wrap(lineBytes);
+
+        fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+        try {
+            // Block index
+            long fileSize = fileChannel.size();
+            ByteBuffer footer = readFully(fileSize - FOOTER_LEN, FOOTER_LEN);
+            long indexOffset = footer.getLong();
+            if (footer.getInt() != MAGIC) {
+                String errMsg = String.format("Binary workload file (%s) is incomplete (no index)!", filePath);
+                throw new RuntimeException(errMsg);
+            }
+
+            ByteBuffer index = readFully(indexOffset, (int) (fileSize - FOOTER_LEN - indexOffset));
+            blockNum = index.getInt();
+            if (index.remaining() != blockNum * INDEX_ENTRY_LEN) {
+                String errMsg = String.format("Binary workload file (%s) has an invalid index!", filePath);
+                throw new RuntimeException(errMsg);
+            }
+
+            blockOffsets = new long[blockNum];
+            blockFirstRecordNums = new long[blockNum];
+            blockMinTimes = new long[blockNum];
+            blockMaxTimes = new long[blockNum];
+            for (int i = 0; i < blockNum; i++) {
+                blockOffsets[i] = index.getLong();
+                blockFirstRecordNums[i] = index.getLong();
+                index.getInt();
+                blockMinTimes[i] = index.getLong();
+                blockMaxTimes[i] = index.getLong();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean readLine(WorkloadCsvLine line) throws IOException {
+        while (true) {
+            if (blockRecordIdx == blockRecordCnt) {
+                if (!nextBlock()) {
+                    return false;
+                }
+            }
+
+            blockTime += readVarint(TIME_COLUMN);
+            int drillIdx = (int) readVarint(DRILL_COLUMN);
+            int sensorIdx = (int) readVarint(SENSOR_COLUMN);
+            float readingValue = Float.intBitsToFloat(
+                    ((blockBytes[valuePos] & 0xff) << 24) | ((blockBytes[valuePos + 1] & 0xff) << 16) |
+                    ((blockBytes[valuePos + 2] & 0xff) << 8) | (blockBytes[valuePos + 3] & 0xff));
+            valuePos += 4;
+            long lineNum = blockFirstRecordNums[blockIdx] + (++blockRecordIdx);
+
+            if (blockTime < startTime) {
+                continue;
+            }
+            if (blockTime > endTime) {
+                // The reading times don't decrease within a block
+                blockRecordIdx = blockRecordCnt;
+                continue;
+            }
+
+            if ( (drillIdx >= drillBytes.length) || (sensorIdx >= sensorBytes.length) ) {
+                String errMsg = String.format("Record %d of the binary workload file (%s) has an unknown drill or sensor!",
+                        lineNum, filePath);
+                throw new RuntimeException(errMsg);
+            }
+
+            int end = putLine(drillIdx, sensorIdx, readingValue);
+            line.set(lineBuffer, 0, end, lineNum);
+            return true;
+        }
+    }
+
+    // Load the next block that overlaps the reading time range; false if there is none
+    private boolean nextBlock() throws IOException {
+        do {
+            blockIdx++;
+            if (blockIdx >= blockNum) {
+                blockRecordCnt = 0;
+                blockRecordIdx = 0;
+                return false;
+            }
+        } while ( (blockMaxTimes[blockIdx] < startTime) || (blockMinTimes[blockIdx] > endTime) );
+
+        ByteBuffer header = readFully(blockOffsets[blockIdx], BLOCK_HEADER_LEN);
+        blockRecordCnt = header.getInt();
+        blockTime = header.getLong();
+        int timeColumnLen = header.getInt();
+        int drillColumnLen = header.getInt();
+        int sensorColumnLen = header.getInt();
+
+        int columnsLen = timeColumnLen + drillColumnLen + sensorColumnLen + 4 * blockRecordCnt;
+        if (blockBytes.length < columnsLen) {
+            blockBytes = new byte[columnsLen];
+        }
+        ByteBuffer columns = ByteBuffer.wrap(blockBytes, 0, columnsLen);
+        readFully(columns, blockOffsets[blockIdx] + BLOCK_HEADER_LEN);
+
+        columnPos[TIME_COLUMN] = 0;
+        columnPos[DRILL_COLUMN] = timeColumnLen;
+        columnPos[SENSOR_COLUMN] = timeColumnLen + drillColumnLen;
+        valuePos = timeColumnLen + drillColumnLen + sensorColumnLen;
+        blockRecordIdx = 0;
+
+        return true;
+    }
+
+    // Unsigned LEB128 varint at the read position of the column
+    private long readVarint(int column) {
+        int pos = columnPos[column];
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = blockBytes[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        columnPos[column] = pos;
+        return value;
+    }
+
+    // Write the CSV line of the reading into "lineBytes"; returns its length
+    private int putLine(int drillIdx, int sensorIdx, float readingValue) {
+        if (blockTime != cachedTime) {
+            putDateTime(timeBytes, 11, blockTime);
+            System.arraycopy(timeBytes, 11, timeBytes, 0, 10);
+            timeBytes[10] = ',';
+            timeBytes[30] = ',';
+            cachedTime = blockTime;
+        }
+
+        int pos = put(drillBytes[drillIdx], 0);
+        pos = put(sensorBytes[sensorIdx], pos);
+        pos = put(timeBytes, pos);
+        return putTwoDecimalFloat(readingValue, pos);
+    }
+
+    private int put(byte[] bytes, int pos) {
+        System.arraycopy(bytes, 0, lineBytes, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    // Same output as "%.2f" of the workload generator
+    private int putTwoDecimalFloat(float value, int pos) {
+        long scaled = Math.round((double) value * 100d);
+        if (scaled < 0) {
+            lineBytes[pos++] = '-';
+            scaled = -scaled;
+        }
+
+        long intPart = scaled / 100;
+        int fracPart = (int) (scaled % 100);
+
+        long divisor = 1;
+        while (divisor <= intPart / 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            lineBytes[pos++] = (byte) ('0' + (intPart / divisor) % 10);
+            divisor /= 10;
+        }
+
+        lineBytes[pos++] = '.';
+        lineBytes[pos++] = (byte) ('0' + fracPart / 10);
+        lineBytes[pos++] = (byte) ('0' + fracPart % 10);
+        return pos;
+    }
+
+    // Write "yyyy-MM-dd'T'HH:mm:ss" in UTC for the given Unix time into b[offset, ...)
+    private static void putDateTime(byte[] b, int offset, long unixTime) {
+        long epochDay = Math.floorDiv(unixTime, SECONDS_PER_DAY);
+        int secOfDay = (int) Math.floorMod(unixTime, SECONDS_PER_DAY);
+
+        // Civil date from days since epoch (proleptic Gregorian calendar)
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        putDigits(b, offset, year, 4);
+        b[offset + 4] = '-';
+        putDigits(b, offset + 5, month, 2);
+        b[offset + 7] = '-';
+        putDigits(b, offset + 8, day, 2);
+        b[offset + 10] = 'T';
+        putDigits(b, offset + 11, secOfDay / 3600, 2);
+        b[offset + 13] = ':';
+        putDigits(b, offset + 14, (secOfDay / 60) % 60, 2);
+        b[offset + 16] = ':';
+        putDigits(b, offset + 17, secOfDay % 60, 2);
+    }
+
+    private static void putDigits(byte[] b, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            b[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if ( (position < 0) || (length < 0) ) {
+            String errMsg = String.format("Binary workload file (%s) is truncated!", filePath);
+            throw new RuntimeException(errMsg);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long readPos = position;
+        while (buffer.hasRemaining()) {
+            int readLen = fileChannel.read(buffer, readPos);
+            if (readLen < 0) {
+                String errMsg = String.format("Binary workload file (%s) is truncated!", filePath);
+                throw new RuntimeException(errMsg);
+            }
+            readPos += readLen;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  Reusable, in-place view of one workload CSV line, e.g.
+ *      DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33
+ *
+ *  The fields are kept as (start, end) slices of the buffer the line was read into (see WorkloadCsvReader),
+ *  so reading a line does not copy or allocate anything. The slices are only valid until the next line is read.
+ *
+ *  NOT thread-safe.
+ */
+public class WorkloadCsvLine {
+
+    public static final int DRILL_ID_IDX = 0;
+    public static final int SENSOR_ID_IDX = 1;
+    public static final int SENSOR_TYPE_IDX = 2;
+    public static final int READING_DATE_IDX = 3;
+    public static final int READING_TIME_IDX = 4;
+    public static final int READING_VALUE_IDX = 5;
+    public static final int FIELD_NUM = 6;
+
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8 };
+
+    private ByteBuffer buffer;
+    private final int[] fieldStarts = new int[FIELD_NUM];
+    private final int[] fieldEnds = new int[FIELD_NUM];
+    private long lineNum;
+
+    // Split buffer[start, end) (without the line terminator) into the CSV fields; false if there are too few fields
+    boolean set(ByteBuffer buffer, int start, int end, long lineNum) {
+        this.buffer = buffer;
+        this.lineNum = lineNum;
+
+        int fieldIdx = 0;
+        int fieldStart = start;
+        for (int pos = start; (pos < end) && (fieldIdx < FIELD_NUM - 1); pos++) {
+            if (buffer.get(pos) == ',') {
+                fieldStarts[fieldIdx] = fieldStart;
+                fieldEnds[fieldIdx] = pos;
+                fieldIdx++;
+                fieldStart = pos + 1;
+            }
+        }
+
+        // The last field takes the rest of the line
+        fieldStarts[fieldIdx] = fieldStart;
+        fieldEnds[fieldIdx] = end;
+
+        return (fieldIdx == FIELD_NUM - 1);
+    }
+
+    // Line number (1-based) in the workload file
+    public long getLineNum() {
+        return lineNum;
+    }
+
+    public int getFieldLength(int fieldIdx) {
+        return fieldEnds[fieldIdx] - fieldStarts[fieldIdx];
+    }
+
+    // Copy the (UTF-8) field bytes into dst[dstPos, ...); returns the position after the copied bytes
+    public int copyField(int fieldIdx, byte[] dst, int dstPos) {
+        for (int pos = fieldStarts[fieldIdx]; pos < fieldEnds[fieldIdx]; pos++) {
+            dst[dstPos++] = buffer.get(pos);
+        }
+        return dstPos;
+    }
+
+    // Length of the whole line (without the line terminator)
+    public int getLineLength() {
+        return fieldEnds[FIELD_NUM - 1] - fieldStarts[0];
+    }
+
+    // Copy the whole line (without the line terminator) into dst[dstPos, ...); returns the position after the copied bytes
+    public int copyLine(byte[] dst, int dstPos) {
+        for (int pos = fieldStarts[0]; pos < fieldEnds[FIELD_NUM - 1]; pos++) {
+            dst[dstPos++] = buffer.get(pos);
+        }
+        return dstPos;
+    }
+
+    // Non-negative hash of the field bytes (FNV-1a), e.g. to partition the lines by drill ID
+    public int getFieldHash(int fieldIdx) {
+        int hash = 0x811c9dc5;
+        for (int pos = fieldStarts[fieldIdx]; pos < fieldEnds[fieldIdx]; pos++) {
+            hash = (hash ^ (buffer.get(pos) & 0xff)) * 0x01000193;
+        }
+        return hash & Integer.MAX_VALUE;
+    }
+
+    public String getField(int fieldIdx) {
+        byte[] bytes = new byte[getFieldLength(fieldIdx)];
+        copyField(fieldIdx, bytes, 0);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *  Parse a "yyyy-MM-ddTHH:mm:ss" (or "yyyy-MM-dd HH:mm:ss") field as Unix time in seconds (UTC).
+     *
+     *  @return Long.MIN_VALUE if the field is not a valid date-time
+     */
+    public long getEpochSecondField(int fieldIdx) {
+        int start = fieldStarts[fieldIdx];
+        if (getFieldLength(fieldIdx) != 19) {
+            return Long.MIN_VALUE;
+        }
+
+        byte dateTimeSep = buffer.get(start + 10);
+        if ( (buffer.get(start + 4) != '-') || (buffer.get(start + 7) != '-') ||
+             ((dateTimeSep != 'T') && (dateTimeSep != ' ')) ||
+             (buffer.get(start + 13) != ':') || (buffer.get(start + 16) != ':') ) {
+            return Long.MIN_VALUE;
+        }
+
+        int year = parseDigits(start, 4);
+        int month = parseDigits(start + 5, 2);
+        int day = parseDigits(start + 8, 2);
+        int hour = parseDigits(start + 11, 2);
+        int minute = parseDigits(start + 14, 2);
+        int second = parseDigits(start + 17, 2);
+        if ( (year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > 31) ||
+             (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59) ) {
+            return Long.MIN_VALUE;
+        }
+
+        // Days since 1970-01-01 of the (proleptic Gregorian) civil date
+        int y = (month <= 2) ? (year - 1) : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long epochDay = era * 146097L + dayOfEra - 719468;
+
+        return epochDay * 86400L + hour * 3600L + minute * 60L + second;
+    }
+
+    // Value of "digitNum" decimal digits at buffer[pos, ...); -1 if any of them is not a digit
+    private int parseDigits(int pos, int digitNum) {
+        int value = 0;
+        for (int i = pos; i < pos + digitNum; i++) {
+            int digit = buffer.get(i) - '0';
+            if ( (digit < 0) || (digit > 9) ) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     *  Parse the field as a float, with the same result as Float.parseFloat().
+     *
+     *  Plain decimals with up to 8 fraction digits (e.g. the "%.2f" reading values of the workload generator)
+     *  are parsed in place: n / 10^k is correctly rounded to double, and such a value can never be close
+     *  enough to the midpoint of two floats for the second rounding (to float) to go wrong.
+     *  Anything else falls back to Float.parseFloat().
+     */
+    public float getFloatField(int fieldIdx) {
+        int start = fieldStarts[fieldIdx];
+        int end = fieldEnds[fieldIdx];
+
+        int pos = start;
+        boolean negative = false;
+        if ( (pos < end) && ((buffer.get(pos) == '-') || (buffer.get(pos) == '+')) ) {
+            negative = (buffer.get(pos) == '-');
+            pos++;
+        }
+
+        long digits = 0;
+        int digitNum = 0;
+        int fractionDigitNum = -1;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if ( (b >= '0') && (b <= '9') ) {
+                digits = digits * 10 + (b - '0');
+                digitNum++;
+                if (fractionDigitNum >= 0) {
+                    fractionDigitNum++;
+                }
+            }
+            else if ( (b == '.') && (fractionDigitNum < 0) ) {
+                fractionDigitNum = 0;
+            }
+            else {
+                break;
+            }
+        }
+
+        if ( (pos < end) || (digitNum == 0) || (digitNum > 15) || (fractionDigitNum >= POW10.length) ) {
+            return Float.parseFloat(getField(fieldIdx));
+        }
+
+        double value = (fractionDigitNum > 0) ? (digits / POW10[fractionDigitNum]) : digits;
+        return (float) (negative ? -value : value);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Streaming reader of workload CSV files of any size.
+ *
+ *  The file is memory-mapped window by window ("WINDOW_SIZE" bytes at a time, so files larger than 2GB
+ *  are fine too) and every line is split in place into the fields of a reused WorkloadCsvLine.
+ *  A line that crosses the end of a window is read again from the start of the next window.
+ *
+ *  Empty lines are skipped; both "\n" and "\r\n" line terminators are supported. With a reading time range,
+ *  the lines outside of it are skipped as well (the whole file is still scanned, see WorkloadBinReader for
+ *  a workload file that can seek to a time range).
+ *
+ *  NOT thread-safe.
+ */
+public class WorkloadCsvReader implements WorkloadReader {
+
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Path filePath;
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final int windowSize;
+    // Reading time range (Unix time in seconds) of the lines to read, inclusive
+    private final long startTime;
+    private final long endTime;
+
+    private MappedByteBuffer window;
+    // File position of the current window
+    private long windowStart = 0;
+    // Position in the current window where the next line starts
+    private int linePos = 0;
+    private long lineNum = 0;
+
+    public WorkloadCsvReader(Path filePath) throws IOException {
+        this(filePath, WINDOW_SIZE);
+    }
+
+    public WorkloadCsvReader(Path filePath, long startTime, long endTime) throws IOException {
+        this(filePath, WINDOW_SIZE, startTime, endTime);
+    }
+
+    public WorkloadCsvReader(Path filePath, int windowSize) throws IOException {
+        this(filePath, windowSize, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public WorkloadCsvReader(Path filePath, int windowSize, long startTime, long endTime) throws IOException {
+        this.filePath = filePath;
+        this.fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+        this.fileSize = fileChannel.size();
+        this.windowSize = windowSize;
+        this.startTime = startTime;
+        this.endTime = endTime;
+
+        mapWindow(0);
+    }
+
+    // Number of lines read so far
+    public long getLineNum() {
+        return lineNum;
+    }
+
+    /**
+     *  Read the next non-empty line (within the reading time range) into the (reused) line holder.
+     *
+     *  @return false at the end of the file
+     */
+    @Override
+    public boolean readLine(WorkloadCsvLine line) throws IOException {
+        while (true) {
+            int windowLimit = window.limit();
+            boolean lastWindow = (windowStart + windowLimit >= fileSize);
+            if (linePos >= windowLimit) {
+                if (lastWindow) {
+                    return false;
+                }
+                mapWindow(windowStart + windowLimit);
+                continue;
+            }
+
+            int lineEnd = linePos;
+            while ( (lineEnd < windowLimit) && (window.get(lineEnd) != '\n') ) {
+                lineEnd++;
+            }
+
+            if ( (lineEnd == windowLimit) && !lastWindow ) {
+                // The line continues in the next window
+                if (linePos == 0) {
+                    String errMsg = String.format("Line %d of the workload file (%s) is longer than %d bytes!",
+                            lineNum + 1, filePath, windowSize);
+                    throw new RuntimeException(errMsg);
+                }
+                mapWindow(windowStart + linePos);
+                continue;
+            }
+
+            int lineStart = linePos;
+            linePos = lineEnd + 1;
+            lineNum++;
+
+            int contentEnd = lineEnd;
+            if ( (contentEnd > lineStart) && (window.get(contentEnd - 1) == '\r') ) {
+                contentEnd--;
+            }
+            if (contentEnd == lineStart) {
+                continue;
+            }
+
+            if (!line.set(window, lineStart, contentEnd, lineNum)) {
+                String errMsg = String.format("Line %d of the workload file (%s) doesn't have %d CSV fields!",
+                        lineNum, filePath, WorkloadCsvLine.FIELD_NUM);
+                throw new RuntimeException(errMsg);
+            }
+            if ( ((startTime != Long.MIN_VALUE) || (endTime != Long.MAX_VALUE)) && !isInTimeRange(line) ) {
+                continue;
+            }
+            return true;
+        }
+    }
+
+    private boolean isInTimeRange(WorkloadCsvLine line) {
+        long readingTime = line.getEpochSecondField(WorkloadCsvLine.READING_TIME_IDX);
+        if (readingTime == Long.MIN_VALUE) {
+            String errMsg = String.format("Invalid reading time (%s) at line %d of the workload file (%s)!",
+                    line.getField(WorkloadCsvLine.READING_TIME_IDX), line.getLineNum(), filePath);
+            throw new RuntimeException(errMsg);
+        }
+        return (readingTime >= startTime) && (readingTime <= endTime);
+    }
+
+    private void mapWindow(long start) throws IOException {
+        windowStart = start;
+        window = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+        linePos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *  Reader of a workload file, either a workload CSV file (WorkloadCsvReader) or a binary workload file
+ *  (WorkloadBinReader), which hands out every reading as a (reused) WorkloadCsvLine.
+ *
+ *  NOT thread-safe.
+ */
+public interface WorkloadReader extends Closeable {
+
+    /**
+     *  Read the next reading into the (reused) line holder.
+     *
+     *  @return false at the end of the file (or of the selected time range)
+     */
+    boolean readLine(WorkloadCsvLine line) throws IOException;
+
+    /**
+     *  Open a workload file of either format (detected from its first bytes), only reading the readings
+     *  with a reading time within [startTime, endTime] (Unix time in seconds).
+     */
+    static WorkloadReader open(Path filePath, long startTime, long endTime) throws IOException {
+        int magic = 0;
+        try (InputStream in = Files.newInputStream(filePath)) {
+            if (Files.size(filePath) >= 4) {
+                magic = new DataInputStream(in).readInt();
+            }
+        }
+
+        if (magic == WorkloadBinReader.MAGIC) {
+            return new WorkloadBinReader(filePath, startTime, endTime);
+        }
+        return new WorkloadCsvReader(filePath, startTime, endTime);
+    }
+
+    static WorkloadReader open(Path filePath) throws IOException {
+        return open(filePath, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example;
+
+import org.apache.pulsar.client.api.schema.GenericRecord;
+import org.apache.pulsar.client.impl.schema.generic.GenericAvroSchema;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static com.example.WorkloadCsvLineTest.SPECIAL_VALUES;
+import static com.example.WorkloadCsvLineTest.allValues;
+import static com.example.WorkloadCsvLineTest.csvLine;
+import static com.example.WorkloadCsvLineTest.generatedValues;
+import static com.example.WorkloadCsvLineTest.parse;
+
+/**
+ *  The payload encoders (SensorJsonPayloadEncoder, SensorAvroPayloadEncoder) against the original String
+ *  conversions of SensorDataProducerUtil: Float.parseFloat() of the CSV field and "%f" formatting of the
+ *  JSON payload. The reading values are the ones of WorkloadCsvLineTest.
+ */
+public class SensorPayloadEncoderTest {
+
+    // misc/raw_sensor_data.avsc
+    private static final String RAW_SENSOR_DATA_SCHEMA = "{\n" +
+            "  \"type\": \"record\",\n" +
+            "  \"name\": \"IotSensor\",\n" +
+            "  \"namespace\": \"TestNS\",\n" +
+            "  \"fields\" : [\n" +
+            "    {\"name\": \"DrillID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorID\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"SensorType\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingTime\", \"type\": \"string\"},\n" +
+            "    {\"name\": \"ReadingValue\", \"type\": \"float\"}\n" +
+            "  ]\n" +
+            "}";
+
+    @Test
+    public void encodesJsonLikeStringFormat() {
+        SensorJsonPayloadEncoder encoder = new SensorJsonPayloadEncoder();
+
+        for (String value : allValues()) {
+            String csvLine = csvLine(value);
+            String expected = SensorDataProducerUtil.getJsonPayload(csvLine);
+            byte[] actual = encoder.encode(parse(csvLine));
+
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), actual,
+                    "Reading value \"" + value + "\": expected " + expected + ", got " +
+                            new String(actual, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void encodesAvroLikeJsonRoundTrip() {
+        GenericAvroSchema pulsarSchema =
+                (GenericAvroSchema) SensorDataProducerUtil.getPulsarSchema("avro", RAW_SENSOR_DATA_SCHEMA);
+        String schemaDefinition = pulsarSchema.getSchemaInfo().getSchemaDefinition();
+        SensorAvroPayloadEncoder encoder = new SensorAvroPayloadEncoder(pulsarSchema);
+
+        // The generated values give the same record as the original path
+        List<String> generatedValues = generatedValues();
+        for (int i = 0; i < generatedValues.size(); i += 20) {
+            String csvLine = csvLine(generatedValues.get(i));
+            org.apache.avro.generic.GenericRecord expected = SensorDataProducerUtil.GetGenericRecord_ApacheAvro(
+                    schemaDefinition, SensorDataProducerUtil.getJsonPayload(csvLine));
+            GenericRecord actual = encoder.encode(parse(csvLine));
+
+            for (String fieldName : new String[] { "DrillID", "SensorID", "SensorType", "ReadingTime", "ReadingValue" }) {
+                Object expectedValue = expected.get(fieldName);
+                assertEquals((expectedValue instanceof CharSequence) ? expectedValue.toString() : expectedValue,
+                        actual.getField(fieldName), "CSV line \"" + csvLine + "\", field " + fieldName);
+            }
+        }
+
+        // Other values are taken as they are, whereas the original path went through the "%f" text of the
+        //   JSON payload (6 fraction digits, no NaN or infinity)
+        for (String value : SPECIAL_VALUES) {
+            GenericRecord actual = encoder.encode(parse(csvLine(value)));
+            assertEquals(Float.parseFloat(value), actual.getField("ReadingValue"), "Reading value \"" + value + "\"");
+        }
+    }
+}
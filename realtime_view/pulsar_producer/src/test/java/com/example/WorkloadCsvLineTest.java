@@ -0,0 +1,91 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  The in-place CSV field parsing of WorkloadCsvLine against the original String conversions. The reading
+ *  values are also used by SensorPayloadEncoderTest.
+ */
+public class WorkloadCsvLineTest {
+
+    static final String CSV_LINE_PREFIX = "DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,";
+
+    // Reading values besides the generated "%.2f" ones: signs, zeros, many fraction digits, values at and
+    //   above the fixed-point formatting limit (1e12) and values that are not plain decimals
+    static final String[] SPECIAL_VALUES = {
+            "0.00", "-0.00", "+0.00", "0", "-0", ".5", "-.5", "5.", "+344.33", "-344.33",
+            "0.01", "-0.01", "0.005", "-0.005", "0.0000005", "-0.0000005", "0.00000049", "0.0000015",
+            "344.3349999", "1.12345678", "-1.12345678", "123456789012345", "1234567890123456",
+            "999999999999.99", "-999999999999.99", "1000000000000.00", "-1000000000000.00", "1000000000000.01",
+            "12345678901234.56", "3.4028235E38", "-3.4028235E38", "1e5", "1.5E-7", "1e-45",
+            "NaN", "Infinity", "-Infinity"
+    };
+
+    static String csvLine(String readingValue) {
+        return CSV_LINE_PREFIX + readingValue;
+    }
+
+    static WorkloadCsvLine parse(String csvLine) {
+        byte[] bytes = csvLine.getBytes(StandardCharsets.UTF_8);
+        WorkloadCsvLine line = new WorkloadCsvLine();
+        line.set(ByteBuffer.wrap(bytes), 0, bytes.length, 1);
+        return line;
+    }
+
+    // The "%.2f" reading values of the workload generator, over the sensor value ranges and beyond
+    static List<String> generatedValues() {
+        List<String> values = new ArrayList<>();
+        for (int cents = -300000; cents <= 300000; cents++) {
+            values.add(String.format("%.2f", cents / 100.0));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double magnitude = Math.pow(10, random.nextInt(14) - 2);
+            values.add(String.format("%.2f", (random.nextDouble() - 0.5) * magnitude));
+        }
+        return values;
+    }
+
+    static List<String> allValues() {
+        List<String> values = generatedValues();
+        for (String value : SPECIAL_VALUES) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    @Test
+    public void parsesFloatLikeFloatParseFloat() {
+        for (String value : allValues()) {
+            float expected = Float.parseFloat(value);
+            float actual = parse(csvLine(value)).getFloatField(WorkloadCsvLine.READING_VALUE_IDX);
+
+            // Bit for bit, so -0.0 and NaN are compared too
+            assertEquals(Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual),
+                    "Reading value \"" + value + "\": expected " + expected + ", got " + actual);
+        }
+    }
+
+    @Test
+    public void splitsFields() {
+        WorkloadCsvLine line = parse(csvLine("344.33"));
+
+        assertEquals("DRL-001", line.getField(WorkloadCsvLine.DRILL_ID_IDX));
+        assertEquals("SNS-temp-01", line.getField(WorkloadCsvLine.SENSOR_ID_IDX));
+        assertEquals("temp", line.getField(WorkloadCsvLine.SENSOR_TYPE_IDX));
+        assertEquals("2021-04-05", line.getField(WorkloadCsvLine.READING_DATE_IDX));
+        assertEquals("2021-04-05T16:34:43", line.getField(WorkloadCsvLine.READING_TIME_IDX));
+        assertEquals("344.33", line.getField(WorkloadCsvLine.READING_VALUE_IDX));
+        assertEquals(1617640483L, line.getEpochSecondField(WorkloadCsvLine.READING_TIME_IDX));
+        assertEquals(csvLine("344.33").length(), line.getLineLength());
+    }
+}
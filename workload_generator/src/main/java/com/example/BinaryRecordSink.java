@@ -0,0 +1,279 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  Writes the records into a compact, block-columnar binary workload file that SensorDataProducer can
+ *  replay (and seek into by reading time) like the workload CSV file, at about 1/8 of its size:
+ *
+ *      File   := Header Block* Index Footer
+ *      Header := magic (int), version (int),
+ *                drill dictionary: count (int), count x drill ID (UTF),
+ *                sensor dictionary: count (int), count x (sensor ID (UTF), sensor type (UTF))
+ *      Block  := record count (int), base time (long),
+ *                byte length (int) of the time, drill and sensor columns,
+ *                time column:   record count x varint (reading time - previous reading time, from the base time)
+ *                drill column:  record count x varint (drill dictionary index)
+ *                sensor column: record count x varint (sensor dictionary index)
+ *                value column:  record count x float
+ *      Index  := block count (int), block count x (block offset (long), first record number (long),
+ *                record count (int), min. reading time (long), max. reading time (long))
+ *      Footer := index offset (long), magic (int)
+ *
+ *  All numbers are big-endian, times are Unix times in seconds and varints are unsigned LEB128. Within a
+ *  block the reading times never decrease (a new block is started otherwise), so the index tells which
+ *  blocks hold a given time range without reading them. The reading values are stored as the floats of
+ *  their "%.2f" CSV text, so the CSV line of every record can be restored exactly.
+ *
+ *  The dictionaries only depend on the generator settings, so the files of several time shards can be
+ *  merged into one by copying the blocks (see "mergeFiles()").
+ */
+public class BinaryRecordSink implements RecordSink {
+
+    // "SWB1"
+    public static final int MAGIC = 0x53574231;
+    public static final int VERSION = 1;
+
+    public static final int BLOCK_RECORD_NUM = 64 * 1024;
+
+    // record count, base time and the byte lengths of the 3 varint columns
+    static final int BLOCK_HEADER_LEN = 4 + 8 + 3 * 4;
+    // index offset and magic
+    static final int FOOTER_LEN = 8 + 4;
+
+    // Longest varint of a long
+    private static final int MAX_VARINT_LEN = 10;
+
+    private final FileChannel outChannel;
+    private final int sensorNumPerType;
+
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_LEN);
+    private final ByteBuffer timeColumn = ByteBuffer.allocate(BLOCK_RECORD_NUM * MAX_VARINT_LEN);
+    private final ByteBuffer drillColumn = ByteBuffer.allocate(BLOCK_RECORD_NUM * MAX_VARINT_LEN);
+    private final ByteBuffer sensorColumn = ByteBuffer.allocate(BLOCK_RECORD_NUM * MAX_VARINT_LEN);
+    private final ByteBuffer valueColumn = ByteBuffer.allocate(BLOCK_RECORD_NUM * 4);
+
+    private int blockRecordCnt = 0;
+    private long blockBaseTime;
+    private long lastTime;
+
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(indexBytes);
+    private int blockNum = 0;
+    private long recordNum = 0;
+    private long filePos;
+
+    public BinaryRecordSink(File outputFile, int drillNum, String[] sensorTypeArr, int sensorNumPerType)
+            throws IOException {
+        this.sensorNumPerType = sensorNumPerType;
+        this.outChannel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        writeFully(ByteBuffer.wrap(getHeaderBytes(drillNum, sensorTypeArr, sensorNumPerType)));
+    }
+
+    // Header with the drill and sensor dictionaries, with the same IDs as in the workload CSV file
+    static byte[] getHeaderBytes(int drillNum, String[] sensorTypeArr, int sensorNumPerType) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(drillNum);
+        for (int drillIdx = 0; drillIdx < drillNum; drillIdx++) {
+            out.writeUTF(String.format("DRL-%03d", (drillIdx + 1)));
+        }
+
+        out.writeInt(sensorTypeArr.length * sensorNumPerType);
+        for (String sensorType : sensorTypeArr) {
+            for (int sensorIdx = 0; sensorIdx < sensorNumPerType; sensorIdx++) {
+                out.writeUTF(String.format("SNS-%s-%02d", sensorType, (sensorIdx + 1)));
+                out.writeUTF(sensorType);
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue)
+            throws IOException {
+        if ( (blockRecordCnt > 0) && ((blockRecordCnt == BLOCK_RECORD_NUM) || (cycleTime < lastTime)) ) {
+            writeBlock();
+        }
+        if (blockRecordCnt == 0) {
+            blockBaseTime = cycleTime;
+            lastTime = cycleTime;
+        }
+
+        putVarint(timeColumn, cycleTime - lastTime);
+        putVarint(drillColumn, drillIdx);
+        putVarint(sensorColumn, (long) typeIdx * sensorNumPerType + sensorIdx);
+        valueColumn.putFloat(SensorJsonRecordEncoder.roundToTwoDecimals(readingValue));
+
+        lastTime = cycleTime;
+        blockRecordCnt++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockRecordCnt > 0) {
+                writeBlock();
+            }
+            writeIndexAndFooter();
+        }
+        finally {
+            outChannel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        indexOut.writeLong(filePos);
+        indexOut.writeLong(recordNum);
+        indexOut.writeInt(blockRecordCnt);
+        indexOut.writeLong(blockBaseTime);
+        indexOut.writeLong(lastTime);
+
+        blockHeader.clear();
+        blockHeader.putInt(blockRecordCnt);
+        blockHeader.putLong(blockBaseTime);
+        blockHeader.putInt(timeColumn.position());
+        blockHeader.putInt(drillColumn.position());
+        blockHeader.putInt(sensorColumn.position());
+
+        for (ByteBuffer buffer : Arrays.asList(blockHeader, timeColumn, drillColumn, sensorColumn, valueColumn)) {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        blockNum++;
+        recordNum += blockRecordCnt;
+        blockRecordCnt = 0;
+    }
+
+    private void writeIndexAndFooter() throws IOException {
+        long indexOffset = filePos;
+
+        indexOut.flush();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + indexBytes.size() + FOOTER_LEN);
+        buffer.putInt(blockNum);
+        buffer.put(indexBytes.toByteArray());
+        buffer.putLong(indexOffset);
+        buffer.putInt(MAGIC);
+        buffer.flip();
+        writeFully(buffer);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            filePos += outChannel.write(buffer);
+        }
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     *  Merge the binary workload files of the time shards, in the given (time) order, into one file:
+     *  the blocks are copied as they are, and the index entries are moved and renumbered accordingly.
+     */
+    public static void mergeFiles(List<File> partFiles, File outputFile) throws IOException {
+        try (FileChannel outChannel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            byte[] headerBytes = null;
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(indexBytes);
+            int blockNum = 0;
+            long recordNum = 0;
+
+            for (File partFile : partFiles) {
+                try (FileChannel inChannel = FileChannel.open(partFile.toPath(), StandardOpenOption.READ)) {
+                    long size = inChannel.size();
+                    ByteBuffer footer = (size >= FOOTER_LEN) ? readFully(inChannel, size - FOOTER_LEN, FOOTER_LEN) : null;
+                    if ( (footer == null) || (footer.getInt(8) != MAGIC) ) {
+                        String errMsg = String.format("Workload part file (%s) is not a binary workload file!",
+                                partFile.getPath());
+                        throw new RuntimeException(errMsg);
+                    }
+                    long indexOffset = footer.getLong();
+
+                    ByteBuffer index = readFully(inChannel, indexOffset, (int) (size - FOOTER_LEN - indexOffset));
+                    int partBlockNum = index.getInt();
+                    long firstBlockOffset = (partBlockNum > 0) ? index.getLong(4) : indexOffset;
+
+                    // All parts have the same header, which is only written once
+                    byte[] partHeaderBytes = readFully(inChannel, 0, (int) firstBlockOffset).array();
+                    if (headerBytes == null) {
+                        headerBytes = partHeaderBytes;
+                        outChannel.write(ByteBuffer.wrap(headerBytes));
+                    }
+                    else if (!Arrays.equals(headerBytes, partHeaderBytes)) {
+                        String errMsg = String.format("Workload part file (%s) has different drills or sensors!",
+                                partFile.getPath());
+                        throw new RuntimeException(errMsg);
+                    }
+
+                    long blockShift = outChannel.position() - firstBlockOffset;
+                    long partFirstRecordNum = recordNum;
+                    for (int blockIdx = 0; blockIdx < partBlockNum; blockIdx++) {
+                        indexOut.writeLong(index.getLong() + blockShift);
+                        indexOut.writeLong(index.getLong() + partFirstRecordNum);
+                        int blockRecordCnt = index.getInt();
+                        indexOut.writeInt(blockRecordCnt);
+                        indexOut.writeLong(index.getLong());
+                        indexOut.writeLong(index.getLong());
+
+                        recordNum += blockRecordCnt;
+                    }
+                    blockNum += partBlockNum;
+
+                    long position = firstBlockOffset;
+                    while (position < indexOffset) {
+                        position += inChannel.transferTo(position, indexOffset - position, outChannel);
+                    }
+                }
+            }
+
+            indexOut.flush();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + indexBytes.size() + FOOTER_LEN);
+            buffer.putInt(blockNum);
+            buffer.put(indexBytes.toByteArray());
+            buffer.putLong(outChannel.position());
+            buffer.putInt(MAGIC);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                outChannel.write(buffer);
+            }
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(length, 0));
+        while (buffer.hasRemaining()) {
+            int readLen = channel.read(buffer, position + buffer.position());
+            if (readLen < 0) {
+                throw new IOException("Unexpected end of the binary workload file!");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Writes the records as workload CSV lines (see SensorRecordEncoder) into a file, through a reusable
+ *  direct write buffer.
+ */
+public class FileRecordSink implements RecordSink {
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final SensorRecordEncoder encoder;
+    private final int maxRecordLen;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final FileChannel outChannel;
+
+    public FileRecordSink(File outputFile, int drillNum, String[] sensorTypeArr, int sensorNumPerType)
+            throws IOException {
+        this.encoder = new SensorRecordEncoder(drillNum, sensorTypeArr, sensorNumPerType);
+        this.maxRecordLen = encoder.getMaxRecordLen();
+        this.outChannel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue)
+            throws IOException {
+        if (buffer.remaining() < maxRecordLen) {
+            writeFully();
+        }
+        encoder.encode(buffer, cycleTime, drillIdx, typeIdx, sensorIdx, readingValue);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeFully();
+        }
+        finally {
+            outChannel.close();
+        }
+    }
+
+    // Drain the buffer into the channel and make it ready for reuse
+    private void writeFully() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            outChannel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
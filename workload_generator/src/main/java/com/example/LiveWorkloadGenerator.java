@@ -0,0 +1,218 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Generates the workload in real time: every "wlFreqInSec" seconds, on the wall-clock cycle boundary
+ *  (e.g. every full minute for "1m"), one reading of every sensor of every drill is generated with the
+ *  cycle time as reading time. It runs until "close()" is called.
+ *
+ *  The drills are split into (at most) "threadNum" partitions, each with its own record sink, and all
+ *  partitions are driven by one scheduled thread pool of "threadNum" threads. Each partition schedules its
+ *  next cycle from the wall clock after finishing the current one, so the cycles don't drift. When a
+ *  partition falls more than a whole cycle behind, the missed cycles are skipped (and counted) so that it
+ *  stays in real time.
+ */
+public class LiveWorkloadGenerator implements Closeable {
+
+    private final int sensorTypeNum;
+    private final int sensorNumPerType;
+    // Reading value range {min, span} per sensor type index
+    private final float[][] valueRanges;
+    private final long wlFreqInMillis;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<Partition> partitions = new ArrayList<>();
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final AtomicLong cycleCnt = new AtomicLong();
+    private final AtomicLong skippedCycleCnt = new AtomicLong();
+    private final AtomicLong recordCnt = new AtomicLong();
+    private volatile Exception failure;
+
+    public LiveWorkloadGenerator(int drillNum,
+                                 String[] sensorTypeArr,
+                                 int sensorNumPerType,
+                                 int wlFreqInSec,
+                                 int threadNum,
+                                 RecordSink.Factory sinkFactory) throws IOException {
+        this.sensorTypeNum = sensorTypeArr.length;
+        this.sensorNumPerType = sensorNumPerType;
+        this.valueRanges = new float[sensorTypeNum][];
+        for (int typeIdx = 0; typeIdx < sensorTypeNum; typeIdx++) {
+            valueRanges[typeIdx] = SensorRecordEncoder.getReadingValueRange(sensorTypeArr[typeIdx]);
+        }
+        this.wlFreqInMillis = wlFreqInSec * 1000L;
+
+        int partitionNum = Math.min(threadNum, drillNum);
+        for (int partitionIdx = 0; partitionIdx < partitionNum; partitionIdx++) {
+            partitions.add(new Partition(
+                    drillNum * partitionIdx / partitionNum,
+                    drillNum * (partitionIdx + 1) / partitionNum,
+                    sinkFactory.createSink(partitionIdx, partitionNum)));
+        }
+
+        executor = new ScheduledThreadPoolExecutor(partitionNum);
+        // Don't wait for the next cycles when closing
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public int getPartitionNum() {
+        return partitions.size();
+    }
+
+    // Sink of every partition
+    public List<RecordSink> getSinks() {
+        List<RecordSink> sinks = new ArrayList<>();
+        for (Partition partition : partitions) {
+            sinks.add(partition.sink);
+        }
+        return sinks;
+    }
+
+    // Number of generated cycles, summed over all partitions
+    public long getCycleCnt() {
+        return cycleCnt.get();
+    }
+
+    // Number of cycles skipped because a partition fell behind, summed over all partitions
+    public long getSkippedCycleCnt() {
+        return skippedCycleCnt.get();
+    }
+
+    public long getRecordCnt() {
+        return recordCnt.get();
+    }
+
+    // Start generating from the next cycle boundary
+    public void start() {
+        long nowMillis = System.currentTimeMillis();
+        long firstCycleMillis = Math.floorDiv(nowMillis, wlFreqInMillis) * wlFreqInMillis + wlFreqInMillis;
+
+        for (Partition partition : partitions) {
+            partition.nextCycleMillis = firstCycleMillis;
+            executor.schedule(partition, firstCycleMillis - nowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     *  Wait until the generator is closed (or has failed).
+     *
+     *  @return false if it is still running after the timeout
+     */
+    public boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        return closedLatch.await(timeout, unit);
+    }
+
+    // The error that stopped the generation, if any
+    public Exception getFailure() {
+        return failure;
+    }
+
+    // Stop generating, let the cycles in progress finish and close all sinks
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                System.out.println("Waiting for the cycles in progress to finish ...");
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            IOException closeException = null;
+            for (Partition partition : partitions) {
+                try {
+                    partition.sink.close();
+                }
+                catch (IOException ioe) {
+                    closeException = ioe;
+                }
+            }
+            if (closeException != null) {
+                throw closeException;
+            }
+        }
+        finally {
+            closedLatch.countDown();
+        }
+    }
+
+    // The drills [firstDrillIdx, lastDrillIdx) and their sink
+    private class Partition implements Runnable {
+        private final int firstDrillIdx;
+        private final int lastDrillIdx;
+        private final RecordSink sink;
+
+        // Wall-clock time of the next cycle, only accessed by the (one) thread running this partition
+        private long nextCycleMillis;
+
+        Partition(int firstDrillIdx, int lastDrillIdx, RecordSink sink) {
+            this.firstDrillIdx = firstDrillIdx;
+            this.lastDrillIdx = lastDrillIdx;
+            this.sink = sink;
+        }
+
+        @Override
+        public void run() {
+            try {
+                generateCycle(nextCycleMillis / 1000L);
+                cycleCnt.incrementAndGet();
+
+                // Skip the cycles whose time has already passed
+                long nowMillis = System.currentTimeMillis();
+                nextCycleMillis += wlFreqInMillis;
+                if (nowMillis - nextCycleMillis >= wlFreqInMillis) {
+                    long missedCycleNum = (nowMillis - nextCycleMillis) / wlFreqInMillis;
+                    nextCycleMillis += missedCycleNum * wlFreqInMillis;
+                    skippedCycleCnt.addAndGet(missedCycleNum);
+                }
+
+                executor.schedule(this, Math.max(0L, nextCycleMillis - nowMillis), TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException ree) {
+                // Closing
+            }
+            catch (Exception e) {
+                failure = e;
+                closedLatch.countDown();
+            }
+        }
+
+        // One reading of every sensor of the partition's drills
+        private void generateCycle(long cycleTime) throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            for (int drillIdx = firstDrillIdx; drillIdx < lastDrillIdx; drillIdx++) {
+                for (int typeIdx = 0; typeIdx < sensorTypeNum; typeIdx++) {
+                    float[] valueRange = valueRanges[typeIdx];
+
+                    for (int sensorIdx = 0; sensorIdx < sensorNumPerType; sensorIdx++) {
+                        float readingValue = valueRange[0] + (valueRange[1] * random.nextFloat());
+                        sink.accept(cycleTime, drillIdx, typeIdx, sensorIdx, readingValue);
+                    }
+                }
+            }
+
+            recordCnt.addAndGet((long) (lastDrillIdx - firstDrillIdx) * sensorTypeNum * sensorNumPerType);
+        }
+    }
+}
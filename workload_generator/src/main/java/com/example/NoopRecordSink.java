@@ -0,0 +1,15 @@
+package com.example;
+
+/**
+ *  Discards all records, e.g. to measure the pure generation throughput.
+ */
+public class NoopRecordSink implements RecordSink {
+
+    @Override
+    public void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
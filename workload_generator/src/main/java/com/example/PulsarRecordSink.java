@@ -0,0 +1,93 @@
+package com.example;
+
+import org.apache.pulsar.client.api.Producer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Publishes the records straight to a Pulsar topic, with the same (JSON, keyed by drill ID) messages as
+ *  SensorDataProducer publishes for the workload CSV file, but without the file in between.
+ *
+ *  The sends are asynchronous with at most "maxInFlight" messages outstanding; "close()" flushes the
+ *  producer and waits until every message has been either sent or failed before closing it.
+ */
+public class PulsarRecordSink implements RecordSink {
+
+    // Same as the Pulsar producer default of "maxPendingMessages"
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    private final Producer<byte[]> producer;
+    private final SensorJsonRecordEncoder encoder;
+    private final int maxInFlight;
+    private final Semaphore inFlightPermits;
+
+    private final AtomicLong succeededMsgCnt = new AtomicLong();
+    private final AtomicLong failedMsgCnt = new AtomicLong();
+
+    public PulsarRecordSink(Producer<byte[]> producer,
+                            int maxInFlight,
+                            int drillNum,
+                            String[] sensorTypeArr,
+                            int sensorNumPerType) {
+        this.producer = producer;
+        this.encoder = new SensorJsonRecordEncoder(drillNum, sensorTypeArr, sensorNumPerType);
+        this.maxInFlight = maxInFlight;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+    }
+
+    public long getSucceededMsgCnt() {
+        return succeededMsgCnt.get();
+    }
+
+    public long getFailedMsgCnt() {
+        return failedMsgCnt.get();
+    }
+
+    @Override
+    public void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue)
+            throws IOException {
+        byte[] payload = encoder.encode(cycleTime, drillIdx, typeIdx, sensorIdx, readingValue);
+
+        try {
+            inFlightPermits.acquire();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the in-flight messages!");
+        }
+
+        producer.newMessage()
+                .key(encoder.getDrillId(drillIdx))
+                .value(payload)
+                .sendAsync()
+                .whenComplete((messageId, throwable) -> {
+                    if (throwable == null) {
+                        succeededMsgCnt.incrementAndGet();
+                    }
+                    else {
+                        failedMsgCnt.incrementAndGet();
+                    }
+                    inFlightPermits.release();
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // A failed send also fails the flush; it is already counted by the send's own callback
+            producer.flushAsync().handle((result, throwable) -> null);
+            inFlightPermits.acquire(maxInFlight);
+            inFlightPermits.release(maxInFlight);
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the in-flight messages!");
+        }
+        finally {
+            producer.close();
+        }
+    }
+}
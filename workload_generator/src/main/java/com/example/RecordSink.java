@@ -0,0 +1,22 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ *  Destination of the generated workload records, e.g. the workload CSV file (FileRecordSink), a binary
+ *  workload file (BinaryRecordSink), a Pulsar topic (PulsarRecordSink) or nowhere (NoopRecordSink).
+ *
+ *  Each generation thread (time shard) writes into its own sink instance, so an implementation
+ *  doesn't need to be thread-safe. "close()" must not return before all accepted records are written.
+ */
+public interface RecordSink extends Closeable {
+
+    // Accept one sensor reading of the given cycle; the indexes are the ones of SensorRecordEncoder
+    void accept(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue) throws IOException;
+
+    // Creates the sink of each time shard
+    interface Factory {
+        RecordSink createSink(int shardIdx, int shardNum) throws IOException;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *  Encodes a generated sensor reading as the JSON message payload of SensorDataProducer, e.g.
+ *      {"DrillID": "DRL-001", "SensorID": "SNS-temp-01", "SensorType": "temp", "ReadingTime": "2021-04-05T16:34:43", "ReadingValue": 344.329987}
+ *
+ *  The payload is byte for byte the same as the one SensorDataProducer publishes for the CSV line of the
+ *  same reading: the value is first rounded to the two decimals of the CSV file (as a float), and then
+ *  written like "%f".
+ *
+ *  Like SensorRecordEncoder, the drill and sensor parts are precomputed and the reading time is only
+ *  re-encoded when the cycle time changes. NOT thread-safe.
+ */
+public class SensorJsonRecordEncoder {
+
+    private static final byte[] SENSOR_ID_PREFIX = "\", \"SensorID\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] READING_VALUE_PREFIX = "\", \"ReadingValue\": ".getBytes(StandardCharsets.US_ASCII);
+
+    // Beyond this, "%f" is used for the reading value instead of the fixed-point formatting below
+    private static final double MAX_FIXED_POINT_VALUE = 1e12;
+    private static final int FRACTION_DIGIT_NUM = 6;
+    private static final long FRACTION_SCALE = 1000000L;
+
+    // "DRL-001", indexed by drill index
+    private final String[] drillIds;
+    // "{"DrillID": "DRL-001", indexed by drill index
+    private final byte[][] drillIdBytes;
+    // "SNS-temp-01", "SensorType": "temp", "ReadingTime": ", indexed by sensor type index and sensor index
+    private final byte[][][] sensorIdTypeBytes;
+
+    // yyyy-MM-dd'T'HH:mm:ss", "ReadingValue":
+    private final byte[] readingTimeBytes = new byte[SensorRecordEncoder.DATE_TIME_LEN + READING_VALUE_PREFIX.length];
+    private long cachedCycleTime = Long.MIN_VALUE;
+
+    private byte[] scratch = new byte[256];
+
+    public SensorJsonRecordEncoder(int drillNum, String[] sensorTypeArr, int sensorNumPerType) {
+        drillIds = new String[drillNum];
+        drillIdBytes = new byte[drillNum][];
+        for (int drillIdx = 0; drillIdx < drillNum; drillIdx++) {
+            drillIds[drillIdx] = String.format("DRL-%03d", (drillIdx + 1));
+            drillIdBytes[drillIdx] = ("{\"DrillID\": \"" + drillIds[drillIdx]).getBytes(StandardCharsets.UTF_8);
+        }
+
+        sensorIdTypeBytes = new byte[sensorTypeArr.length][sensorNumPerType][];
+        for (int typeIdx = 0; typeIdx < sensorTypeArr.length; typeIdx++) {
+            for (int sensorIdx = 0; sensorIdx < sensorNumPerType; sensorIdx++) {
+                sensorIdTypeBytes[typeIdx][sensorIdx] = String.format(
+                                "SNS-%s-%02d\", \"SensorType\": \"%s\", \"ReadingTime\": \"",
+                                sensorTypeArr[typeIdx], (sensorIdx + 1), sensorTypeArr[typeIdx])
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        System.arraycopy(READING_VALUE_PREFIX, 0, readingTimeBytes,
+                SensorRecordEncoder.DATE_TIME_LEN, READING_VALUE_PREFIX.length);
+    }
+
+    // Drill ID (e.g. "DRL-001") of a drill index
+    public String getDrillId(int drillIdx) {
+        return drillIds[drillIdx];
+    }
+
+    public byte[] encode(long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue) {
+        if (cycleTime != cachedCycleTime) {
+            SensorRecordEncoder.putDateTime(readingTimeBytes, 0, cycleTime);
+            cachedCycleTime = cycleTime;
+        }
+
+        int pos = put(drillIdBytes[drillIdx], 0);
+        pos = put(SENSOR_ID_PREFIX, pos);
+        pos = put(sensorIdTypeBytes[typeIdx][sensorIdx], pos);
+        pos = put(readingTimeBytes, pos);
+        pos = putFloat(roundToTwoDecimals(readingValue), pos);
+        scratch[pos++] = '}';
+
+        return Arrays.copyOf(scratch, pos);
+    }
+
+    // The float read back from the "%.2f" CSV value: n / 100 is correctly rounded to double, and
+    // then to float, just like Float.parseFloat() does
+    static float roundToTwoDecimals(float value) {
+        return (float) (Math.round((double) value * 100d) / 100d);
+    }
+
+    private int put(byte[] bytes, int pos) {
+        ensureCapacity(pos + bytes.length);
+        System.arraycopy(bytes, 0, scratch, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (scratch.length < capacity) {
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, 2 * scratch.length));
+        }
+    }
+
+    // Same output as String.format("%f", value): 6 fraction digits, rounded half up.
+    // A float times 10^6 is exact in double (24 + 14 significant bits), so Math.round() rounds the exact value.
+    private int putFloat(float value, int pos) {
+        double absValue = Math.abs((double) value);
+        if ( Double.isNaN(absValue) || (absValue >= MAX_FIXED_POINT_VALUE) ) {
+            return put(String.format("%f", value).getBytes(StandardCharsets.US_ASCII), pos);
+        }
+
+        // Sign, up to 12 integer digits, '.' and the fraction digits
+        ensureCapacity(pos + 2 + 12 + FRACTION_DIGIT_NUM);
+
+        if (Float.floatToRawIntBits(value) < 0) {
+            scratch[pos++] = '-';
+        }
+
+        long scaled = Math.round(absValue * FRACTION_SCALE);
+        pos = putDigits(scaled / FRACTION_SCALE, pos, 1);
+        scratch[pos++] = '.';
+        return putDigits(scaled % FRACTION_SCALE, pos, FRACTION_DIGIT_NUM);
+    }
+
+    // Write the decimal digits of a non-negative number, left-padded with '0' to at least "minDigitNum" digits
+    private int putDigits(long number, int pos, int minDigitNum) {
+        int digitNum = 1;
+        for (long n = number / 10; n > 0; n /= 10) {
+            digitNum++;
+        }
+        digitNum = Math.max(digitNum, minDigitNum);
+
+        for (int i = pos + digitNum - 1; i >= pos; i--) {
+            scratch[i] = (byte) ('0' + (number % 10));
+            number /= 10;
+        }
+        return pos + digitNum;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  Encodes workload CSV records, e.g.
+ *      "DRL-001,SNS-temp-01,temp,2021-04-05,2021-04-05T16:34:43,344.33\n"
+ *  directly into a reusable byte buffer without any per-record allocation.
+ *
+ *  - drill name and "sensor name,sensor type" bytes are precomputed once
+ *  - the "date,timestamp" bytes are identical for all records of one cycle and
+ *    are only re-encoded when the cycle time changes
+ *  - the reading value is written with a fixed two-decimal writer (same output as "%.2f")
+ *
+ *  An encoder instance is NOT thread-safe; use one per generation thread.
+ */
+public class SensorRecordEncoder {
+
+    private static final byte COMMA = ',';
+    private static final byte NEW_LINE = '\n';
+
+    // "yyyy-MM-dd,yyyy-MM-dd'T'HH:mm:ss,"
+    private static final int CYCLE_PREFIX_LEN = 31;
+    // Long enough for any positive float value formatted with "%.2f"
+    private static final int MAX_VALUE_LEN = 48;
+
+    private static final int SECONDS_PER_DAY = 24 * 3600;
+
+    // "yyyy-MM-dd'T'HH:mm:ss"
+    static final int DATE_TIME_LEN = 19;
+
+    // "DRL-001,", indexed by drill index
+    private final byte[][] drillNameBytes;
+    // "SNS-temp-01,temp,", indexed by sensor type index and sensor index
+    private final byte[][][] sensorNameTypeBytes;
+
+    private final byte[] cyclePrefixBytes = new byte[CYCLE_PREFIX_LEN];
+    private long cachedCycleTime = Long.MIN_VALUE;
+
+    private final int maxRecordLen;
+
+    public SensorRecordEncoder(int drillNum, String[] sensorTypeArr, int sensorNumPerType) {
+        int maxDrillNameLen = 0;
+        drillNameBytes = new byte[drillNum][];
+        for (int drillIdx = 0; drillIdx < drillNum; drillIdx++) {
+            drillNameBytes[drillIdx] = String.format("DRL-%03d,", (drillIdx + 1))
+                    .getBytes(StandardCharsets.UTF_8);
+            maxDrillNameLen = Math.max(maxDrillNameLen, drillNameBytes[drillIdx].length);
+        }
+
+        int maxSensorNameTypeLen = 0;
+        sensorNameTypeBytes = new byte[sensorTypeArr.length][sensorNumPerType][];
+        for (int typeIdx = 0; typeIdx < sensorTypeArr.length; typeIdx++) {
+            for (int sensorIdx = 0; sensorIdx < sensorNumPerType; sensorIdx++) {
+                sensorNameTypeBytes[typeIdx][sensorIdx] = String.format("SNS-%s-%02d,%s,",
+                                sensorTypeArr[typeIdx], (sensorIdx + 1), sensorTypeArr[typeIdx])
+                        .getBytes(StandardCharsets.UTF_8);
+                maxSensorNameTypeLen = Math.max(maxSensorNameTypeLen, sensorNameTypeBytes[typeIdx][sensorIdx].length);
+            }
+        }
+
+        maxRecordLen = maxDrillNameLen + maxSensorNameTypeLen + CYCLE_PREFIX_LEN + MAX_VALUE_LEN + 1;
+    }
+
+    // Maximum number of bytes a single encoded record can take
+    public int getMaxRecordLen() {
+        return maxRecordLen;
+    }
+
+    // Get the reading value range of a sensor type as {min, span}
+    public static float[] getReadingValueRange(String sensorType) {
+        if (StringUtils.equalsIgnoreCase(sensorType, WorkloadGenUtil.SENSOR_TYPE.TEMP.label)) {
+            return new float[] {200, 300};
+        }
+        else if (StringUtils.equalsIgnoreCase(sensorType, WorkloadGenUtil.SENSOR_TYPE.SPEED.label)) {
+            return new float[] {1000, 2000};
+        }
+        return new float[] {0, 0};
+    }
+
+    // Encode one record into the buffer. The buffer must have at least "getMaxRecordLen()" bytes remaining.
+    public void encode(ByteBuffer buffer, long cycleTime, int drillIdx, int typeIdx, int sensorIdx, float readingValue) {
+        if (cycleTime != cachedCycleTime) {
+            encodeCyclePrefix(cycleTime);
+        }
+
+        buffer.put(drillNameBytes[drillIdx]);
+        buffer.put(sensorNameTypeBytes[typeIdx][sensorIdx]);
+        buffer.put(cyclePrefixBytes);
+        putTwoDecimalFloat(buffer, readingValue);
+        buffer.put(NEW_LINE);
+    }
+
+    // Encode "yyyy-MM-dd,yyyy-MM-dd'T'HH:mm:ss," in UTC for the given Unix time
+    private void encodeCyclePrefix(long unixTime) {
+        byte[] b = cyclePrefixBytes;
+        putDateTime(b, 11, unixTime);
+        System.arraycopy(b, 11, b, 0, 10);
+        b[10] = COMMA;
+        b[30] = COMMA;
+
+        cachedCycleTime = unixTime;
+    }
+
+    // Write "yyyy-MM-dd'T'HH:mm:ss" (DATE_TIME_LEN bytes) in UTC for the given Unix time into b[offset, ...)
+    static void putDateTime(byte[] b, int offset, long unixTime) {
+        long epochDay = Math.floorDiv(unixTime, SECONDS_PER_DAY);
+        int secOfDay = (int) Math.floorMod(unixTime, SECONDS_PER_DAY);
+
+        // Civil date from days since epoch (proleptic Gregorian calendar)
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        putDigits(b, offset, year, 4);
+        b[offset + 4] = '-';
+        putDigits(b, offset + 5, month, 2);
+        b[offset + 7] = '-';
+        putDigits(b, offset + 8, day, 2);
+        b[offset + 10] = 'T';
+        putDigits(b, offset + 11, secOfDay / 3600, 2);
+        b[offset + 13] = ':';
+        putDigits(b, offset + 14, (secOfDay / 60) % 60, 2);
+        b[offset + 16] = ':';
+        putDigits(b, offset + 17, secOfDay % 60, 2);
+    }
+
+    static void putDigits(byte[] b, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            b[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    // Write the float value with exactly two decimals, rounding half up (same as "%.2f")
+    private static void putTwoDecimalFloat(ByteBuffer buffer, float value) {
+        long scaled = Math.round((double) value * 100d);
+        if (scaled < 0) {
+            buffer.put((byte) '-');
+            scaled = -scaled;
+        }
+
+        long intPart = scaled / 100;
+        int fracPart = (int) (scaled % 100);
+
+        if (intPart == 0) {
+            buffer.put((byte) '0');
+        }
+        else {
+            long divisor = 1;
+            while (divisor <= intPart / 10) {
+                divisor *= 10;
+            }
+            while (divisor > 0) {
+                buffer.put((byte) ('0' + (intPart / divisor) % 10));
+                divisor /= 10;
+            }
+        }
+
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fracPart / 10));
+        buffer.put((byte) ('0' + fracPart % 10));
+    }
+}
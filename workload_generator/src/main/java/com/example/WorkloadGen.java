@@ -6,13 +6,23 @@ import org.apache.commons.configuration2.FileBasedConfiguration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
 import org.apache.commons.configuration2.builder.fluent.Parameters;
-import org.apache.commons.lang3.RandomUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.DateFormatUtils;
+import org.apache.pulsar.client.api.PulsarClient;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,10 +43,32 @@ public class WorkloadGen {
         Option outCsvOption = new Option(
                 WorkloadGenUtil.CMD_OPTION_OUTPUT_SHORT, WorkloadGenUtil.CMD_OPTION_OUTPUT_LONG,
                 true, "Output CSV file name.");
+        Option threadsOption = new Option(
+                WorkloadGenUtil.CMD_OPTION_THREADS_SHORT, WorkloadGenUtil.CMD_OPTION_THREADS_LONG,
+                true, "Number of generation threads (default: 1; 0 means all available cores).");
+        Option splitOption = new Option(
+                WorkloadGenUtil.CMD_OPTION_SPLIT_SHORT, WorkloadGenUtil.CMD_OPTION_SPLIT_LONG,
+                false, "Keep one output part file per time shard instead of merging them into the output file.");
+        Option sinkOption = new Option(
+                WorkloadGenUtil.CMD_OPTION_SINK_SHORT, WorkloadGenUtil.CMD_OPTION_SINK_LONG,
+                true, "Where the records go: file (default, the output CSV file), bin (a binary workload file), " +
+                "pulsar (straight to a Pulsar topic) or noop (nowhere).");
+        Option liveOption = new Option(
+                WorkloadGenUtil.CMD_OPTION_LIVE_SHORT, WorkloadGenUtil.CMD_OPTION_LIVE_LONG,
+                false, "Live mode: generate the readings of every sensor in real time, every \"workload_frequency\", " +
+                "until stopped (instead of the \"workload_period\" up to \"workload_enddate\").");
+        Option durationOption = new Option(
+                WorkloadGenUtil.CMD_OPTION_DURATION_SHORT, WorkloadGenUtil.CMD_OPTION_DURATION_LONG,
+                true, "How long the live mode runs, in \"workload_period\" format (default: until stopped).");
 
         options.addOption(helpOption);
         options.addOption(cfgOption);
         options.addOption(outCsvOption);
+        options.addOption(threadsOption);
+        options.addOption(splitOption);
+        options.addOption(sinkOption);
+        options.addOption(liveOption);
+        options.addOption(durationOption);
     }
 
     static void usageAndExit(int errorCode) {
@@ -186,6 +218,302 @@ public class WorkloadGen {
         return getUnixTime(endDateTime);
     }
 
+    // Get the number of generation threads from the "-t/--threads" option
+    public static int getThreadNum(String threadNumStr) {
+        if (StringUtils.isBlank(threadNumStr)) {
+            return 1;
+        }
+
+        int threadNum;
+        try {
+            threadNum = Integer.parseInt(threadNumStr.trim());
+        }
+        catch (NumberFormatException nfe) {
+            threadNum = -1;
+        }
+
+        if (threadNum < 0) {
+            String errMsg = String.format("Specified \"threads\" value (%s) must be a non-negative integer!",
+                    threadNumStr);
+            throw new RuntimeException(errMsg);
+        }
+        else if (threadNum == 0) {
+            threadNum = Runtime.getRuntime().availableProcessors();
+        }
+
+        return threadNum;
+    }
+
+    // Split the workload time range into (at most) "shardNum" time shards.
+    // Shard boundaries are always aligned with the workload cycles, so the union of all
+    //   shards generates exactly the same cycles as one single pass over the whole range.
+    public static List<WorkloadShard> createWorkloadShards(int shardNum,
+                                                           int drillNum,
+                                                           String[] sensorTypeArr,
+                                                           int sensorNumPerType,
+                                                           int wlFreqInSec,
+                                                           long wlStartTimeUnix,
+                                                           long wlEndTimeUnix,
+                                                           RecordSink.Factory sinkFactory) throws IOException {
+        long totalCycleNum = (wlEndTimeUnix - wlStartTimeUnix) / wlFreqInSec + 1;
+        int actualShardNum = (int) Math.min(shardNum, totalCycleNum);
+
+        List<WorkloadShard> shards = new ArrayList<>();
+        for (int shardIdx = 0; shardIdx < actualShardNum; shardIdx++) {
+            long firstCycle = totalCycleNum * shardIdx / actualShardNum;
+            long lastCycle = totalCycleNum * (shardIdx + 1) / actualShardNum - 1;
+
+            shards.add(new WorkloadShard(shardIdx,
+                    drillNum, 0, drillNum, sensorTypeArr, sensorNumPerType, wlFreqInSec,
+                    wlStartTimeUnix + firstCycle * wlFreqInSec,
+                    wlStartTimeUnix + lastCycle * wlFreqInSec,
+                    sinkFactory.createSink(shardIdx, actualShardNum)));
+        }
+
+        return shards;
+    }
+
+    // Split the drills into (at most) "shardNum" drill shards, each over the whole workload time range.
+    // Used for the "pulsar" sink: the shards publish to the topic at the same time, so time shards would
+    //   interleave far apart reading times, whereas drill shards keep every drill's readings in time order.
+    public static List<WorkloadShard> createDrillShards(int shardNum,
+                                                        int drillNum,
+                                                        String[] sensorTypeArr,
+                                                        int sensorNumPerType,
+                                                        int wlFreqInSec,
+                                                        long wlStartTimeUnix,
+                                                        long wlEndTimeUnix,
+                                                        RecordSink.Factory sinkFactory) throws IOException {
+        int actualShardNum = Math.min(shardNum, drillNum);
+
+        List<WorkloadShard> shards = new ArrayList<>();
+        for (int shardIdx = 0; shardIdx < actualShardNum; shardIdx++) {
+            shards.add(new WorkloadShard(shardIdx,
+                    drillNum,
+                    drillNum * shardIdx / actualShardNum,
+                    drillNum * (shardIdx + 1) / actualShardNum,
+                    sensorTypeArr, sensorNumPerType, wlFreqInSec,
+                    wlStartTimeUnix, wlEndTimeUnix,
+                    sinkFactory.createSink(shardIdx, actualShardNum)));
+        }
+
+        return shards;
+    }
+
+    // Output file of a time shard: the output file itself, or one part file per shard if there are multiple shards
+    public static File getShardOutputFile(String outputFilePath, int shardIdx, int shardNum) {
+        if (shardNum > 1) {
+            return new File(outputFilePath + String.format(WorkloadGenUtil.PART_FILE_SUFFIX_FORMAT, shardIdx));
+        }
+        return new File(outputFilePath);
+    }
+
+    // Create the sink of every time shard (or live partition) for the "-k/--sink" type
+    public static RecordSink.Factory getSinkFactory(WorkloadGenUtil.SINK_TYPE sinkType,
+                                                    Configuration config,
+                                                    PulsarClient pulsarClient,
+                                                    int drillNum,
+                                                    String[] sensorTypeArr,
+                                                    int sensorNumPerType,
+                                                    String outputFilePath) {
+        switch (sinkType) {
+            case PULSAR:
+                String pulsarTopic = config.getString("topic_uri");
+                if (StringUtils.isBlank(pulsarTopic)) {
+                    String errMsg = String.format("\"topic_uri\" value (%s) must NOT be empty for the \"%s\" sink!",
+                            pulsarTopic, sinkType.label);
+                    throw new RuntimeException(errMsg);
+                }
+
+                // One producer per drill shard (or live partition)
+                return (shardIdx, shardNum) -> new PulsarRecordSink(
+                        pulsarClient.newProducer()
+                                .enableBatching(true)
+                                .blockIfQueueFull(true)
+                                .topic(pulsarTopic)
+                                .create(),
+                        PulsarRecordSink.DEFAULT_MAX_IN_FLIGHT,
+                        drillNum, sensorTypeArr, sensorNumPerType);
+            case BIN:
+                return (shardIdx, shardNum) -> new BinaryRecordSink(
+                        getShardOutputFile(outputFilePath, shardIdx, shardNum),
+                        drillNum, sensorTypeArr, sensorNumPerType);
+            case NOOP:
+                return (shardIdx, shardNum) -> new NoopRecordSink();
+            default:
+                return (shardIdx, shardNum) -> new FileRecordSink(
+                        getShardOutputFile(outputFilePath, shardIdx, shardNum),
+                        drillNum, sensorTypeArr, sensorNumPerType);
+        }
+    }
+
+    // Create a Pulsar client (for the "pulsar" sink) from the "pulsar_svc_url", "authNEnabled" and "client.*" settings
+    public static PulsarClient createPulsarClient(Configuration config) {
+        String pulsarSvcUrl = config.getString("pulsar_svc_url");
+        if (StringUtils.isBlank(pulsarSvcUrl)) {
+            String errMsg = String.format("\"pulsar_svc_url\" value (%s) must NOT be empty!", pulsarSvcUrl);
+            throw new RuntimeException(errMsg);
+        }
+
+        boolean authNEnabled = BooleanUtils.toBoolean(config.getString("authNEnabled"));
+
+        HashMap<String, Object> clientConf = new HashMap<>();
+        String clientPrefix = "client";
+        for (Iterator<String> it = config.getKeys(clientPrefix); it.hasNext(); ) {
+            String confKey = it.next();
+            String confVal = config.getProperty(confKey).toString();
+            if (!StringUtils.isBlank(confVal))
+                clientConf.put(confKey.substring(clientPrefix.length() + 1), config.getProperty(confKey));
+        }
+
+        return WorkloadGenUtil.createPulsarClient(authNEnabled, clientConf, pulsarSvcUrl);
+    }
+
+    // Process all workload shards on a fixed size worker pool and return the total number of records
+    public static long generateWorkload(List<WorkloadShard> shards, int threadNum) throws Exception {
+        long totalRecordCnt = 0;
+
+        // No need for a worker pool when there is only one shard
+        if (shards.size() == 1) {
+            return shards.get(0).call();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadNum, shards.size()));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (WorkloadShard shard : shards) {
+                futures.add(executor.submit(shard));
+            }
+
+            for (Future<Long> future : futures) {
+                totalRecordCnt += future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return totalRecordCnt;
+    }
+
+    // Run the live generator until the duration (if positive) has passed, the process is stopped or a sink fails
+    public static void runLiveWorkload(LiveWorkloadGenerator generator, long durationInSec) throws Exception {
+        long startNanos = System.nanoTime();
+
+        // Ctrl-C / SIGTERM: stop generating and drain the sinks before exiting
+        Thread shutdownHook = new Thread(() -> {
+            try {
+                generator.close();
+            }
+            catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+            printLiveSummary(generator, startNanos);
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        generator.start();
+
+        long statusIntervalNanos = WorkloadGenUtil.LIVE_STATUS_INTERVAL_SEC * 1000000000L;
+        long deadlineNanos = startNanos + durationInSec * 1000000000L;
+        while (true) {
+            long waitNanos = statusIntervalNanos;
+            if (durationInSec > 0) {
+                waitNanos = Math.min(waitNanos, deadlineNanos - System.nanoTime());
+            }
+            if ( (waitNanos <= 0) || generator.awaitClosed(waitNanos, TimeUnit.NANOSECONDS) ) {
+                break;
+            }
+            if ( (durationInSec > 0) && (System.nanoTime() - deadlineNanos >= 0) ) {
+                break;
+            }
+
+            double elapsedSec = (System.nanoTime() - startNanos) / 1e9;
+            System.out.printf("Live: %d records in %d cycle(s) (%d skipped) after %.0f seconds (%.0f records/s).\n",
+                    generator.getRecordCnt(), generator.getCycleCnt(), generator.getSkippedCycleCnt(),
+                    elapsedSec, generator.getRecordCnt() / elapsedSec);
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException ise) {
+            // Already shutting down: the shutdown hook closes the generator, wait for it until the JVM exits
+            shutdownHook.join();
+            return;
+        }
+
+        generator.close();
+        printLiveSummary(generator, startNanos);
+
+        if (generator.getFailure() != null) {
+            throw generator.getFailure();
+        }
+    }
+
+    static void printLiveSummary(LiveWorkloadGenerator generator, long startNanos) {
+        double elapsedSec = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("Generated %d records in %d cycle(s) (%d skipped) with %d thread(s), " +
+                        "in %.3f seconds (%.0f records/s).\n",
+                generator.getRecordCnt(), generator.getCycleCnt(), generator.getSkippedCycleCnt(),
+                generator.getPartitionNum(), elapsedSec, generator.getRecordCnt() / elapsedSec);
+
+        long succeededMsgCnt = 0;
+        long failedMsgCnt = 0;
+        boolean pulsarSink = false;
+        for (RecordSink sink : generator.getSinks()) {
+            if (sink instanceof PulsarRecordSink) {
+                succeededMsgCnt += ((PulsarRecordSink) sink).getSucceededMsgCnt();
+                failedMsgCnt += ((PulsarRecordSink) sink).getFailedMsgCnt();
+                pulsarSink = true;
+            }
+        }
+        if (pulsarSink) {
+            System.out.printf("Published %d messages (%d failed).\n", succeededMsgCnt, failedMsgCnt);
+        }
+    }
+
+    // Merge the binary part files, in shard (time) order, into the final output file and remove them
+    public static void mergeBinaryShardOutputs(List<WorkloadShard> shards, String outputFilePath) throws IOException {
+        List<File> partFiles = new ArrayList<>();
+        for (WorkloadShard shard : shards) {
+            partFiles.add(getShardOutputFile(outputFilePath, shard.getShardIdx(), shards.size()));
+        }
+
+        BinaryRecordSink.mergeFiles(partFiles, new File(outputFilePath));
+
+        for (File partFile : partFiles) {
+            if (!partFile.delete()) {
+                System.out.println("Can't delete the workload part file (" + partFile.getPath() + ")!");
+            }
+        }
+    }
+
+    // Concatenate the part files, in shard (time) order, into the final output file and remove them
+    public static void mergeShardOutputs(List<WorkloadShard> shards, String outputFilePath) throws IOException {
+        int shardNum = shards.size();
+
+        try (FileChannel outChannel = FileChannel.open(new File(outputFilePath).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            for (WorkloadShard shard : shards) {
+                File partFile = getShardOutputFile(outputFilePath, shard.getShardIdx(), shardNum);
+
+                try (FileChannel inChannel = FileChannel.open(partFile.toPath(), StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = inChannel.size();
+                    while (position < size) {
+                        position += inChannel.transferTo(position, size - position, outChannel);
+                    }
+                }
+
+                if (!partFile.delete()) {
+                    System.out.println("Can't delete the workload part file (" + partFile.getPath() + ")!");
+                }
+            }
+        }
+    }
+
 
     // Main function
     public static void main(String[] args) {
@@ -235,6 +563,22 @@ public class WorkloadGen {
                 usageAndExit(40);
             }
 
+            // "-t/--threads" option is optional; defaults to 1 (single thread, single output file)
+            int threadNum = getThreadNum(cmd.getOptionValue(WorkloadGenUtil.CMD_OPTION_THREADS_SHORT));
+            boolean splitOutput = cmd.hasOption(WorkloadGenUtil.CMD_OPTION_SPLIT_SHORT);
+
+            // "-k/--sink" option is optional; defaults to the output CSV file
+            WorkloadGenUtil.SINK_TYPE sinkType =
+                    WorkloadGenUtil.getSinkType(cmd.getOptionValue(WorkloadGenUtil.CMD_OPTION_SINK_SHORT));
+
+            // "-l/--live" and "-d/--duration" options are optional; the duration defaults to "until stopped"
+            boolean liveMode = cmd.hasOption(WorkloadGenUtil.CMD_OPTION_LIVE_SHORT);
+            String liveDurationStr = cmd.getOptionValue(WorkloadGenUtil.CMD_OPTION_DURATION_SHORT);
+            int liveDurationInSec = 0;
+            if (!StringUtils.isBlank(liveDurationStr)) {
+                liveDurationInSec = getWorkloadPeriodInSec(liveDurationStr);
+            }
+
             // Read configuration settings from properties file
             Parameters params = new Parameters();
             FileBasedConfigurationBuilder<FileBasedConfiguration> builder =
@@ -253,7 +597,6 @@ public class WorkloadGen {
 
             String sensorTypeList = config.getString("sensor_types");
             String[] sensorTypeArr = StringUtils.split(sensorTypeList,",");
-            int sensorTypeArrLen = sensorTypeArr.length;
             for (String type : sensorTypeArr) {
                 if (!WorkloadGenUtil.isValidSensorType(type)) {
                     String errMsg = String.format("Specified \"sensor_types\" value (%s) is not valid. Valid sensor types: %s",
@@ -272,6 +615,48 @@ public class WorkloadGen {
 
             String workloadFrequencyStr = config.getString("workload_frequency");
             int wlFreqInSec = getWorkloadFreqInSec(workloadFrequencyStr);
+            if (wlFreqInSec <= 0) {
+                String errMsg = String.format("Specified \"workload_frequency\" value (%s) must be positive!",
+                        workloadFrequencyStr);
+                throw new RuntimeException(errMsg);
+            }
+
+            if (liveMode) {
+                System.out.printf("\n==============================\n" +
+                        "drillNum: %d\n" +
+                        "sensorTypeList: %s\n" +
+                        "sensorNumPerType: %d\n" +
+                        "wlFreqInSec: %d\n" +
+                        "liveDurationInSec: %d\n" +
+                        "threadNum: %d\n" +
+                        "sink: %s\n" +
+                        "==============================\n\n",
+                        drillNum, sensorTypeList, sensorNumPerType,
+                        wlFreqInSec, liveDurationInSec, threadNum, sinkType.label);
+
+                PulsarClient pulsarClient = null;
+                if (sinkType == WorkloadGenUtil.SINK_TYPE.PULSAR) {
+                    pulsarClient = createPulsarClient(config);
+                }
+
+                try {
+                    // The file sink keeps one part file per partition (if more than one)
+                    RecordSink.Factory sinkFactory = getSinkFactory(sinkType, config, pulsarClient,
+                            drillNum, sensorTypeArr, sensorNumPerType, canonicalFilePath);
+
+                    LiveWorkloadGenerator generator = new LiveWorkloadGenerator(
+                            drillNum, sensorTypeArr, sensorNumPerType, wlFreqInSec, threadNum, sinkFactory);
+                    runLiveWorkload(generator, liveDurationInSec);
+                }
+                finally {
+                    if (pulsarClient != null) {
+                        pulsarClient.close();
+                    }
+                }
+
+                System.out.print("Live workload generation is stopped!\n");
+                return;
+            }
 
             String workloadPeriodStr = config.getString("workload_period");
             int wlPeriodInSec = getWorkloadPeriodInSec(workloadPeriodStr);
@@ -297,49 +682,65 @@ public class WorkloadGen {
                     "wlFreqInSec: %d\n" +
                     "wlStartTimeUnix: %d\n" +
                     "wlEndTimeUnix: %d\n" +
+                    "threadNum: %d\n" +
+                    "sink: %s\n" +
                     "==============================\n\n",
                     drillNum, sensorTypeList, sensorNumPerType,
-                    wlPeriodInSec, wlFreqInSec, wlStartTimeUnix, wlEndTimeUnix);
-
-            FileOutputStream fos = new FileOutputStream(canonicalFilePath);
-            DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(fos));
-
-            for ( long cycle_time = wlStartTimeUnix;
-                  cycle_time <= wlEndTimeUnix;
-                  cycle_time = cycle_time + wlFreqInSec)
-            {
-                // Randomly pick a number of drills and a number of sensors for this cycle
-                int drillCycleNum = RandomUtils.nextInt(1, (drillNum+1));
-                int sensorCycleNum = RandomUtils.nextInt(1, (sensorNumPerType+1));
-
-                for (int drillIdx = 0; drillIdx < drillCycleNum; drillIdx++) {
-                    String drillName = String.format("DRL-%03d", (drillIdx + 1));
-
-                    for (int sensorIdx = 0; sensorIdx < sensorCycleNum; sensorIdx++ ) {
-                        String sensorType = sensorTypeArr[RandomUtils.nextInt(0, sensorTypeArrLen)];
-                        String sensorName = String.format("SNS-%s-%02d",sensorType, (sensorIdx + 1));
-
-                        float readingValue = 0;
-
-                        if (StringUtils.equalsIgnoreCase(sensorType, WorkloadGenUtil.SENSOR_TYPE.TEMP.label)) {
-                            readingValue = RandomUtils.nextFloat(200, 500);
-                        }
-                        else if (StringUtils.equalsIgnoreCase(sensorType, WorkloadGenUtil.SENSOR_TYPE.SPEED.label)) {
-                            readingValue = RandomUtils.nextFloat(1000, 3000);
-                        }
-
-                        String record = String.format("%s,%s,%s,%s,%s,%.2f\n",
-                                drillName, sensorName, sensorType,
-                                DateFormatUtils.formatUTC(cycle_time*1000L, "yyyy-MM-dd"),
-                                DateFormatUtils.formatUTC(cycle_time*1000L, "yyyy-MM-dd'T'HH:mm:ss"),
-                                readingValue);
-
-                        outStream.write(record.getBytes());
+                    wlPeriodInSec, wlFreqInSec, wlStartTimeUnix, wlEndTimeUnix, threadNum, sinkType.label);
+
+            PulsarClient pulsarClient = null;
+            if (sinkType == WorkloadGenUtil.SINK_TYPE.PULSAR) {
+                pulsarClient = createPulsarClient(config);
+            }
+
+            try {
+                RecordSink.Factory sinkFactory = getSinkFactory(sinkType, config, pulsarClient,
+                        drillNum, sensorTypeArr, sensorNumPerType, canonicalFilePath);
+
+                // Published records must stay in reading time order per drill, so split by drill instead of by time
+                List<WorkloadShard> shards = (sinkType == WorkloadGenUtil.SINK_TYPE.PULSAR)
+                        ? createDrillShards(threadNum,
+                                drillNum, sensorTypeArr, sensorNumPerType, wlFreqInSec,
+                                wlStartTimeUnix, wlEndTimeUnix, sinkFactory)
+                        : createWorkloadShards(threadNum,
+                                drillNum, sensorTypeArr, sensorNumPerType, wlFreqInSec,
+                                wlStartTimeUnix, wlEndTimeUnix, sinkFactory);
+
+                long startNanos = System.nanoTime();
+                long totalRecordCnt = generateWorkload(shards, threadNum);
+                double elapsedSec = (System.nanoTime() - startNanos) / 1e9;
+
+                if ( (shards.size() > 1) && !splitOutput ) {
+                    if (sinkType == WorkloadGenUtil.SINK_TYPE.FILE) {
+                        mergeShardOutputs(shards, canonicalFilePath);
+                    }
+                    else if (sinkType == WorkloadGenUtil.SINK_TYPE.BIN) {
+                        mergeBinaryShardOutputs(shards, canonicalFilePath);
                     }
                 }
-            }
 
-            outStream.close();
+                System.out.printf("Generated %d records with %d thread(s) in %d %s shard(s), " +
+                                "in %.3f seconds (%.0f records/s).\n",
+                        totalRecordCnt, Math.min(threadNum, shards.size()), shards.size(),
+                        (sinkType == WorkloadGenUtil.SINK_TYPE.PULSAR) ? "drill" : "time",
+                        elapsedSec, totalRecordCnt / elapsedSec);
+
+                if (sinkType == WorkloadGenUtil.SINK_TYPE.PULSAR) {
+                    long succeededMsgCnt = 0;
+                    long failedMsgCnt = 0;
+                    for (WorkloadShard shard : shards) {
+                        PulsarRecordSink pulsarSink = (PulsarRecordSink) shard.getSink();
+                        succeededMsgCnt += pulsarSink.getSucceededMsgCnt();
+                        failedMsgCnt += pulsarSink.getFailedMsgCnt();
+                    }
+                    System.out.printf("Published %d messages (%d failed).\n", succeededMsgCnt, failedMsgCnt);
+                }
+            }
+            finally {
+                if (pulsarClient != null) {
+                    pulsarClient.close();
+                }
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,9 +1,16 @@
 package com.example;
 
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.api.ClientBuilder;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class WorkloadGenUtil {
@@ -14,6 +21,22 @@ public class WorkloadGenUtil {
     public static final String CMD_OPTION_CFG_FILE_LONG = "config";
     public static final String CMD_OPTION_OUTPUT_SHORT = "o";
     public static final String CMD_OPTION_OUTPUT_LONG = "output";
+    public static final String CMD_OPTION_THREADS_SHORT = "t";
+    public static final String CMD_OPTION_THREADS_LONG = "threads";
+    public static final String CMD_OPTION_SPLIT_SHORT = "s";
+    public static final String CMD_OPTION_SPLIT_LONG = "split";
+    public static final String CMD_OPTION_SINK_SHORT = "k";
+    public static final String CMD_OPTION_SINK_LONG = "sink";
+    public static final String CMD_OPTION_LIVE_SHORT = "l";
+    public static final String CMD_OPTION_LIVE_LONG = "live";
+    public static final String CMD_OPTION_DURATION_SHORT = "d";
+    public static final String CMD_OPTION_DURATION_LONG = "duration";
+
+    // Suffix of the per-shard output file in parallel generation mode, e.g. "workload_gen.csv.part-0003"
+    public static final String PART_FILE_SUFFIX_FORMAT = ".part-%04d";
+
+    // How often the live mode prints its progress
+    public static final int LIVE_STATUS_INTERVAL_SEC = 60;
 
     // Sensor type
     public enum SENSOR_TYPE {
@@ -39,6 +62,91 @@ public class WorkloadGenUtil {
         return Arrays.stream(SENSOR_TYPE.values()).map(t -> t.label).collect(Collectors.joining(","));
     }
 
+    // Destination of the generated records
+    public enum SINK_TYPE {
+        // workload CSV file
+        FILE("file"),
+        // binary workload file, see BinaryRecordSink
+        BIN("bin"),
+        // Pulsar topic, see PulsarRecordSink
+        PULSAR("pulsar"),
+        // nowhere, e.g. to measure the generation throughput
+        NOOP("noop");
+
+        public final String label;
+
+        SINK_TYPE(String label) {
+            this.label = label;
+        }
+    }
+    public static SINK_TYPE getSinkType(String sinkTypeStr) {
+        if (StringUtils.isBlank(sinkTypeStr)) {
+            return SINK_TYPE.FILE;
+        }
+        return Arrays.stream(SINK_TYPE.values())
+                .filter(t -> t.label.equalsIgnoreCase(sinkTypeStr.trim()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException(String.format(
+                        "Specified \"sink\" value (%s) is not valid. Valid sinks: %s",
+                        sinkTypeStr,
+                        Arrays.stream(SINK_TYPE.values()).map(t -> t.label).collect(Collectors.joining(",")))));
+    }
+
+    /**
+     * Create Pulsar client (for the "pulsar" sink)
+     */
+    public static PulsarClient createPulsarClient(
+            boolean authNEnabled,
+            Map<String, Object> clientConf,
+            String pulsarSvcUrl)
+    {
+        ClientBuilder clientBuilder = PulsarClient.builder();
+        clientBuilder.loadConf(clientConf).serviceUrl(pulsarSvcUrl);
+        PulsarClient pulsarClient;
+
+        try {
+            if (authNEnabled) {
+                String authPluginClassName = (String) clientConf.get("authPluginClassName");
+                String authParams = (String) clientConf.get("authParams");
+
+                String useTlsStr = (String) clientConf.get("useTls");
+                boolean useTls = BooleanUtils.toBoolean(useTlsStr);
+
+                String tlsTrustCertsFilePath = (String) clientConf.get("tlsTrustCertsFilePath");
+
+                String tlsAllowInsecureConnectionStr = (String) clientConf.get("tlsAllowInsecureConnection");
+                boolean tlsAllowInsecureConnection = BooleanUtils.toBoolean(tlsAllowInsecureConnectionStr);
+
+                String tlsHostnameVerificationEnableStr = (String) clientConf.get("tlsHostnameVerificationEnable");
+                boolean tlsHostnameVerificationEnable = BooleanUtils.toBoolean(tlsHostnameVerificationEnableStr);
+
+                if (!StringUtils.isAnyBlank(authPluginClassName, authParams)) {
+                    clientBuilder.authentication(authPluginClassName, authParams);
+                }
+
+                if (useTls) {
+                    clientBuilder
+                            .useKeyStoreTls(true)
+                            .enableTlsHostnameVerification(tlsHostnameVerificationEnable);
+
+                    if (!StringUtils.isBlank(tlsTrustCertsFilePath))
+                        clientBuilder.tlsTrustCertsFilePath(tlsTrustCertsFilePath);
+                }
+
+                // Put this outside "if (useTls)" block for easier handling of "tlsAllowInsecureConnection"
+                clientBuilder.allowTlsInsecureConnection(tlsAllowInsecureConnection);
+            }
+
+            pulsarClient = clientBuilder.build();
+        }
+        catch (PulsarClientException pce) {
+            String errMsg = "Fail to create PulsarClient: " + pce.getMessage();
+            throw new RuntimeException(errMsg);
+        }
+
+        return  pulsarClient;
+    }
+
     // Workload frequency unit - currently only supports "second", "minute", and "hour"
     public enum WL_FREQUENCY_UNIT {
         // second
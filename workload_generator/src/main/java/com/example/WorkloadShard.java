@@ -0,0 +1,95 @@
+package com.example;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *  Generates the workload records of one shard, i.e. all cycles within [shardStartTimeUnix, shardEndTimeUnix]
+ *  of the drills [firstDrillIdx, lastDrillIdx), into its own record sink (e.g. output file).
+ *
+ *  Shards are independent from each other so they can be processed in parallel.
+ */
+public class WorkloadShard implements Callable<Long> {
+
+    private final int shardIdx;
+    private final int drillNum;
+    private final int firstDrillIdx;
+    private final int lastDrillIdx;
+    private final String[] sensorTypeArr;
+    private final int sensorNumPerType;
+    private final int wlFreqInSec;
+    private final long shardStartTimeUnix;
+    private final long shardEndTimeUnix;
+    private final RecordSink sink;
+
+    public WorkloadShard(int shardIdx,
+                         int drillNum,
+                         int firstDrillIdx,
+                         int lastDrillIdx,
+                         String[] sensorTypeArr,
+                         int sensorNumPerType,
+                         int wlFreqInSec,
+                         long shardStartTimeUnix,
+                         long shardEndTimeUnix,
+                         RecordSink sink) {
+        this.shardIdx = shardIdx;
+        this.drillNum = drillNum;
+        this.firstDrillIdx = firstDrillIdx;
+        this.lastDrillIdx = lastDrillIdx;
+        this.sensorTypeArr = sensorTypeArr;
+        this.sensorNumPerType = sensorNumPerType;
+        this.wlFreqInSec = wlFreqInSec;
+        this.shardStartTimeUnix = shardStartTimeUnix;
+        this.shardEndTimeUnix = shardEndTimeUnix;
+        this.sink = sink;
+    }
+
+    public int getShardIdx() {
+        return shardIdx;
+    }
+
+    public RecordSink getSink() {
+        return sink;
+    }
+
+    // Generate all records of this shard into the sink, close it, and return the number of records generated
+    @Override
+    public Long call() throws Exception {
+        // Each worker thread uses its own random generator to avoid contention
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sensorTypeArrLen = sensorTypeArr.length;
+        long recordCnt = 0;
+
+        // Reading value range {min, span} per sensor type index
+        float[][] valueRanges = new float[sensorTypeArrLen][];
+        for (int typeIdx = 0; typeIdx < sensorTypeArrLen; typeIdx++) {
+            valueRanges[typeIdx] = SensorRecordEncoder.getReadingValueRange(sensorTypeArr[typeIdx]);
+        }
+
+        try (RecordSink recordSink = sink) {
+
+            for ( long cycle_time = shardStartTimeUnix;
+                  cycle_time <= shardEndTimeUnix;
+                  cycle_time = cycle_time + wlFreqInSec)
+            {
+                // Randomly pick a number of drills and a number of sensors for this cycle
+                int drillCycleNum = random.nextInt(1, (drillNum+1));
+                int sensorCycleNum = random.nextInt(1, (sensorNumPerType+1));
+                int drillEndIdx = Math.min(drillCycleNum, lastDrillIdx);
+
+                for (int drillIdx = firstDrillIdx; drillIdx < drillEndIdx; drillIdx++) {
+                    for (int sensorIdx = 0; sensorIdx < sensorCycleNum; sensorIdx++ ) {
+                        int typeIdx = random.nextInt(0, sensorTypeArrLen);
+                        float[] valueRange = valueRanges[typeIdx];
+                        float readingValue = valueRange[0] + (valueRange[1] * random.nextFloat());
+
+                        recordSink.accept(cycle_time, drillIdx, typeIdx, sensorIdx, readingValue);
+                        recordCnt++;
+                    }
+                }
+            }
+        }
+
+        return recordCnt;
+    }
+}